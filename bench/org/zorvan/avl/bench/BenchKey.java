@@ -0,0 +1,30 @@
+package org.zorvan.avl.bench;
+
+import org.zorvan.avl.AVLNode;
+
+/**
+ * Class represents node of the benchmarked AVL tree as a number
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class BenchKey extends AVLNode<BenchKey> {
+    private final int value;
+
+    public BenchKey(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public int compareTo(BenchKey k) {
+        return (this.value < k.value) ? -1 : ((this.value == k.value) ? 0 : 1);
+    }
+
+    @Override
+    public int getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String toString() {
+        return "" + this.value;
+    }
+}
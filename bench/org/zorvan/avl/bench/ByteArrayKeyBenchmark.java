@@ -0,0 +1,129 @@
+package org.zorvan.avl.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zorvan.avl.AVLNode;
+import org.zorvan.avl.AVLTree;
+import org.zorvan.avl.ByteArrayAVLTree;
+
+/**
+ * Latency of random search of URL-like keys with long common prefixes in AVLTree of String nodes
+ * and in ByteArrayAVLTree in plain and prefix-compressed mode. Stored key bytes of ByteArrayAVLTree
+ * are printed at setup to compare memory of the modes.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class ByteArrayKeyBenchmark {
+    private static final String[] PREFIXES = {
+        "https://www.example.com/catalog/products/electronics/",
+        "https://www.example.com/catalog/products/garden/",
+        "https://static.example.org/assets/images/thumbnails/"
+    };
+
+    @Param({"StringAVLTree", "ByteArrayAVLTree", "CompressedByteArrayAVLTree"})
+    public String implementation;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private AVLTree stringTree;
+    private ByteArrayAVLTree byteTree;
+    private String[] keys;
+    private byte[][] byteKeys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.keys = new String[this.size];
+        this.byteKeys = new byte[this.size][];
+        for (int i = 0; i < this.size; i++) {
+            this.keys[i] = PREFIXES[i % PREFIXES.length] + "item-" + (i * 7919L % 100000007) + ".html";
+            this.byteKeys[i] = this.keys[i].getBytes(StandardCharsets.UTF_8);
+        }
+        switch (this.implementation) {
+            case "StringAVLTree":
+                this.stringTree = new AVLTree();
+                for (String key : this.keys) {
+                    this.stringTree.insert(new StringKey(key));
+                }
+                break;
+            case "ByteArrayAVLTree":
+            case "CompressedByteArrayAVLTree":
+                this.byteTree = new ByteArrayAVLTree(this.implementation.startsWith("Compressed"));
+                for (byte[] key : this.byteKeys) {
+                    this.byteTree.insert(key.clone());
+                }
+                System.out.println("stored key bytes: " + this.byteTree.getStoredKeyBytes());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation: " + this.implementation);
+        }
+        //search order differs from insertion order
+        Random random = new Random(42);
+        for (int i = this.size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String key = this.keys[i];
+            this.keys[i] = this.keys[j];
+            this.keys[j] = key;
+            byte[] byteKey = this.byteKeys[i];
+            this.byteKeys[i] = this.byteKeys[j];
+            this.byteKeys[j] = byteKey;
+        }
+        this.cursor = 0;
+    }
+
+    @Benchmark
+    public boolean search() {
+        int index = this.cursor;
+        this.cursor = (index + 1 == this.size) ? 0 : index + 1;
+        if (this.stringTree != null) {
+            return this.stringTree.search(new StringKey(this.keys[index])) != null;
+        }
+        return this.byteTree.search(this.byteKeys[index]);
+    }
+
+    /**
+     * Node of AVLTree with String key
+     */
+    public static final class StringKey extends AVLNode<StringKey> {
+        private final String key;
+
+        public StringKey(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(StringKey k) {
+            return this.key.compareTo(k.key);
+        }
+
+        @Override
+        public int getValue() {
+            return this.key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.key;
+        }
+    }
+}
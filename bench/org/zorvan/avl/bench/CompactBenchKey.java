@@ -0,0 +1,30 @@
+package org.zorvan.avl.bench;
+
+import org.zorvan.avl.CompactAVLNode;
+
+/**
+ * Class represents node of the benchmarked CompactAVLTree as a number
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class CompactBenchKey extends CompactAVLNode<CompactBenchKey> {
+    private final int value;
+
+    public CompactBenchKey(int value) {
+        this.value = value;
+    }
+
+    @Override
+    public int compareTo(CompactBenchKey k) {
+        return (this.value < k.value) ? -1 : ((this.value == k.value) ? 0 : 1);
+    }
+
+    @Override
+    public int getValue() {
+        return this.value;
+    }
+
+    @Override
+    public String toString() {
+        return "" + this.value;
+    }
+}
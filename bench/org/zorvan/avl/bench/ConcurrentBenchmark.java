@@ -0,0 +1,142 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.zorvan.avl.AVLTree;
+import org.zorvan.avl.ConcurrentAVLTree;
+import org.zorvan.avl.ShardedAVLTree;
+
+/**
+ * Throughput of shared tree accessed by many threads with given fraction of searches.
+ * AVLTree guarded by one global lock is the baseline the concurrent tree should beat.
+ * Run main method (ant bench-scaling) to measure scaling from 1 to all available cores.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class ConcurrentBenchmark {
+
+    @Param({"ConcurrentAVLTree", "ShardedAVLTree", "SynchronizedAVLTree", "ConcurrentSkipListMap"})
+    public String implementation;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0.95"})
+    public double readRatio;
+
+    private ConcurrentAVLTree<Integer, Integer> concurrentTree;
+    private ShardedAVLTree shardedTree;
+    private AVLTree synchronizedTree;
+    private ConcurrentSkipListMap<Integer, Integer> skipList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (this.implementation) {
+            case "ConcurrentAVLTree":
+                this.concurrentTree = new ConcurrentAVLTree<>();
+                for (int i = 0; i < this.size; i++) {
+                    this.concurrentTree.insert(2 * i, i);
+                }
+                break;
+            case "ShardedAVLTree":
+                //uniform keys, four shards per core
+                BenchKey[] bounds = new BenchKey[4 * Runtime.getRuntime().availableProcessors() - 1];
+                for (int i = 0; i < bounds.length; i++) {
+                    bounds[i] = new BenchKey((int) (2L * this.size * (i + 1) / (bounds.length + 1)));
+                }
+                this.shardedTree = new ShardedAVLTree(bounds);
+                for (int i = 0; i < this.size; i++) {
+                    this.shardedTree.insert(new BenchKey(2 * i));
+                }
+                break;
+            case "SynchronizedAVLTree":
+                this.synchronizedTree = new AVLTree();
+                for (int i = 0; i < this.size; i++) {
+                    this.synchronizedTree.insert(new BenchKey(2 * i));
+                }
+                break;
+            default:
+                this.skipList = new ConcurrentSkipListMap<>();
+                for (int i = 0; i < this.size; i++) {
+                    this.skipList.put(2 * i, i);
+                }
+                break;
+        }
+    }
+
+    @Benchmark
+    public boolean mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(this.size);
+        boolean read = random.nextDouble() < this.readRatio;
+        if (this.concurrentTree != null) {
+            if (read) {
+                return this.concurrentTree.search(2 * index) != null;
+            }
+            //odd key next to the accessed one is inserted or deleted, size stays stable
+            return this.concurrentTree.insert(2 * index + 1, index) || this.concurrentTree.delete(2 * index + 1);
+        } else if (this.shardedTree != null) {
+            if (read) {
+                return this.shardedTree.search(new BenchKey(2 * index)) != null;
+            }
+            return this.shardedTree.insert(new BenchKey(2 * index + 1))
+                    || this.shardedTree.delete(new BenchKey(2 * index + 1));
+        } else if (this.synchronizedTree != null) {
+            synchronized (this.synchronizedTree) {
+                if (read) {
+                    return this.synchronizedTree.search(new BenchKey(2 * index)) != null;
+                }
+                return this.synchronizedTree.insert(new BenchKey(2 * index + 1))
+                        || this.synchronizedTree.delete(new BenchKey(2 * index + 1));
+            }
+        } else {
+            if (read) {
+                return this.skipList.containsKey(2 * index);
+            }
+            return this.skipList.putIfAbsent(2 * index + 1, index) == null || this.skipList.remove(2 * index + 1) != null;
+        }
+    }
+
+    /**
+     * Runs the benchmark with 1, 2, 4, ... threads up to the number of available processors
+     * @param args - optional regular expression of benchmarks to run
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = (args.length > 0) ? args[0] : ConcurrentBenchmark.class.getSimpleName();
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; ; threads = Math.min(2 * threads, processors)) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+}
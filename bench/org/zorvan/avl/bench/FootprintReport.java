@@ -0,0 +1,43 @@
+package org.zorvan.avl.bench;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+import org.zorvan.avl.AVLTree;
+import org.zorvan.avl.CompactAVLTree;
+import org.zorvan.avl.IntAVLTree;
+
+/**
+ * Memory footprint report of the node layouts measured by JOL.
+ * It prints field layout of AVLNode and CompactAVLNode based keys and retained size of whole trees
+ * of the given number of nodes (ant bench-footprint -Dbench.args=1000000).
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class FootprintReport {
+
+    public static void main(String[] args) {
+        int size = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        System.out.println(VM.current().details());
+        System.out.println(ClassLayout.parseClass(BenchKey.class).toPrintable());
+        System.out.println(ClassLayout.parseClass(CompactBenchKey.class).toPrintable());
+
+        AVLTree tree = new AVLTree();
+        CompactAVLTree compactTree = new CompactAVLTree();
+        IntAVLTree intTree = new IntAVLTree(size);
+        for (int i = 0; i < size; i++) {
+            tree.insert(new BenchKey(i));
+            compactTree.insert(new CompactBenchKey(i));
+            intTree.insert(i);
+        }
+
+        System.out.printf("%-16s %14s %14s%n", "layout", "total bytes", "bytes/node");
+        report("AVLTree", GraphLayout.parseInstance(tree).totalSize(), size);
+        report("CompactAVLTree", GraphLayout.parseInstance(compactTree).totalSize(), size);
+        report("IntAVLTree", GraphLayout.parseInstance(intTree).totalSize(), size);
+    }
+
+    private static void report(String name, long totalSize, int size) {
+        System.out.printf("%-16s %14d %14.1f%n", name, totalSize, (double) totalSize / size);
+    }
+}
@@ -0,0 +1,94 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zorvan.avl.AVLTree;
+import org.zorvan.avl.FrozenAVLTree;
+import org.zorvan.avl.FrozenIntAVLTree;
+import org.zorvan.avl.IntAVLTree;
+
+/**
+ * Latency of random search in pointer-based trees and in their frozen Eytzinger layout.
+ * Largest sizes are far beyond the L3 cache, so most levels of the search miss cache.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class FrozenBenchmark {
+
+    @Param({"AVLTree", "FrozenAVLTree", "IntAVLTree", "FrozenIntAVLTree"})
+    public String implementation;
+
+    @Param({"10000", "1000000", "10000000", "50000000"})
+    public int size;
+
+    private AVLTree tree;
+    private FrozenAVLTree frozenTree;
+    private IntAVLTree intTree;
+    private FrozenIntAVLTree frozenIntTree;
+    private int[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (this.implementation) {
+            case "AVLTree":
+            case "FrozenAVLTree":
+                this.tree = new AVLTree();
+                for (int i = 0; i < this.size; i++) {
+                    this.tree.insert(new BenchKey(2 * i));
+                }
+                if (this.implementation.equals("FrozenAVLTree")) {
+                    this.frozenTree = this.tree.freeze();
+                }
+                break;
+            case "IntAVLTree":
+            case "FrozenIntAVLTree":
+                this.intTree = new IntAVLTree(this.size);
+                for (int i = 0; i < this.size; i++) {
+                    this.intTree.insert(2 * i);
+                }
+                if (this.implementation.equals("FrozenIntAVLTree")) {
+                    this.frozenIntTree = this.intTree.freeze();
+                    this.intTree = null;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown implementation: " + this.implementation);
+        }
+        this.keys = KeyDistribution.RANDOM.generate(this.size, TreeState.SEQUENCE_LENGTH, 42);
+        this.cursor = 0;
+    }
+
+    @Benchmark
+    public boolean search() {
+        int key = 2 * this.keys[this.cursor];
+        this.cursor = (this.cursor + 1) & (TreeState.SEQUENCE_LENGTH - 1);
+        //only one implementation is set up in the forked JVM, so the branches are predictable
+        if (this.frozenTree != null) {
+            return this.frozenTree.search(new BenchKey(key)) != null;
+        } else if (this.tree != null) {
+            return this.tree.search(new BenchKey(key)) != null;
+        } else if (this.frozenIntTree != null) {
+            return this.frozenIntTree.search(key);
+        } else {
+            return this.intTree.search(key);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.zorvan.avl.bench;
+
+import java.util.Random;
+
+/**
+ * Distributions of keys accessed by the benchmarks
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public enum KeyDistribution {
+    /**
+     * Keys are accessed one after another in ascending order
+     */
+    SEQUENTIAL,
+    /**
+     * Every key is accessed with the same probability
+     */
+    RANDOM,
+    /**
+     * Few hot keys are accessed most of the time, hot keys are scattered over the key space
+     */
+    ZIPFIAN;
+
+    /**
+     * Method that generates sequence of key indexes
+     * @param n - number of distinct keys, indexes are in interval [0, n)
+     * @param length - length of the sequence
+     * @param seed - seed of the random generator
+     * @return int[] - sequence of key indexes
+     */
+    public int[] generate(int n, int length, long seed) {
+        Random random = new Random(seed);
+        int[] indexes = new int[length];
+        switch (this) {
+            case SEQUENTIAL:
+                for (int i = 0; i < length; i++) {
+                    indexes[i] = i % n;
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < length; i++) {
+                    indexes[i] = random.nextInt(n);
+                }
+                break;
+            default:
+                ZipfianGenerator zipf = new ZipfianGenerator(n, ZipfianGenerator.DEFAULT_THETA, random);
+                for (int i = 0; i < length; i++) {
+                    //scramble ranks so the hot keys are not neighbours in the tree
+                    long hash = zipf.next() * 0x9E3779B97F4A7C15L;
+                    indexes[i] = (int) ((hash >>> 1) % n);
+                }
+                break;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,132 @@
+package org.zorvan.avl.bench;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import org.zorvan.avl.AVLTreeMap;
+import org.zorvan.avl.LatencyHistogram;
+import org.zorvan.avl.server.KeyValueClient;
+import org.zorvan.avl.server.KeyValueServer;
+
+/**
+ * Load generator of KeyValueServer over loopback. Every connection thread sends given number of pipelined
+ * batches of random GET or PUT requests, then waits for their responses. Latency of a request is measured
+ * from the flush of its pipeline to its response, so it includes queueing behind earlier requests.
+ * Run with ant bench-server -Dbench.args="connections depth batch seconds readRatio [port]", without port
+ * the server is started in the same JVM.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class KeyValueLoadGenerator {
+    private static final int KEY_SPACE = 1000000;
+    private static final int VALUE_SIZE = 64;
+
+    /**
+     * @param args - connections (4), pipeline depth (16), keys per batch (16), seconds (10), read ratio (0.9)
+     * and port of running server on loopback (embedded server by default)
+     * @throws Exception if the connection fails or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int connections = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+        final int depth = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+        final int batch = (args.length > 2) ? Integer.parseInt(args[2]) : 16;
+        int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+        final double readRatio = (args.length > 4) ? Double.parseDouble(args[4]) : 0.9;
+
+        KeyValueServer server = null;
+        final InetSocketAddress address;
+        if (args.length > 5) {
+            address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[5]));
+        } else {
+            server = new KeyValueServer(new AVLTreeMap<Long, byte[]>(),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            address = server.getAddress();
+        }
+        try {
+            preload(address, batch);
+            //first second warms up the JIT and is not measured
+            run(address, connections, depth, batch, 1, readRatio);
+            long start = System.nanoTime();
+            LatencyHistogram histogram = run(address, connections, depth, batch, seconds, readRatio);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("connections=%d depth=%d batch=%d readRatio=%.2f%n", connections, depth, batch, readRatio);
+            System.out.printf("%.0f requests/s, %.0f keys/s%n", histogram.getTotalCount() / elapsed,
+                    histogram.getTotalCount() * batch / elapsed);
+            System.out.println("latency " + histogram);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static void preload(InetSocketAddress address, int batch) throws IOException {
+        try (KeyValueClient client = new KeyValueClient(address)) {
+            long[] keys = new long[1000];
+            byte[][] values = new byte[keys.length][];
+            for (int from = 0; from < KEY_SPACE; from += keys.length) {
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = from + i;
+                    values[i] = new byte[VALUE_SIZE];
+                }
+                client.sendPut(keys, values);
+            }
+            //the last reply waits for all puts
+            client.sendGet(0).get();
+        }
+    }
+
+    private static LatencyHistogram run(final InetSocketAddress address, int connections, final int depth,
+            final int batch, int seconds, final double readRatio) throws Exception {
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final LatencyHistogram[] histograms = new LatencyHistogram[connections];
+        final IOException[] failures = new IOException[connections];
+        Thread[] threads = new Thread[connections];
+        for (int c = 0; c < connections; c++) {
+            final int connection = c;
+            histograms[c] = new LatencyHistogram();
+            threads[c] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    KeyValueClient.Reply<?>[] replies = new KeyValueClient.Reply<?>[depth];
+                    byte[][] values = new byte[batch][];
+                    for (int i = 0; i < batch; i++) {
+                        values[i] = new byte[VALUE_SIZE];
+                    }
+                    try (KeyValueClient client = new KeyValueClient(address)) {
+                        while (System.nanoTime() < deadline) {
+                            for (int r = 0; r < depth; r++) {
+                                long[] keys = new long[batch];
+                                for (int i = 0; i < batch; i++) {
+                                    keys[i] = random.nextInt(KEY_SPACE);
+                                }
+                                replies[r] = (random.nextDouble() < readRatio) ? client.sendGet(keys)
+                                        : client.sendPut(keys, values);
+                            }
+                            long sent = System.nanoTime();
+                            client.flush();
+                            for (KeyValueClient.Reply<?> reply : replies) {
+                                reply.get();
+                                histograms[connection].record(System.nanoTime() - sent);
+                            }
+                        }
+                    } catch (IOException e) {
+                        failures[connection] = e;
+                    }
+                }
+            }, "load-" + c);
+            threads[c].start();
+        }
+        LatencyHistogram total = new LatencyHistogram();
+        for (int c = 0; c < connections; c++) {
+            threads[c].join();
+            if (failures[c] != null) {
+                throw failures[c];
+            }
+            total.add(histograms[c]);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,56 @@
+package org.zorvan.avl.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mixed workload where given fraction of operations are searches and the rest are writes
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class MixedBenchmark {
+
+    @Param({"0.5", "0.9", "0.95", "0.99"})
+    public double readRatio;
+
+    private boolean[] reads;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        this.reads = new boolean[TreeState.SEQUENCE_LENGTH];
+        for (int i = 0; i < this.reads.length; i++) {
+            this.reads[i] = random.nextDouble() < this.readRatio;
+        }
+        this.cursor = 0;
+    }
+
+    @Benchmark
+    public boolean mixed(TreeState state) {
+        boolean read = this.reads[this.cursor];
+        this.cursor = (this.cursor + 1) & (TreeState.SEQUENCE_LENGTH - 1);
+        int index = state.nextIndex();
+        if (read) {
+            return state.set.search(2 * index);
+        }
+        return state.write(index);
+    }
+}
@@ -0,0 +1,41 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single operation throughput of search, insert and delete
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class OperationBenchmark {
+
+    @Benchmark
+    public boolean search(TreeState state) {
+        return state.set.search(2 * state.nextIndex());
+    }
+
+    @Benchmark
+    public boolean insertDelete(TreeState state) {
+        return state.write(state.nextIndex());
+    }
+
+    @Benchmark
+    public boolean deleteInsert(TreeState state) {
+        int key = 2 * state.nextIndex();
+        //delete present key and put it back, measures deletion of inner nodes
+        boolean deleted = state.set.delete(key);
+        state.set.insert(key);
+        return deleted;
+    }
+}
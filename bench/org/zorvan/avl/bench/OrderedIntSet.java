@@ -0,0 +1,135 @@
+package org.zorvan.avl.bench;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.zorvan.avl.AVLTree;
+import org.zorvan.avl.AVLTreeMap;
+import org.zorvan.avl.IntAVLTree;
+
+/**
+ * Common view of benchmarked ordered sets of int keys.
+ * JMH forks new JVM for every parameter combination so only one implementation
+ * is loaded in the benchmark and calls through this interface stay monomorphic.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public abstract class OrderedIntSet {
+
+    public abstract boolean insert(int key);
+
+    public abstract boolean search(int key);
+
+    public abstract boolean delete(int key);
+
+    /**
+     * Inorder traversal of the whole set
+     * @return int - number of traversed keys
+     */
+    public abstract int inorder();
+
+    /**
+     * Method that creates set of given implementation
+     * @param implementation - AVLTree, IntAVLTree, AVLTreeMap, TreeMap or ConcurrentSkipListMap
+     * @return OrderedIntSet - new empty set
+     */
+    public static OrderedIntSet create(String implementation) {
+        switch (implementation) {
+            case "AVLTree":
+                return new AVLTreeSet();
+            case "IntAVLTree":
+                return new IntAVLTreeSet();
+            case "AVLTreeMap":
+                return new MapSet(new AVLTreeMap<Integer, Boolean>());
+            case "TreeMap":
+                return new MapSet(new TreeMap<Integer, Boolean>());
+            case "ConcurrentSkipListMap":
+                return new MapSet(new ConcurrentSkipListMap<Integer, Boolean>());
+            default:
+                throw new IllegalArgumentException("Unknown implementation: " + implementation);
+        }
+    }
+
+    static final class AVLTreeSet extends OrderedIntSet {
+        final AVLTree tree = new AVLTree();
+
+        @Override
+        public boolean insert(int key) {
+            return this.tree.insert(new BenchKey(key));
+        }
+
+        @Override
+        public boolean search(int key) {
+            return this.tree.search(new BenchKey(key)) != null;
+        }
+
+        @Override
+        public boolean delete(int key) {
+            return this.tree.delete(new BenchKey(key));
+        }
+
+        @Override
+        public int inorder() {
+            return this.tree.inorder(this.tree.getRoot()).size();
+        }
+    }
+
+    static final class IntAVLTreeSet extends OrderedIntSet {
+        final IntAVLTree tree = new IntAVLTree();
+
+        @Override
+        public boolean insert(int key) {
+            return this.tree.insert(key);
+        }
+
+        @Override
+        public boolean search(int key) {
+            return this.tree.search(key);
+        }
+
+        @Override
+        public boolean delete(int key) {
+            return this.tree.delete(key);
+        }
+
+        @Override
+        public int inorder() {
+            return this.tree.inorder().length;
+        }
+    }
+
+    static final class MapSet extends OrderedIntSet {
+        final NavigableMap<Integer, Boolean> map;
+
+        MapSet(NavigableMap<Integer, Boolean> map) {
+            this.map = map;
+        }
+
+        @Override
+        public boolean insert(int key) {
+            return this.map.put(key, Boolean.TRUE) == null;
+        }
+
+        @Override
+        public boolean search(int key) {
+            return this.map.containsKey(key);
+        }
+
+        @Override
+        public boolean delete(int key) {
+            return this.map.remove(key) != null;
+        }
+
+        @Override
+        public int inorder() {
+            //materialize the keys the same way AVLTree.inorder does
+            LinkedList<Integer> list = new LinkedList<>();
+            for (Map.Entry<Integer, Boolean> entry : this.map.entrySet()) {
+                list.add(entry.getKey());
+            }
+            return list.size();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zorvan.avl.AVLNode;
+import org.zorvan.avl.AVLTree;
+
+/**
+ * Aggregate scan of the whole AVLTree by sequential iterator, sequential and parallel stream
+ * and fork-join reduce. Parallel variants use all available cores.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class ParallelTraversalBenchmark {
+
+    @Param({"100000", "1000000", "10000000"})
+    public int size;
+
+    private AVLTree tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.tree = new AVLTree();
+        for (int i = 0; i < this.size; i++) {
+            this.tree.insert(new BenchKey(i));
+        }
+    }
+
+    @Benchmark
+    public long iterator() {
+        long sum = 0;
+        for (AVLNode node : this.tree) {
+            sum += node.getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long stream() {
+        return this.tree.stream().mapToLong(node -> node.getValue()).sum();
+    }
+
+    @Benchmark
+    public long parallelStream() {
+        return this.tree.parallelStream().mapToLong(node -> node.getValue()).sum();
+    }
+
+    @Benchmark
+    public long parallelReduce() {
+        return this.tree.parallelReduce(0L, node -> (long) node.getValue(), Long::sum);
+    }
+}
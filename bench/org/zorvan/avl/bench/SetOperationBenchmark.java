@@ -0,0 +1,110 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zorvan.avl.AVLTree;
+
+/**
+ * Merge of a delta tree into a big tree: join/split based parallel union and batch insertion
+ * against insertion of every node of the delta. Set operations consume their trees, so both trees are rebuilt
+ * before every invocation by linear bulk construction which is not measured.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class SetOperationBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int size;
+
+    @Param({"1000", "100000", "1000000"})
+    public int deltaSize;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private BenchKey[] masterKeys;
+    private BenchKey[] deltaKeys;
+    private BenchKey[] insertedKeys; //separate nodes for insertion, nodes of the delta tree are linked
+    private AVLTree master;
+    private AVLTree delta;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        this.pool = new ForkJoinPool(this.threads);
+        //master has even keys, delta is spread over the whole master range
+        this.masterKeys = new BenchKey[this.size];
+        for (int i = 0; i < this.size; i++) {
+            this.masterKeys[i] = new BenchKey(2 * i);
+        }
+        this.deltaKeys = new BenchKey[this.deltaSize];
+        this.insertedKeys = new BenchKey[this.deltaSize];
+        long step = (2L * this.size) / this.deltaSize;
+        for (int i = 0; i < this.deltaSize; i++) {
+            this.deltaKeys[i] = new BenchKey((int) (i * step + 1));
+            this.insertedKeys[i] = new BenchKey((int) (i * step + 1));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpTrees() {
+        this.master = new AVLTree();
+        this.master.buildFromSorted(this.masterKeys);
+        this.delta = new AVLTree();
+        this.delta.buildFromSorted(this.deltaKeys);
+        //nodes inserted by the previous invocation must not keep their old sons
+        for (BenchKey key : this.insertedKeys) {
+            key.setLeft(null);
+            key.setRight(null);
+            key.setParent(null);
+            key.setNodeHeights();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    public AVLTree union() {
+        return AVLTree.union(this.master, this.delta, this.pool);
+    }
+
+    @Benchmark
+    public AVLTree difference() {
+        return AVLTree.difference(this.master, this.delta, this.pool);
+    }
+
+    @Benchmark
+    public AVLTree insertEach() {
+        for (BenchKey key : this.insertedKeys) {
+            this.master.insert(key);
+        }
+        return this.master;
+    }
+
+    @Benchmark
+    public boolean[] insertAll() {
+        return this.master.insertAll(this.insertedKeys);
+    }
+}
@@ -0,0 +1,87 @@
+package org.zorvan.avl.bench;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.zorvan.avl.AVLNodeCodec;
+import org.zorvan.avl.TraceReplay;
+import org.zorvan.avl.WorkloadTrace;
+
+/**
+ * Replays workload trace of BenchKey nodes (recorded by TracingAVLTree with CODEC) against the benchmarked
+ * implementations and prints latency percentiles, throughput and allocation of every replay.
+ * First replays of every implementation warm up the JIT and only the last one is reported.
+ * Run with ant bench-replay -Dbench.args="trace-file [implementations] [replays]".
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TraceReplayTool {
+
+    /**
+     * Codec of BenchKey nodes, one int per key
+     */
+    public static final AVLNodeCodec<BenchKey> CODEC = new AVLNodeCodec<BenchKey>() {
+        @Override
+        public void write(BenchKey node, DataOutput out) throws IOException {
+            out.writeInt(node.getValue());
+        }
+
+        @Override
+        public BenchKey read(DataInput in) throws IOException {
+            return new BenchKey(in.readInt());
+        }
+    };
+
+    /**
+     * @param args - trace file, comma separated implementations of OrderedIntSet (default all)
+     * and number of replays of every implementation (default 5)
+     * @throws IOException if the trace can not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: TraceReplayTool trace-file [AVLTree,IntAVLTree,AVLTreeMap,TreeMap,ConcurrentSkipListMap] [replays]");
+            System.exit(2);
+        }
+        Path trace = Paths.get(args[0]);
+        String[] implementations = (args.length > 1) ? args[1].split(",")
+                : new String[] {"AVLTree", "IntAVLTree", "AVLTreeMap", "TreeMap", "ConcurrentSkipListMap"};
+        int replays = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        for (String implementation : implementations) {
+            TraceReplay.Result result = null;
+            for (int i = 0; i < replays; i++) {
+                //nodes of the trace get linked to the replayed tree, so every replay reads the trace again
+                result = TraceReplay.replay(WorkloadTrace.read(trace, CODEC), target(OrderedIntSet.create(implementation)));
+            }
+            System.out.println(implementation);
+            System.out.println(result);
+        }
+    }
+
+    private static TraceReplay.Target<BenchKey> target(final OrderedIntSet set) {
+        return new TraceReplay.Target<BenchKey>() {
+            @Override
+            public boolean insert(BenchKey node) {
+                return set.insert(node.getValue());
+            }
+
+            @Override
+            public boolean search(BenchKey node) {
+                return set.search(node.getValue());
+            }
+
+            @Override
+            public boolean delete(BenchKey node) {
+                return set.delete(node.getValue());
+            }
+
+            @Override
+            public int inorder(BenchKey from) {
+                //OrderedIntSet traverses only the whole set
+                return set.inorder();
+            }
+        };
+    }
+}
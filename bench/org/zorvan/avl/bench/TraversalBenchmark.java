@@ -0,0 +1,51 @@
+package org.zorvan.avl.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full inorder traversal of the tree.
+ * Traversals materialize the whole tree so the sizes are smaller than in other benchmarks.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+public class TraversalBenchmark {
+
+    @Param({"AVLTree", "IntAVLTree", "AVLTreeMap", "TreeMap", "ConcurrentSkipListMap"})
+    public String implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private OrderedIntSet set;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.set = OrderedIntSet.create(this.implementation);
+        for (int i = 0; i < this.size; i++) {
+            this.set.insert(i);
+        }
+    }
+
+    @Benchmark
+    public int inorder() {
+        return this.set.inorder();
+    }
+}
@@ -0,0 +1,67 @@
+package org.zorvan.avl.bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark state with populated tree and pregenerated sequence of accessed keys.
+ * Tree holds even keys 0, 2, ..., 2 * (size - 1), odd keys are never present
+ * and are used by write operations.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+@State(Scope.Thread)
+public class TreeState {
+    static final int SEQUENCE_LENGTH = 1 << 20;
+
+    @Param({"AVLTree", "IntAVLTree", "AVLTreeMap", "TreeMap", "ConcurrentSkipListMap"})
+    public String implementation;
+
+    @Param({"SEQUENTIAL", "RANDOM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000", "100000000"})
+    public int size;
+
+    OrderedIntSet set;
+    int[] keys;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.set = OrderedIntSet.create(this.implementation);
+        for (int i = 0; i < this.size; i++) {
+            this.set.insert(2 * i);
+        }
+        this.keys = this.distribution.generate(this.size, SEQUENCE_LENGTH, 42);
+        this.cursor = 0;
+    }
+
+    /**
+     * Method that returns index of the next accessed key
+     * @return int index in interval [0, size)
+     */
+    int nextIndex() {
+        int index = this.keys[this.cursor];
+        this.cursor = (this.cursor + 1) & (SEQUENCE_LENGTH - 1);
+        return index;
+    }
+
+    /**
+     * Write operation that keeps the size of the tree stable:
+     * odd key next to the accessed one is inserted, or deleted if it is already present
+     * @param index - index of the accessed key
+     * @return true - if the key was inserted, false - if it was deleted
+     */
+    boolean write(int index) {
+        int key = 2 * index + 1;
+        if (this.set.insert(key)) {
+            return true;
+        }
+        this.set.delete(key);
+        return false;
+    }
+}
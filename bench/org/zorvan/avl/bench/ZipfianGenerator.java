@@ -0,0 +1,59 @@
+package org.zorvan.avl.bench;
+
+import java.util.Random;
+
+/**
+ * Generator of Zipf distributed ranks in interval [0, n) as described by Gray et al.
+ * in "Quickly Generating Billion-Record Synthetic Databases" (also used by YCSB).
+ * Rank 0 is the most popular one.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class ZipfianGenerator {
+    public static final double DEFAULT_THETA = 0.99;
+
+    private final long n;
+    private final double theta, alpha, zetan, eta;
+    private final Random random;
+
+    /**
+     * Constructor of the ZipfianGenerator class
+     * @param n - number of ranks
+     * @param theta - skew of the distribution, 0 &lt; theta &lt; 1
+     * @param random - source of uniform random numbers
+     */
+    public ZipfianGenerator(long n, double theta, Random random) {
+        this.n = n;
+        this.theta = theta;
+        this.random = random;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetan = zeta(n, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / this.zetan);
+    }
+
+    /**
+     * Method that returns next rank
+     * @return long rank in interval [0, n)
+     */
+    public long next() {
+        double u = this.random.nextDouble();
+        double uz = u * this.zetan;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, this.theta)) {
+            return 1;
+        }
+        long rank = (long) (this.n * Math.pow(this.eta * u - this.eta + 1, this.alpha));
+        return (rank >= this.n) ? this.n - 1 : rank;
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,213 @@
+package org.zorvan.avl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class represents multiset (bag) stored in AVL tree of MultisetNode nodes.
+ * Equal keys are not rejected but counted in the existing node, so repeated keys cost one node each.
+ * Methods add and remove work with occurrences, inherited insert and delete work with whole nodes
+ * (delete removes all occurrences). Inherited size, rank, select and iterators count distinct keys,
+ * getTotalCount, rankOf, selectOccurrence, countOccurrences and occurrenceIterator count occurrences.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class AVLMultiset extends AVLTree {
+
+    /**
+     * Method that adds one occurrence of the key
+     * @param node - node with the key, it is inserted if the key is not present yet
+     * @return int number of occurrences before the addition
+     */
+    public int add(MultisetNode node) {
+        return this.add(node, 1);
+    }
+
+    /**
+     * Method that adds occurrences of the key
+     * @param node - node with the key, it is inserted if the key is not present yet
+     * @param occurrences - number of added occurrences, positive
+     * @return int number of occurrences before the addition
+     * @throws IllegalArgumentException if the number of occurrences is not positive or the count overflows
+     */
+    public int add(MultisetNode node, int occurrences) {
+        if (occurrences <= 0) {
+            throw new IllegalArgumentException("Illegal number of occurrences: " + occurrences);
+        }
+        //repeated keys are the common case, so the present node is searched first
+        MultisetNode present = (MultisetNode) this.search(node);
+        if (present == null) {
+            node.setCount(occurrences);
+            this.insert(node);
+            return 0;
+        }
+        int count = present.getCount();
+        if (count > Integer.MAX_VALUE - occurrences) {
+            throw new IllegalArgumentException("Too many occurrences of " + node);
+        }
+        present.setCount(count + occurrences);
+        recountPath(present);
+        return count;
+    }
+
+    /**
+     * Method that removes one occurrence of the key
+     * @param node - node equal to the key
+     * @return int number of occurrences before the removal
+     */
+    public int remove(AVLNode node) {
+        return this.remove(node, 1);
+    }
+
+    /**
+     * Method that removes occurrences of the key, the node is deleted when its last occurrence is removed
+     * @param node - node equal to the key
+     * @param occurrences - number of removed occurrences, positive
+     * @return int number of occurrences before the removal
+     * @throws IllegalArgumentException if the number of occurrences is not positive
+     */
+    public int remove(AVLNode node, int occurrences) {
+        if (occurrences <= 0) {
+            throw new IllegalArgumentException("Illegal number of occurrences: " + occurrences);
+        }
+        MultisetNode present = (MultisetNode) this.search(node);
+        if (present == null) {
+            return 0;
+        }
+        int count = present.getCount();
+        if (count > occurrences) {
+            present.setCount(count - occurrences);
+            recountPath(present);
+        } else {
+            this.delete(present);
+        }
+        return count;
+    }
+
+    /**
+     * Method that returns number of occurrences of the key
+     * @param node - node equal to the key
+     * @return int number of occurrences, 0 if the key is not present
+     */
+    public int count(AVLNode node) {
+        MultisetNode present = (MultisetNode) this.search(node);
+        return (present == null) ? 0 : present.getCount();
+    }
+
+    /**
+     * Method that returns number of all occurrences in O(1) time
+     * @return long number of occurrences
+     */
+    public long getTotalCount() {
+        return subtreeCount(this.getRoot());
+    }
+
+    /**
+     * Method that returns number of occurrences less than the given node in O(log n) time
+     * @param node - bound, does not need to be present
+     * @return long number of occurrences of lesser keys
+     */
+    public long rankOf(AVLNode node) {
+        return this.countLess(node, false);
+    }
+
+    /**
+     * Method that returns node of the occurrence with given index in the sorted sequence of all occurrences
+     * @param index - zero based index of the occurrence
+     * @return MultisetNode - node of the occurrence
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the total count
+     */
+    public MultisetNode selectOccurrence(long index) {
+        if (index < 0 || index >= this.getTotalCount()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", total count: " + this.getTotalCount());
+        }
+        MultisetNode activeNode = (MultisetNode) this.getRoot();
+        while (true) {
+            long leftCount = subtreeCount(activeNode.getLeft());
+            if (index < leftCount) {
+                activeNode = (MultisetNode) activeNode.getLeft();
+            } else if (index < leftCount + activeNode.getCount()) {
+                return activeNode;
+            } else {
+                index -= leftCount + activeNode.getCount();
+                activeNode = (MultisetNode) activeNode.getRight();
+            }
+        }
+    }
+
+    /**
+     * Method that counts occurrences between two bounds in O(log n) time, both bounds are inclusive
+     * @param low - low bound, does not need to be present
+     * @param high - high bound, does not need to be present
+     * @return long number of occurrences in the range, 0 if low bound is greater than high bound
+     */
+    public long countOccurrences(AVLNode low, AVLNode high) {
+        long count = this.countLess(high, true) - this.countLess(low, false);
+        return (count > 0) ? count : 0;
+    }
+
+    /**
+     * Method that returns ascending iterator which returns every node as many times as its count
+     * @return Iterator - lazy iterator of the occurrences
+     */
+    public Iterator<AVLNode> occurrenceIterator() {
+        final Iterator<AVLNode> nodes = this.iterator();
+        return new Iterator<AVLNode>() {
+            private AVLNode node;
+            private int remaining;
+
+            @Override
+            public boolean hasNext() {
+                return this.remaining > 0 || nodes.hasNext();
+            }
+
+            @Override
+            public AVLNode next() {
+                if (this.remaining == 0) {
+                    if (!nodes.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.node = nodes.next();
+                    this.remaining = ((MultisetNode) this.node).getCount();
+                }
+                this.remaining--;
+                return this.node;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Method that counts occurrences less than (or equal to) given node
+     */
+    @SuppressWarnings("unchecked")
+    private long countLess(AVLNode node, boolean inclusive) {
+        MultisetNode activeNode = (MultisetNode) this.getRoot();
+        long count = 0;
+        while (activeNode != null) {
+            int comparison = activeNode.compareTo(node);
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                //active node and its left subtree are counted
+                count += subtreeCount(activeNode.getLeft()) + activeNode.getCount();
+                activeNode = (MultisetNode) activeNode.getRight();
+            } else {
+                activeNode = (MultisetNode) activeNode.getLeft();
+            }
+        }
+        return count;
+    }
+
+    private static void recountPath(MultisetNode node) {
+        for (AVLNode activeNode = node; activeNode != null; activeNode = activeNode.getParent()) {
+            ((MultisetNode) activeNode).recount();
+        }
+    }
+
+    private static long subtreeCount(AVLNode node) {
+        return (node == null) ? 0 : ((MultisetNode) node).getSubtreeCount();
+    }
+}
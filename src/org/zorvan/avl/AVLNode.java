@@ -9,6 +9,7 @@ package org.zorvan.avl;
 public abstract class AVLNode<T> {
     private AVLNode left, right, parent; //left, right and parent node of the particular node
     private int leftHeight, rightHeight; //left and right height of the node
+    private int subtreeSize; //number of nodes in the subtree of the node including the node itself
 
     public AVLNode() {
         this.left = null;
@@ -16,6 +17,7 @@ public abstract class AVLNode<T> {
         this.parent = null;
         this.leftHeight = 0;
         this.rightHeight = 0;
+        this.subtreeSize = 1;
     }
     
     /**
@@ -35,20 +37,24 @@ public abstract class AVLNode<T> {
     }
     
     /**
-     * Method to set node heights after rotation is performed
+     * Method to set node heights and subtree size after rotation is performed
      */
     public void setNodeHeights() {
+        int size = 1;
         if (this.right == null) {
             this.rightHeight = 0;
         } else {
             this.rightHeight = this.right.nodeHeight() + 1;
+            size += this.right.subtreeSize;
         }
         
         if (this.left == null) {
             this.leftHeight = 0;
         } else {
             this.leftHeight = this.left.nodeHeight() + 1;
+            size += this.left.subtreeSize;
         }
+        this.subtreeSize = size;
     }
     
     /**
@@ -107,5 +113,13 @@ public abstract class AVLNode<T> {
     public void setRightHeight(int rightHeight) {
         this.rightHeight = rightHeight;
     }
+
+    public int getSubtreeSize() {
+        return subtreeSize;
+    }
+
+    public void setSubtreeSize(int subtreeSize) {
+        this.subtreeSize = subtreeSize;
+    }
     //</editor-fold>
 }
\ No newline at end of file
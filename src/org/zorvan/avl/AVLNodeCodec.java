@@ -0,0 +1,30 @@
+package org.zorvan.avl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface for binary encoding of the nodes of user AVLNode subclasses, used by AVLTreeSnapshot
+ * Codec writes only content of the node (keys and values), tree structure is not stored.
+ * @param <T> - type of the encoded nodes
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public interface AVLNodeCodec<T extends AVLNode> {
+
+    /**
+     * Method that writes content of the node
+     * @param node - written node
+     * @param out - output of the snapshot
+     * @throws IOException if the output fails
+     */
+    void write(T node, DataOutput out) throws IOException;
+
+    /**
+     * Method that reads content of the node and creates new node
+     * @param in - input of the snapshot
+     * @return T - new node which is not linked to any tree
+     * @throws IOException if the input fails or it is malformed
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -1,14 +1,32 @@
 package org.zorvan.avl;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Stack;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class represents standalone AVL tree with necessary functionality.
  * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
  */
-public class AVLTree {
+public class AVLTree implements Iterable<AVLNode> {
     private AVLNode root;
+    private int modCount; //number of structural modifications, used by iterators to detect concurrent modification
+    private static final int PARALLEL_THRESHOLD = 1 << 13; //smaller set operations and traversals are not split into parallel tasks
+    private final AVLTreeMetrics metrics = AVLTreeMetrics.ENABLED ? new AVLTreeMetrics(this) : null;
     
     /**
      * Constructor of the AVLTree class 
@@ -23,6 +41,16 @@ public class AVLTree {
      * @return found node or null if node is not present in the tree
      */
     public AVLNode search(AVLNode node) {
+        if (!AVLTreeMetrics.ENABLED) {
+            return this.searchNode(node);
+        }
+        long start = System.nanoTime();
+        AVLNode foundNode = this.searchNode(node);
+        this.metrics.operationFinished(start);
+        return foundNode;
+    }
+    
+    private AVLNode searchNode(AVLNode node) {
         AVLNode activeNode = this.root;
         
         //if the root is null there is no tree to search
@@ -31,10 +59,10 @@ public class AVLTree {
         }
         
         while (activeNode != null) {
-            if (node.compareTo(activeNode) == 0) {
+            if (this.compare(node, activeNode) == 0) {
                 //wanted node found
                 return activeNode;
-            } else if (activeNode.compareTo(node) <= -1) {
+            } else if (this.compare(activeNode, node) <= -1) {
                 activeNode = activeNode.getRight();
             } else {
                 activeNode = activeNode.getLeft();
@@ -49,17 +77,29 @@ public class AVLTree {
      * @return true - if node was inserted, false - if node was not inserted
      */
     public boolean insert(AVLNode node) {
+        if (!AVLTreeMetrics.ENABLED) {
+            return this.insertNode(node);
+        }
+        long start = System.nanoTime();
+        boolean inserted = this.insertNode(node);
+        this.metrics.operationFinished(start);
+        return inserted;
+    }
+    
+    private boolean insertNode(AVLNode node) {
         //if there is no root the inserted node becomes root of the tree
         if (this.root == null) {
             this.root = node;
+            node.setNodeHeights();
+            this.modCount++;
             return true;
         } else {
             AVLNode activeNode = this.root;
             
             while (true) {
-                if (node.compareTo(activeNode) == 0) {
+                if (this.compare(node, activeNode) == 0) {
                     return false; //node alredy exists in the tree
-                } else if (node.compareTo(activeNode) >= 1) {
+                } else if (this.compare(node, activeNode) >= 1) {
                     //going to right subtree
                     if (activeNode.getRight() == null) {
                         activeNode.setRight(node);
@@ -68,6 +108,7 @@ public class AVLTree {
                         //reset node heights, detect rotation and get next node
                         this.resetHeightDetectRotation(node);
                         
+                        this.modCount++;
                         return true;
                     } else {
                         activeNode = activeNode.getRight();
@@ -81,6 +122,7 @@ public class AVLTree {
                         //reset node heights, detect rotation and get next node
                         this.resetHeightDetectRotation(node);
                         
+                        this.modCount++;
                         return true;
                     } else {
                         activeNode = activeNode.getLeft();
@@ -96,7 +138,17 @@ public class AVLTree {
      * @return true - if the node was deleted, false - if the node was not deleted or error occurs 
      */
     public boolean delete(AVLNode node) {
-        AVLNode nodeToRemove = this.search(node); //find out if deleting node is present in the tree
+        if (!AVLTreeMetrics.ENABLED) {
+            return this.deleteNode(node);
+        }
+        long start = System.nanoTime();
+        boolean deleted = this.deleteNode(node);
+        this.metrics.operationFinished(start);
+        return deleted;
+    }
+    
+    private boolean deleteNode(AVLNode node) {
+        AVLNode nodeToRemove = this.searchNode(node); //find out if deleting node is present in the tree
         AVLNode nodeToRemoveParent; //parent of the deleting node
         
         if (nodeToRemove != null) {
@@ -230,11 +282,950 @@ public class AVLTree {
                 nodeToRemove.setLeft(null);
                 nodeToRemove.setRight(null);
             }
-        } else {
-            //deleting node is not present in tree
-            return false;
+        } else {
+            //deleting node is not present in tree
+            return false;
+        }
+        this.modCount++;
+        return true;
+    }
+    
+    /**
+     * Bulk construction of the tree from array of nodes
+     * Current content of the tree is replaced by perfectly balanced tree built in linear time
+     * without any rotation. If the nodes are not in ascending order, they are sorted first
+     * (the given array is not modified).
+     * @param nodes - nodes the tree is built from
+     * @throws IllegalArgumentException if two nodes are equal
+     */
+    public void buildFromSorted(AVLNode[] nodes) {
+        if (!isAscending(nodes)) {
+            nodes = nodes.clone();
+            Arrays.sort(nodes, new Comparator<AVLNode>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public int compare(AVLNode o1, AVLNode o2) {
+                    return o1.compareTo(o2);
+                }
+            });
+            if (!isAscending(nodes)) {
+                throw new IllegalArgumentException("Nodes contain duplicates");
+            }
+        }
+        this.root = buildFromSorted(nodes, 0, nodes.length - 1, null);
+        this.modCount++;
+    }
+
+    /**
+     * Bulk construction of the tree from collection of nodes in ascending order
+     * @param nodes - nodes the tree is built from, iterated in ascending order
+     * @throws IllegalArgumentException if the nodes are not in strictly ascending order
+     * @see #buildFromSorted(java.util.Iterator, int)
+     */
+    public void buildFromSorted(Collection<? extends AVLNode> nodes) {
+        this.buildFromSorted(nodes.iterator(), nodes.size());
+    }
+
+    /**
+     * Bulk construction of the tree from iterator of nodes in ascending order
+     * Current content of the tree is replaced by perfectly balanced tree built in linear time
+     * without any rotation. Nodes are consumed as they come, so the input does not need to be
+     * materialized. Unsorted input can not be sorted without materializing and is rejected.
+     * @param nodes - iterator of nodes in strictly ascending order
+     * @param size - number of nodes the iterator returns
+     * @throws IllegalArgumentException if the nodes are not in strictly ascending order
+     * or the iterator does not return exactly size nodes
+     */
+    public void buildFromSorted(Iterator<? extends AVLNode> nodes, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Illegal size: " + size);
+        }
+        SortedNodeSource source = new SortedNodeSource(nodes);
+        AVLNode newRoot = buildFromSorted(source, size, null);
+        if (nodes.hasNext()) {
+            throw new IllegalArgumentException("Iterator returns more than " + size + " nodes");
+        }
+        this.root = newRoot;
+        this.modCount++;
+    }
+
+    /**
+     * Method that builds balanced subtree from the part of sorted array
+     * @param nodes - sorted nodes
+     * @param low - index of the first node of the subtree
+     * @param high - index of the last node of the subtree
+     * @param parent - parent of the subtree root
+     * @return AVLNode - root of the subtree or null if the subtree is empty
+     */
+    private static AVLNode buildFromSorted(AVLNode[] nodes, int low, int high, AVLNode parent) {
+        if (low > high) {
+            return null;
+        }
+        int middle = (low + high) >>> 1;
+        AVLNode node = nodes[middle];
+        node.setParent(parent);
+        node.setLeft(buildFromSorted(nodes, low, middle - 1, node));
+        node.setRight(buildFromSorted(nodes, middle + 1, high, node));
+        //sons are complete so the heights can be set directly
+        node.setNodeHeights();
+        return node;
+    }
+
+    /**
+     * Method that builds balanced subtree of given size from the sorted source
+     * Left subtree is built first so the nodes are consumed in ascending order
+     * @param source - sorted source of nodes
+     * @param size - number of nodes in the subtree
+     * @param parent - parent of the subtree root
+     * @return AVLNode - root of the subtree or null if the subtree is empty
+     */
+    private static AVLNode buildFromSorted(SortedNodeSource source, int size, AVLNode parent) {
+        if (size == 0) {
+            return null;
+        }
+        int leftSize = (size - 1) >>> 1;
+        AVLNode left = buildFromSorted(source, leftSize, null);
+        AVLNode node = source.next();
+        node.setParent(parent);
+        node.setLeft(left);
+        if (left != null) {
+            left.setParent(node);
+        }
+        node.setRight(buildFromSorted(source, size - 1 - leftSize, node));
+        //sons are complete so the heights can be set directly
+        node.setNodeHeights();
+        return node;
+    }
+
+    /**
+     * Method that checks if the nodes are in strictly ascending order
+     * @param nodes - checked nodes
+     * @return true - if every node is greater than the previous one
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean isAscending(AVLNode[] nodes) {
+        for (int i = 1; i < nodes.length; i++) {
+            if (nodes[i - 1].compareTo(nodes[i]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Iterator wrapper that checks the nodes come in strictly ascending order
+     */
+    private static final class SortedNodeSource {
+        private final Iterator<? extends AVLNode> nodes;
+        private AVLNode previous;
+
+        SortedNodeSource(Iterator<? extends AVLNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        @SuppressWarnings("unchecked")
+        AVLNode next() {
+            if (!this.nodes.hasNext()) {
+                throw new IllegalArgumentException("Iterator returns less nodes than expected");
+            }
+            AVLNode node = this.nodes.next();
+            if (this.previous != null && this.previous.compareTo(node) >= 0) {
+                throw new IllegalArgumentException("Nodes are not in strictly ascending order: "
+                        + this.previous + ", " + node);
+            }
+            this.previous = node;
+            return node;
+        }
+    }
+
+    /**
+     * Method that turns the tree into immutable array-based FrozenAVLTree for read-mostly phases
+     * Nodes are moved, not copied, so the tree becomes empty. FrozenAVLTree.thaw() builds mutable tree again.
+     * @return FrozenAVLTree - frozen tree with all the nodes
+     */
+    public FrozenAVLTree freeze() {
+        AVLNode[] nodes = new AVLNode[this.size()];
+        int i = 0;
+        for (AVLNode node : this) {
+            nodes[i++] = node;
+        }
+        this.takeRoot();
+        return new FrozenAVLTree(nodes);
+    }
+
+    /**
+     * Method that joins two trees and the node between them into a new tree in O(|h(left) - h(right)|) time
+     * All nodes of the left tree must be less than the node and all nodes of the right tree greater.
+     * Nodes are moved, not copied, so both given trees become empty.
+     * @param left - tree with nodes less than the node
+     * @param node - node which is not present in any tree
+     * @param right - tree with nodes greater than the node
+     * @return AVLTree - new tree with all the nodes
+     * @throws IllegalArgumentException if the nodes are not ordered or the trees are the same
+     */
+    @SuppressWarnings("unchecked")
+    public static AVLTree join(AVLTree left, AVLNode node, AVLTree right) {
+        if (left == right && left.root != null) {
+            throw new IllegalArgumentException("Tree can not be joined with itself");
+        }
+        if ((left.root != null && left.last().compareTo(node) >= 0)
+                || (right.root != null && node.compareTo(right.first()) >= 0)) {
+            throw new IllegalArgumentException("Node " + node + " does not separate the trees");
+        }
+        return fromRoot(join(left.takeRoot(), isolate(node), right.takeRoot()));
+    }
+
+    /**
+     * Method that splits the tree by given node in O(log n) time
+     * Nodes are moved, not copied, so the given tree becomes empty.
+     * @param tree - tree to be split
+     * @param node - split node, does not need to be present in the tree
+     * @return Split - tree of lesser nodes, node of the tree equal to the split node and tree of greater nodes
+     */
+    public static Split split(AVLTree tree, AVLNode node) {
+        AVLNode[] parts = split(tree.takeRoot(), node);
+        return new Split(fromRoot(parts[0]), parts[1], fromRoot(parts[2]));
+    }
+
+    /**
+     * Method for union of two trees in O(m log(n/m + 1)) work, recursive calls run in parallel
+     * Nodes are moved, not copied, so both given trees become empty. If both trees contain equal
+     * nodes, the node of the first tree is kept.
+     * @param first - first tree
+     * @param second - second tree
+     * @return AVLTree - tree with nodes present in any of the trees
+     */
+    public static AVLTree union(AVLTree first, AVLTree second) {
+        return union(first, second, ParallelPool.POOL);
+    }
+
+    /**
+     * Method for union of two trees which runs in the given fork-join pool
+     * @see #union(org.zorvan.avl.AVLTree, org.zorvan.avl.AVLTree)
+     */
+    public static AVLTree union(AVLTree first, AVLTree second, ForkJoinPool pool) {
+        return setOperation(SetOperation.UNION, first, second, pool);
+    }
+
+    /**
+     * Method for intersection of two trees in O(m log(n/m + 1)) work, recursive calls run in parallel
+     * Nodes are moved, not copied, so both given trees become empty. Nodes of the first tree are kept.
+     * @param first - first tree
+     * @param second - second tree
+     * @return AVLTree - tree with nodes present in both trees
+     */
+    public static AVLTree intersection(AVLTree first, AVLTree second) {
+        return intersection(first, second, ParallelPool.POOL);
+    }
+
+    /**
+     * Method for intersection of two trees which runs in the given fork-join pool
+     * @see #intersection(org.zorvan.avl.AVLTree, org.zorvan.avl.AVLTree)
+     */
+    public static AVLTree intersection(AVLTree first, AVLTree second, ForkJoinPool pool) {
+        return setOperation(SetOperation.INTERSECTION, first, second, pool);
+    }
+
+    /**
+     * Method for difference of two trees in O(m log(n/m + 1)) work, recursive calls run in parallel
+     * Nodes are moved, not copied, so both given trees become empty.
+     * @param first - first tree
+     * @param second - tree with nodes to be removed from the first tree
+     * @return AVLTree - tree with nodes of the first tree which are not present in the second tree
+     */
+    public static AVLTree difference(AVLTree first, AVLTree second) {
+        return difference(first, second, ParallelPool.POOL);
+    }
+
+    /**
+     * Method for difference of two trees which runs in the given fork-join pool
+     * @see #difference(org.zorvan.avl.AVLTree, org.zorvan.avl.AVLTree)
+     */
+    public static AVLTree difference(AVLTree first, AVLTree second, ForkJoinPool pool) {
+        return setOperation(SetOperation.DIFFERENCE, first, second, pool);
+    }
+
+    private static AVLTree setOperation(SetOperation operation, AVLTree first, AVLTree second, ForkJoinPool pool) {
+        if (first == second && first.root != null) {
+            throw new IllegalArgumentException("Set operation needs two different trees");
+        }
+        AVLNode firstRoot = first.takeRoot();
+        AVLNode secondRoot = second.takeRoot();
+        //small inputs are not worth the pool
+        if (subtreeSize(firstRoot) + subtreeSize(secondRoot) < PARALLEL_THRESHOLD) {
+            return fromRoot(setOperation(operation, firstRoot, secondRoot));
+        }
+        return fromRoot(pool.invoke(new SetOperationTask(operation, firstRoot, secondRoot)));
+    }
+
+    /**
+     * Method that removes all nodes from the tree and returns its detached root
+     * @return AVLNode - former root of the tree
+     */
+    private AVLNode takeRoot() {
+        AVLNode oldRoot = this.root;
+        this.root = null;
+        this.modCount++;
+        return oldRoot;
+    }
+
+    private static AVLTree fromRoot(AVLNode root) {
+        AVLTree tree = new AVLTree();
+        tree.root = root;
+        return tree;
+    }
+
+    /**
+     * Result of the split of the tree
+     */
+    public static final class Split {
+        private final AVLTree less;
+        private final AVLNode node;
+        private final AVLTree greater;
+
+        private Split(AVLTree less, AVLNode node, AVLTree greater) {
+            this.less = less;
+            this.node = node;
+            this.greater = greater;
+        }
+
+        /**
+         * @return AVLTree - tree with nodes less than the split node
+         */
+        public AVLTree getLess() {
+            return this.less;
+        }
+
+        /**
+         * @return AVLNode - detached node of the tree equal to the split node or null if there was none
+         */
+        public AVLNode getNode() {
+            return this.node;
+        }
+
+        /**
+         * @return AVLTree - tree with nodes greater than the split node
+         */
+        public AVLTree getGreater() {
+            return this.greater;
+        }
+    }
+
+    /**
+     * Method that joins two subtrees and the node between them
+     * Subtree roots must be detached (without parent), returned root is detached too.
+     * @param left - root of the subtree with lesser nodes
+     * @param node - detached middle node
+     * @param right - root of the subtree with greater nodes
+     * @return AVLNode - root of the joined subtree
+     */
+    private static AVLNode join(AVLNode left, AVLNode node, AVLNode right) {
+        if (height(left) > height(right) + 1) {
+            return joinRight(left, node, right);
+        }
+        if (height(right) > height(left) + 1) {
+            return joinLeft(left, node, right);
+        }
+        return link(left, node, right);
+    }
+
+    /**
+     * Method that joins the right subtree along the right spine of the higher left subtree
+     */
+    private static AVLNode joinRight(AVLNode left, AVLNode node, AVLNode right) {
+        AVLNode leftLeft = left.getLeft();
+        AVLNode leftRight = left.getRight();
+        if (height(leftRight) <= height(right) + 1) {
+            AVLNode joined = link(leftRight, node, right);
+            if (height(joined) <= height(leftLeft) + 1) {
+                return link(leftLeft, left, joined);
+            }
+            //right-left rotation is performed
+            return rotateLeft(link(leftLeft, left, rotateRight(joined)));
+        }
+        AVLNode joined = joinRight(leftRight, node, right);
+        AVLNode result = link(leftLeft, left, joined);
+        return (height(joined) <= height(leftLeft) + 1) ? result : rotateLeft(result);
+    }
+
+    /**
+     * Method that joins the left subtree along the left spine of the higher right subtree
+     */
+    private static AVLNode joinLeft(AVLNode left, AVLNode node, AVLNode right) {
+        AVLNode rightLeft = right.getLeft();
+        AVLNode rightRight = right.getRight();
+        if (height(rightLeft) <= height(left) + 1) {
+            AVLNode joined = link(left, node, rightLeft);
+            if (height(joined) <= height(rightRight) + 1) {
+                return link(joined, right, rightRight);
+            }
+            //left-right rotation is performed
+            return rotateRight(link(rotateLeft(joined), right, rightRight));
+        }
+        AVLNode joined = joinLeft(left, node, rightLeft);
+        AVLNode result = link(joined, right, rightRight);
+        return (height(joined) <= height(rightRight) + 1) ? result : rotateRight(result);
+    }
+
+    /**
+     * Method that joins two subtrees without middle node, the last node of the left subtree is used instead
+     */
+    private static AVLNode join(AVLNode left, AVLNode right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        AVLNode[] parts = splitLast(left);
+        return join(parts[0], parts[1], right);
+    }
+
+    /**
+     * Method that removes the last node from the subtree
+     * @param node - detached root of the subtree
+     * @return AVLNode[] - root of the rest of the subtree and the detached last node
+     */
+    private static AVLNode[] splitLast(AVLNode node) {
+        AVLNode left = detach(node.getLeft());
+        AVLNode right = detach(node.getRight());
+        if (right == null) {
+            return new AVLNode[] {left, isolate(node)};
+        }
+        AVLNode[] parts = splitLast(right);
+        parts[0] = join(left, node, parts[0]);
+        return parts;
+    }
+
+    /**
+     * Method that splits the subtree by given node
+     * @param root - detached root of the subtree
+     * @param node - split node
+     * @return AVLNode[] - roots of lesser and greater subtrees and the detached equal node (or null) in the middle
+     */
+    @SuppressWarnings("unchecked")
+    private static AVLNode[] split(AVLNode root, AVLNode node) {
+        if (root == null) {
+            return new AVLNode[3];
+        }
+        AVLNode left = detach(root.getLeft());
+        AVLNode right = detach(root.getRight());
+        int comparison = node.compareTo(root);
+        if (comparison == 0) {
+            return new AVLNode[] {left, isolate(root), right};
+        }
+        AVLNode[] parts;
+        if (comparison < 0) {
+            parts = split(left, node);
+            parts[2] = join(parts[2], root, right);
+        } else {
+            parts = split(right, node);
+            parts[0] = join(left, root, parts[0]);
+        }
+        return parts;
+    }
+
+    /**
+     * Method that performs set operation on two detached subtrees
+     * The first tree is split by root of the second tree for difference, otherwise the second tree
+     * is split by root of the first tree. Both halves are independent and run in parallel when they are
+     * big enough and the caller is inside fork-join pool.
+     * @param operation - performed set operation
+     * @param first - root of the first subtree
+     * @param second - root of the second subtree
+     * @return AVLNode - detached root of the result
+     */
+    private static AVLNode setOperation(SetOperation operation, AVLNode first, AVLNode second) {
+        if (first == null) {
+            return (operation == SetOperation.UNION) ? second : null;
+        }
+        if (second == null) {
+            return (operation == SetOperation.INTERSECTION) ? null : first;
+        }
+        boolean parallel = subtreeSize(first) + subtreeSize(second) >= PARALLEL_THRESHOLD
+                && ForkJoinTask.inForkJoinPool();
+        AVLNode pivot = (operation == SetOperation.DIFFERENCE) ? second : first;
+        AVLNode pivotLeft = detach(pivot.getLeft());
+        AVLNode pivotRight = detach(pivot.getRight());
+        AVLNode[] parts = split((operation == SetOperation.DIFFERENCE) ? first : second, pivot);
+
+        //arguments keep their order, so nodes of the first tree win in union
+        AVLNode leftFirst = (operation == SetOperation.DIFFERENCE) ? parts[0] : pivotLeft;
+        AVLNode leftSecond = (operation == SetOperation.DIFFERENCE) ? pivotLeft : parts[0];
+        AVLNode rightFirst = (operation == SetOperation.DIFFERENCE) ? parts[2] : pivotRight;
+        AVLNode rightSecond = (operation == SetOperation.DIFFERENCE) ? pivotRight : parts[2];
+        AVLNode leftResult, rightResult;
+        if (parallel) {
+            SetOperationTask leftTask = new SetOperationTask(operation, leftFirst, leftSecond);
+            leftTask.fork();
+            rightResult = setOperation(operation, rightFirst, rightSecond);
+            leftResult = leftTask.join();
+        } else {
+            leftResult = setOperation(operation, leftFirst, leftSecond);
+            rightResult = setOperation(operation, rightFirst, rightSecond);
+        }
+
+        switch (operation) {
+            case UNION:
+                return join(leftResult, isolate(pivot), rightResult);
+            case INTERSECTION:
+                if (parts[1] != null) {
+                    return join(leftResult, isolate(pivot), rightResult);
+                }
+                isolate(pivot);
+                return join(leftResult, rightResult);
+            default:
+                //equal nodes of both trees are dropped
+                isolate(pivot);
+                return join(leftResult, rightResult);
+        }
+    }
+
+    /**
+     * Batch insertion of the nodes to the tree
+     * The batch is sorted and descends the tree once: at every node it is split into lesser and greater part
+     * which continue to the left and right subtree, and the subtree is rebalanced once by join when both parts
+     * are done. Nodes landing in an empty subtree are built into a balanced subtree directly.
+     * Takes O(m log(n/m + 1)) time instead of O(m log n) time of m single insertions.
+     * @param nodes - nodes to be inserted, in any order
+     * @return boolean[] - result for every node, same as insert would return if the nodes were inserted one by one
+     */
+    public boolean[] insertAll(AVLNode[] nodes) {
+        boolean[] results = new boolean[nodes.length];
+        AVLNode[] batch = new AVLNode[nodes.length];
+        int[] positions = new int[nodes.length];
+        int count = sortBatch(nodes, batch, positions);
+        this.root = insertAll(this.root, batch, 0, count - 1, positions, results);
+        this.modCount++;
+        return results;
+    }
+
+    /**
+     * Batch insertion of the nodes to the tree
+     * @param nodes - nodes to be inserted, results are in iteration order of the collection
+     * @return boolean[] - result for every node
+     * @see #insertAll(org.zorvan.avl.AVLNode[])
+     */
+    public boolean[] insertAll(Collection<? extends AVLNode> nodes) {
+        return this.insertAll(nodes.toArray(new AVLNode[nodes.size()]));
+    }
+
+    /**
+     * Batch deletion of the nodes from the tree
+     * The batch descends the tree once like in insertAll, subtree without deleted root is joined
+     * by its last node and every affected subtree is rebalanced once.
+     * @param nodes - nodes to be deleted, in any order
+     * @return boolean[] - result for every node, same as delete would return if the nodes were deleted one by one
+     */
+    public boolean[] deleteAll(AVLNode[] nodes) {
+        boolean[] results = new boolean[nodes.length];
+        AVLNode[] batch = new AVLNode[nodes.length];
+        int[] positions = new int[nodes.length];
+        int count = sortBatch(nodes, batch, positions);
+        this.root = deleteAll(this.root, batch, 0, count - 1, positions, results);
+        this.modCount++;
+        return results;
+    }
+
+    /**
+     * Batch deletion of the nodes from the tree
+     * @param nodes - nodes to be deleted, results are in iteration order of the collection
+     * @return boolean[] - result for every node
+     * @see #deleteAll(org.zorvan.avl.AVLNode[])
+     */
+    public boolean[] deleteAll(Collection<? extends AVLNode> nodes) {
+        return this.deleteAll(nodes.toArray(new AVLNode[nodes.size()]));
+    }
+
+    /**
+     * Method that removes nodes from the low bound (inclusive) to the high bound (exclusive)
+     * @param low - low bound, does not need to be present in the tree
+     * @param high - high bound, does not need to be present in the tree
+     * @return AVLTree - new tree with the removed nodes
+     * @see #removeRange(org.zorvan.avl.AVLNode, boolean, org.zorvan.avl.AVLNode, boolean)
+     */
+    public AVLTree removeRange(AVLNode low, AVLNode high) {
+        return this.removeRange(low, true, high, false);
+    }
+
+    /**
+     * Method that removes all nodes between two bounds in O(log n) time regardless of their number
+     * The tree is split at both bounds and the outer parts are joined again, so every subtree in the range
+     * is detached as a whole and the tree is rebalanced only along the split paths. Nodes are moved, not copied,
+     * to the returned tree, which can be iterated lazily or discarded.
+     * @param low - low bound, does not need to be present in the tree
+     * @param lowInclusive - true if the node equal to the low bound is removed
+     * @param high - high bound, does not need to be present in the tree
+     * @param highInclusive - true if the node equal to the high bound is removed
+     * @return AVLTree - new tree with the removed nodes, empty if low bound is greater than high bound
+     */
+    @SuppressWarnings("unchecked")
+    public AVLTree removeRange(AVLNode low, boolean lowInclusive, AVLNode high, boolean highInclusive) {
+        int comparison = low.compareTo(high);
+        if (comparison > 0 || (comparison == 0 && !(lowInclusive && highInclusive))) {
+            return new AVLTree();
+        }
+        AVLNode[] lower = splitAt(this.takeRoot(), low, lowInclusive);
+        AVLNode[] upper = splitAt(lower[1], high, !highInclusive);
+        this.root = join(lower[0], upper[1]);
+        return fromRoot(upper[0]);
+    }
+
+    /**
+     * Method that removes nodes less than given node in O(log n) time
+     * @param node - bound, does not need to be present in the tree
+     * @return AVLTree - new tree with the removed nodes
+     */
+    public AVLTree headTree(AVLNode node) {
+        return this.headTree(node, false);
+    }
+
+    /**
+     * Method that removes nodes less than (or equal to) given node in O(log n) time
+     * Nodes are moved, not copied, to the returned tree and the rest stays in this tree.
+     * @param node - bound, does not need to be present in the tree
+     * @param inclusive - true if the node equal to the bound is removed too
+     * @return AVLTree - new tree with the removed nodes
+     */
+    public AVLTree headTree(AVLNode node, boolean inclusive) {
+        AVLNode[] parts = splitAt(this.takeRoot(), node, !inclusive);
+        this.root = parts[1];
+        return fromRoot(parts[0]);
+    }
+
+    /**
+     * Method that removes nodes greater than or equal to given node in O(log n) time
+     * @param node - bound, does not need to be present in the tree
+     * @return AVLTree - new tree with the removed nodes
+     */
+    public AVLTree tailTree(AVLNode node) {
+        return this.tailTree(node, true);
+    }
+
+    /**
+     * Method that removes nodes greater than (or equal to) given node in O(log n) time
+     * Nodes are moved, not copied, to the returned tree and the rest stays in this tree.
+     * @param node - bound, does not need to be present in the tree
+     * @param inclusive - true if the node equal to the bound is removed too
+     * @return AVLTree - new tree with the removed nodes
+     */
+    public AVLTree tailTree(AVLNode node, boolean inclusive) {
+        AVLNode[] parts = splitAt(this.takeRoot(), node, inclusive);
+        this.root = parts[0];
+        return fromRoot(parts[1]);
+    }
+
+    /**
+     * Method that drops all nodes less than given node in O(log n) time, e.g. entries below a watermark
+     * @param node - watermark, does not need to be present in the tree
+     * @return int number of dropped nodes
+     */
+    public int truncateBelow(AVLNode node) {
+        return this.headTree(node, false).size();
+    }
+
+    /**
+     * Method that splits the subtree into two parts by given node
+     * @param root - detached root of the subtree
+     * @param node - split node
+     * @param equalToRight - true if the node equal to the split node belongs to the right part
+     * @return AVLNode[] - detached roots of the left and right part
+     */
+    private static AVLNode[] splitAt(AVLNode root, AVLNode node, boolean equalToRight) {
+        AVLNode[] parts = split(root, node);
+        if (parts[1] == null) {
+            return new AVLNode[] {parts[0], parts[2]};
+        }
+        if (equalToRight) {
+            return new AVLNode[] {parts[0], join(null, parts[1], parts[2])};
+        }
+        return new AVLNode[] {join(parts[0], parts[1], null), parts[2]};
+    }
+
+    /**
+     * Method that sorts the batch and removes repeated nodes
+     * Sort is stable, so the first occurrence of equal nodes is kept like in one by one processing.
+     * @param nodes - nodes of the batch in original order
+     * @param batch - output array of distinct nodes in ascending order
+     * @param positions - output array of positions of the batch nodes in the original array
+     * @return int number of distinct nodes
+     */
+    @SuppressWarnings("unchecked")
+    private static int sortBatch(final AVLNode[] nodes, AVLNode[] batch, int[] positions) {
+        Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            order[i] = i;
+        }
+        //sorted batches are common, so sorting is skipped for them
+        if (!isAscending(nodes)) {
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return nodes[o1].compareTo(nodes[o2]);
+                }
+            });
+        }
+        int count = 0;
+        for (Integer position : order) {
+            if (count > 0 && batch[count - 1].compareTo(nodes[position]) == 0) {
+                continue;
+            }
+            batch[count] = nodes[position];
+            positions[count] = position;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Method that inserts part of the sorted batch to the subtree
+     * @param node - root of the subtree
+     * @param batch - distinct nodes in ascending order
+     * @param low - index of the first inserted node
+     * @param high - index of the last inserted node
+     * @param positions - original positions of the batch nodes
+     * @param results - results in original order
+     * @return AVLNode - detached root of the subtree, the same node if nothing is inserted
+     */
+    private static AVLNode insertAll(AVLNode node, AVLNode[] batch, int low, int high, int[] positions, boolean[] results) {
+        if (low > high) {
+            return node;
+        }
+        if (node == null) {
+            for (int i = low; i <= high; i++) {
+                results[positions[i]] = true;
+            }
+            return buildFromSorted(batch, low, high, null);
+        }
+        int middle = lowerBound(batch, low, high, node);
+        int greaterLow = middle;
+        if (middle <= high && batch[middle].compareTo(node) == 0) {
+            //node already exists in the tree
+            greaterLow++;
+        }
+        AVLNode left = insertAll(detach(node.getLeft()), batch, low, middle - 1, positions, results);
+        AVLNode right = insertAll(detach(node.getRight()), batch, greaterLow, high, positions, results);
+        return join(left, node, right);
+    }
+
+    /**
+     * Method that deletes part of the sorted batch from the subtree
+     * @see #insertAll(org.zorvan.avl.AVLNode, org.zorvan.avl.AVLNode[], int, int, int[], boolean[])
+     */
+    private static AVLNode deleteAll(AVLNode node, AVLNode[] batch, int low, int high, int[] positions, boolean[] results) {
+        if (low > high || node == null) {
+            return node;
+        }
+        int middle = lowerBound(batch, low, high, node);
+        int greaterLow = middle;
+        boolean found = middle <= high && batch[middle].compareTo(node) == 0;
+        if (found) {
+            results[positions[middle]] = true;
+            greaterLow++;
+        }
+        AVLNode left = deleteAll(detach(node.getLeft()), batch, low, middle - 1, positions, results);
+        AVLNode right = deleteAll(detach(node.getRight()), batch, greaterLow, high, positions, results);
+        if (found) {
+            isolate(node);
+            return join(left, right);
+        }
+        return join(left, node, right);
+    }
+
+    /**
+     * Method that finds the first batch node which is not less than given node
+     * @return int index of the node, high + 1 if all nodes are less
+     */
+    @SuppressWarnings("unchecked")
+    private static int lowerBound(AVLNode[] batch, int low, int high, AVLNode node) {
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (batch[middle].compareTo(node) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Method that links the node with its sons and sets its heights
+     * @return AVLNode - the node, detached from its former parent
+     */
+    private static AVLNode link(AVLNode left, AVLNode node, AVLNode right) {
+        node.setLeft(left);
+        node.setRight(right);
+        node.setParent(null);
+        if (left != null) {
+            left.setParent(node);
+        }
+        if (right != null) {
+            right.setParent(node);
+        }
+        node.setNodeHeights();
+        return node;
+    }
+
+    /**
+     * Left rotation of the detached subtree root, see leftRotation(AVLNode)
+     * @return AVLNode - new detached root of the subtree
+     */
+    private static AVLNode rotateLeft(AVLNode node) {
+        AVLNode rightNode = node.getRight();
+        link(node.getLeft(), node, rightNode.getLeft());
+        return link(node, rightNode, rightNode.getRight());
+    }
+
+    /**
+     * Right rotation of the detached subtree root, see rightRotation(AVLNode)
+     * @return AVLNode - new detached root of the subtree
+     */
+    private static AVLNode rotateRight(AVLNode node) {
+        AVLNode leftNode = node.getLeft();
+        link(leftNode.getRight(), node, node.getRight());
+        return link(leftNode.getLeft(), leftNode, node);
+    }
+
+    private static AVLNode detach(AVLNode node) {
+        if (node != null) {
+            node.setParent(null);
+        }
+        return node;
+    }
+
+    /**
+     * Method that removes all links of the node, so it can be linked to another tree
+     */
+    private static AVLNode isolate(AVLNode node) {
+        return link(null, node, null);
+    }
+
+    private static int height(AVLNode node) {
+        return (node == null) ? 0 : node.nodeHeight() + 1;
+    }
+
+    private static int subtreeSize(AVLNode node) {
+        return (node == null) ? 0 : node.getSubtreeSize();
+    }
+
+    private enum SetOperation {
+        UNION, INTERSECTION, DIFFERENCE
+    }
+
+    /**
+     * Fork-join task of the set operation on two detached subtrees
+     */
+    private static final class SetOperationTask extends RecursiveTask<AVLNode> {
+        private static final long serialVersionUID = 1L;
+
+        private final SetOperation operation;
+        private final AVLNode first, second;
+
+        SetOperationTask(SetOperation operation, AVLNode first, AVLNode second) {
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        protected AVLNode compute() {
+            return setOperation(this.operation, this.first, this.second);
+        }
+    }
+
+    /**
+     * Task performing the action on the subtree, left subtree is forked
+     */
+    private static final class ForEachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final AVLNode node;
+        private final Consumer<? super AVLNode> action;
+
+        ForEachTask(AVLNode node, Consumer<? super AVLNode> action) {
+            this.node = node;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (subtreeSize(this.node) < PARALLEL_THRESHOLD) {
+                AVLTreeSpliterator.forEach(this.node, this.action);
+                return;
+            }
+            ForEachTask left = new ForEachTask(this.node.getLeft(), this.action);
+            left.fork();
+            this.action.accept(this.node);
+            new ForEachTask(this.node.getRight(), this.action).compute();
+            left.join();
         }
-        return true;
+    }
+
+    /**
+     * Task reducing the subtree, left subtree is forked and results are combined in order
+     */
+    private static final class ReduceTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final AVLNode node;
+        private final R identity;
+        private final Function<? super AVLNode, ? extends R> mapper;
+        private final BinaryOperator<R> combiner;
+
+        ReduceTask(AVLNode node, R identity, Function<? super AVLNode, ? extends R> mapper, BinaryOperator<R> combiner) {
+            this.node = node;
+            this.identity = identity;
+            this.mapper = mapper;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected R compute() {
+            if (subtreeSize(this.node) < PARALLEL_THRESHOLD) {
+                return reduce(this.node, this.identity, this.mapper, this.combiner);
+            }
+            ReduceTask<R> left = new ReduceTask<>(this.node.getLeft(), this.identity, this.mapper, this.combiner);
+            left.fork();
+            R right = new ReduceTask<>(this.node.getRight(), this.identity, this.mapper, this.combiner).compute();
+            R middle = this.mapper.apply(this.node);
+            return this.combiner.apply(this.combiner.apply(left.join(), middle), right);
+        }
+    }
+
+    /**
+     * Method that reduces the subtree sequentially in ascending order
+     */
+    private static <R> R reduce(AVLNode node, R identity, Function<? super AVLNode, ? extends R> mapper,
+            BinaryOperator<R> combiner) {
+        R result = identity;
+        while (node != null) {
+            result = combiner.apply(result, reduce(node.getLeft(), identity, mapper, combiner));
+            result = combiner.apply(result, mapper.apply(node));
+            node = node.getRight();
+        }
+        return result;
+    }
+
+    /**
+     * Holder of the default pool of set operations and parallel traversals, created on first use
+     */
+    private static final class ParallelPool {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+    
+    /**
+     * Method for node comparison on the hot path, counts the comparison if metrics are enabled
+     * @param node - compared node
+     * @param other - node compared with
+     * @return int result of node.compareTo(other)
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(AVLNode node, AVLNode other) {
+        if (AVLTreeMetrics.ENABLED) {
+            this.metrics.comparisons++;
+        }
+        return node.compareTo(other);
     }
     
     /**
@@ -248,9 +1239,15 @@ public class AVLTree {
             //if the left height of the right subtree is greater than right height in the right subtree
             if (node.getRight().getLeftHeight() > node.getRight().getRightHeight()) {
                 //right-left rotation is performed
+                if (AVLTreeMetrics.ENABLED) {
+                    this.metrics.rightLeftRotations++;
+                }
                 this.rightLeftRotation(node);
             } else {
                 //left rotation is performed
+                if (AVLTreeMetrics.ENABLED) {
+                    this.metrics.leftRotations++;
+                }
                 this.leftRotation(node);
             }
         }
@@ -259,9 +1256,15 @@ public class AVLTree {
             //if the right height of the left subtree is greater than left height of the left subtree
             if (node.getLeft().getRightHeight() > node.getLeft().getLeftHeight()) {
                 //left-right rotation is performed
+                if (AVLTreeMetrics.ENABLED) {
+                    this.metrics.leftRightRotations++;
+                }
                 this.leftRightRotation(node);
             } else {
                 //right rotation is performed
+                if (AVLTreeMetrics.ENABLED) {
+                    this.metrics.rightRotations++;
+                }
                 this.rightRotation(node);
             }
         }
@@ -274,6 +1277,9 @@ public class AVLTree {
     private void resetHeightDetectRotation(AVLNode node) {
         //until node is root; tracing back from inserted/deleted node to root
         while (node != null) {
+            if (AVLTreeMetrics.ENABLED) {
+                this.metrics.retraceSteps++;
+            }
             //setting new heights to nodes on the way to root
             node.setNodeHeights();
             //check if any rotation needs to be performed
@@ -411,6 +1417,26 @@ public class AVLTree {
         return this.root;
     }
     
+    /**
+     * Method that returns hot-path metrics of the tree
+     * @return AVLTreeMetrics - live metrics of the tree
+     * @throws IllegalStateException if metrics are disabled
+     */
+    public AVLTreeMetrics getMetrics() {
+        if (!AVLTreeMetrics.ENABLED) {
+            throw new IllegalStateException("Metrics are disabled, run with -Dorg.zorvan.avl.metrics=true");
+        }
+        return this.metrics;
+    }
+
+    /**
+     * Method that returns number of structural modifications, used by iterators of subclasses
+     * @return int modification count
+     */
+    int getModCount() {
+        return this.modCount;
+    }
+
     /**
      * Method to find substitute node for deleted node
      * We are looking for leftmost node from the right subtree or rightmost node from the left subtree
@@ -453,31 +1479,422 @@ public class AVLTree {
      * @return LinkedList - list of nodes
      */
     public LinkedList inorder(AVLNode node) {
-        //to keep the nodes in the path that are waiting to be visited
-        Stack s = new Stack();
         LinkedList<AVLNode> list = new LinkedList<>();
-        //the first node to be visited is the leftmost
-        while (node != null) {
-            s.push(node);
-            node = node.getLeft();
+        if (node == null) {
+            return list;
         }
-        //traverse the tree
-        while (s.size() > 0) {
-            //visit the top node
-            node = (AVLNode)s.pop();
+        //the last node to be visited is the rightmost of the subtree
+        AVLNode last = node;
+        while (last.getRight() != null) {
+            last = last.getRight();
+        }
+        //the first node to be visited is the leftmost, next ones are found through parent references
+        node = leftmost(node);
+        while (true) {
             list.add(node);
-            //find the next node
-            if (node.getRight() != null) {
+            if (node == last) {
+                return list;
+            }
+            node = this.successor(node);
+        }
+    }
+    
+    /**
+     * Method that returns ascending iterator over all nodes of the tree
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     */
+    @Override
+    public Iterator<AVLNode> iterator() {
+        return this.ascendingIterator();
+    }
+
+    /**
+     * Method that returns spliterator over all nodes of the tree which splits at subtree roots
+     * Spliterator is ORDERED, SORTED, DISTINCT, NONNULL, SIZED and SUBSIZED.
+     * @return Spliterator - late-binding is not supported, tree must not be modified after the call
+     */
+    @Override
+    public Spliterator<AVLNode> spliterator() {
+        return new AVLTreeSpliterator(this, null, this.root, this.modCount);
+    }
+
+    /**
+     * Method that returns sequential stream of the nodes in ascending order
+     * @return Stream of the nodes
+     */
+    public Stream<AVLNode> stream() {
+        return StreamSupport.stream(this.spliterator(), false);
+    }
+
+    /**
+     * Method that returns parallel stream of the nodes, the tree is split at subtree roots
+     * @return Stream of the nodes
+     */
+    public Stream<AVLNode> parallelStream() {
+        return StreamSupport.stream(this.spliterator(), true);
+    }
+
+    /**
+     * Method that performs the action on every node in parallel, subtrees above the threshold are forked
+     * Action is called in no particular order and from several threads at once.
+     * @param action - performed action
+     * @throws ConcurrentModificationException if the tree is modified during the traversal
+     */
+    public void parallelForEach(Consumer<? super AVLNode> action) {
+        this.parallelForEach(action, ParallelPool.POOL);
+    }
+
+    /**
+     * Method that performs the action on every node in parallel in the given fork-join pool
+     * @see #parallelForEach(java.util.function.Consumer)
+     */
+    public void parallelForEach(Consumer<? super AVLNode> action, ForkJoinPool pool) {
+        int expectedModCount = this.modCount;
+        if (subtreeSize(this.root) < PARALLEL_THRESHOLD) {
+            AVLTreeSpliterator.forEach(this.root, action);
+        } else {
+            pool.invoke(new ForEachTask(this.root, action));
+        }
+        if (this.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Method that maps every node and reduces the results in parallel, subtrees above the threshold are forked
+     * Results are combined in ascending order of the nodes, so the combiner needs to be associative only.
+     * @param identity - identity of the combiner, result for empty tree
+     * @param mapper - function mapping node to the result
+     * @param combiner - associative function combining results of lesser and greater nodes
+     * @return R reduced result
+     * @throws ConcurrentModificationException if the tree is modified during the traversal
+     */
+    public <R> R parallelReduce(R identity, Function<? super AVLNode, ? extends R> mapper, BinaryOperator<R> combiner) {
+        return this.parallelReduce(identity, mapper, combiner, ParallelPool.POOL);
+    }
+
+    /**
+     * Method that maps every node and reduces the results in parallel in the given fork-join pool
+     * @see #parallelReduce(java.lang.Object, java.util.function.Function, java.util.function.BinaryOperator)
+     */
+    public <R> R parallelReduce(R identity, Function<? super AVLNode, ? extends R> mapper, BinaryOperator<R> combiner,
+            ForkJoinPool pool) {
+        int expectedModCount = this.modCount;
+        R result;
+        if (subtreeSize(this.root) < PARALLEL_THRESHOLD) {
+            result = reduce(this.root, identity, mapper, combiner);
+        } else {
+            result = pool.invoke(new ReduceTask<>(this.root, identity, mapper, combiner));
+        }
+        if (this.modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        return result;
+    }
+
+    /**
+     * Method that returns ascending iterator over all nodes of the tree
+     * Iterator walks the tree through parent references, so it does not allocate anything
+     * per node and every step takes O(1) amortized time.
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     */
+    public Iterator<AVLNode> ascendingIterator() {
+        return new NodeIterator(this.first(), null, true);
+    }
+    
+    /**
+     * Method that returns descending iterator over all nodes of the tree
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     */
+    public Iterator<AVLNode> descendingIterator() {
+        return new NodeIterator(this.last(), null, false);
+    }
+    
+    /**
+     * Method that returns ascending iterator over nodes greater than (or equal to) given node
+     * @param from - low bound, does not need to be present in the tree
+     * @param inclusive - true if the node equal to the bound is returned
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     */
+    public Iterator<AVLNode> tailIterator(AVLNode from, boolean inclusive) {
+        return this.subIterator(from, inclusive, null, false);
+    }
+    
+    /**
+     * Method that returns descending iterator over nodes less than (or equal to) given node
+     * @param from - high bound, does not need to be present in the tree
+     * @param inclusive - true if the node equal to the bound is returned
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     */
+    public Iterator<AVLNode> descendingHeadIterator(AVLNode from, boolean inclusive) {
+        return this.descendingSubIterator(null, false, from, inclusive);
+    }
+    
+    /**
+     * Method that returns ascending iterator over nodes between two bounds
+     * @param low - low bound, null for no bound
+     * @param lowInclusive - true if the node equal to the low bound is returned
+     * @param high - high bound, null for no bound
+     * @param highInclusive - true if the node equal to the high bound is returned
+     * @return Iterator - lazy iterator, nodes are visited only when requested
+     * @throws IllegalArgumentException if low bound is greater than high bound
+     */
+    public Iterator<AVLNode> subIterator(AVLNode low, boolean lowInclusive, AVLNode high, boolean highInclusive) {
+        checkBounds(low, high);
+        AVLNode first = (low == null) ? this.first() : this.lowest(low, lowInclusive);
+        //fence is the first node behind the high bound, iteration stops there
+        AVLNode fence = (high == null) ? null : this.lowest(high, !highInclusive);
+        if (isEmptyRange(first, fence, true)) {
+            first = null;
+        }
+        return new NodeIterator(first, fence, true);
+    }
+    
+    /**
+     * Method that returns descending iterator over nodes between two bounds
+     * @param low - low bound, null for no bound
+     * @param lowInclusive - true if the node equal to the low bound is returned
+     * @param high - high bound, null for no bound
+     * @param highInclusive - true if the node equal to the high bound is returned
+     * @return Iterator - lazy iterator starting at the high bound
+     * @throws IllegalArgumentException if low bound is greater than high bound
+     */
+    public Iterator<AVLNode> descendingSubIterator(AVLNode low, boolean lowInclusive, AVLNode high, boolean highInclusive) {
+        checkBounds(low, high);
+        AVLNode first = (high == null) ? this.last() : this.highest(high, highInclusive);
+        //fence is the first node in front of the low bound, iteration stops there
+        AVLNode fence = (low == null) ? null : this.highest(low, !lowInclusive);
+        if (isEmptyRange(first, fence, false)) {
+            first = null;
+        }
+        return new NodeIterator(first, fence, false);
+    }
+    
+    /**
+     * Method that returns the smallest node of the tree
+     * @return AVLNode - the first node or null if the tree is empty
+     */
+    public AVLNode first() {
+        return leftmost(this.root);
+    }
+    
+    /**
+     * Method that returns the greatest node of the tree
+     * @return AVLNode - the last node or null if the tree is empty
+     */
+    public AVLNode last() {
+        return rightmost(this.root);
+    }
+    
+    /**
+     * Method that returns the smallest node greater than or equal to the given node
+     * @param node - wanted node, does not need to be present in the tree
+     * @return AVLNode - found node or null if there is no such node
+     */
+    public AVLNode ceiling(AVLNode node) {
+        return this.lowest(node, true);
+    }
+    
+    /**
+     * Method that returns the smallest node strictly greater than the given node
+     * @param node - wanted node, does not need to be present in the tree
+     * @return AVLNode - found node or null if there is no such node
+     */
+    public AVLNode higher(AVLNode node) {
+        return this.lowest(node, false);
+    }
+    
+    /**
+     * Method that returns the greatest node less than or equal to the given node
+     * @param node - wanted node, does not need to be present in the tree
+     * @return AVLNode - found node or null if there is no such node
+     */
+    public AVLNode floor(AVLNode node) {
+        return this.highest(node, true);
+    }
+    
+    /**
+     * Method that returns the greatest node strictly less than the given node
+     * @param node - wanted node, does not need to be present in the tree
+     * @return AVLNode - found node or null if there is no such node
+     */
+    public AVLNode lower(AVLNode node) {
+        return this.highest(node, false);
+    }
+    
+    /**
+     * Method that returns next node in inorder, can be used as a cursor
+     * Next node is found through parent references in O(1) amortized time.
+     * @param node - node of the tree
+     * @return AVLNode - successor or null if the node is the last one
+     */
+    public AVLNode successor(AVLNode node) {
+        if (node.getRight() != null) {
+            return leftmost(node.getRight());
+        }
+        AVLNode parent = node.getParent();
+        //going up while we are coming from the right subtree
+        while (parent != null && parent.getRight() == node) {
+            node = parent;
+            parent = parent.getParent();
+        }
+        return parent;
+    }
+    
+    /**
+     * Method that returns previous node in inorder, can be used as a cursor
+     * @param node - node of the tree
+     * @return AVLNode - predecessor or null if the node is the first one
+     */
+    public AVLNode predecessor(AVLNode node) {
+        if (node.getLeft() != null) {
+            return rightmost(node.getLeft());
+        }
+        AVLNode parent = node.getParent();
+        //going up while we are coming from the left subtree
+        while (parent != null && parent.getLeft() == node) {
+            node = parent;
+            parent = parent.getParent();
+        }
+        return parent;
+    }
+    
+    /**
+     * Method that returns the smallest node greater than (or equal to) the given node
+     * @param node - bound
+     * @param inclusive - true if the node equal to the bound can be returned
+     * @return AVLNode - found node or null
+     */
+    private AVLNode lowest(AVLNode node, boolean inclusive) {
+        AVLNode activeNode = this.root;
+        AVLNode candidate = null;
+        while (activeNode != null) {
+            int comparison = this.compare(activeNode, node);
+            if (comparison > 0 || (inclusive && comparison == 0)) {
+                //active node is in range, smaller one can be in the left subtree
+                candidate = activeNode;
+                activeNode = activeNode.getLeft();
+            } else {
+                activeNode = activeNode.getRight();
+            }
+        }
+        return candidate;
+    }
+    
+    /**
+     * Method that returns the greatest node less than (or equal to) the given node
+     * @param node - bound
+     * @param inclusive - true if the node equal to the bound can be returned
+     * @return AVLNode - found node or null
+     */
+    private AVLNode highest(AVLNode node, boolean inclusive) {
+        AVLNode activeNode = this.root;
+        AVLNode candidate = null;
+        while (activeNode != null) {
+            int comparison = this.compare(activeNode, node);
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                //active node is in range, greater one can be in the right subtree
+                candidate = activeNode;
+                activeNode = activeNode.getRight();
+            } else {
+                activeNode = activeNode.getLeft();
+            }
+        }
+        return candidate;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static void checkBounds(AVLNode low, AVLNode high) {
+        if (low != null && high != null && low.compareTo(high) > 0) {
+            throw new IllegalArgumentException("Low bound " + low + " is greater than high bound " + high);
+        }
+    }
+    
+    /**
+     * Method that checks if the first node of the range is already behind the fence
+     * @param first - first node of the range
+     * @param fence - first node behind the range
+     * @param ascending - direction of the range
+     * @return true - if the range does not contain any node
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean isEmptyRange(AVLNode first, AVLNode fence, boolean ascending) {
+        if (first == null || fence == null) {
+            return first == null;
+        }
+        int comparison = first.compareTo(fence);
+        return ascending ? comparison >= 0 : comparison <= 0;
+    }
+    
+    private static AVLNode leftmost(AVLNode node) {
+        if (node != null) {
+            while (node.getLeft() != null) {
+                node = node.getLeft();
+            }
+        }
+        return node;
+    }
+    
+    private static AVLNode rightmost(AVLNode node) {
+        if (node != null) {
+            while (node.getRight() != null) {
                 node = node.getRight();
-                //the next node to be visited is the leftmost
-                while (node != null) {
-                    s.push(node);
-                    node = node.getLeft();
-                }
             }
         }
+        return node;
+    }
+    
+    /**
+     * Lazy iterator walking the tree through parent references
+     * Iteration ends at the fence node (exclusive) or at the end of the tree.
+     * Nodes can be removed during iteration only through the iterator itself.
+     */
+    private final class NodeIterator implements Iterator<AVLNode> {
+        private AVLNode next; //node returned by the next call of next()
+        private final AVLNode fence; //first node which is not returned, null for the end of the tree
+        private final boolean ascending;
+        private AVLNode lastReturned;
+        private int expectedModCount;
         
-        return list;
+        NodeIterator(AVLNode first, AVLNode fence, boolean ascending) {
+            this.next = (first == fence) ? null : first;
+            this.fence = fence;
+            this.ascending = ascending;
+            this.expectedModCount = AVLTree.this.modCount;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+        
+        @Override
+        public AVLNode next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            if (this.expectedModCount != AVLTree.this.modCount) {
+                throw new ConcurrentModificationException();
+            }
+            this.lastReturned = this.next;
+            AVLNode following = this.ascending ? AVLTree.this.successor(this.next) : AVLTree.this.predecessor(this.next);
+            this.next = (following == this.fence) ? null : following;
+            return this.lastReturned;
+        }
+        
+        @Override
+        public void remove() {
+            if (this.lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (this.expectedModCount != AVLTree.this.modCount) {
+                throw new ConcurrentModificationException();
+            }
+            //deletion relinks nodes without changing them, so the next node stays valid
+            AVLTree.this.delete(this.lastReturned);
+            this.lastReturned = null;
+            this.expectedModCount = AVLTree.this.modCount;
+        }
     }
     
     /**
@@ -510,14 +1927,98 @@ public class AVLTree {
     
     /**
      * Method that counts number of nodes in tree
+     * Number of nodes is kept in every node, so it takes O(1) time.
      * @param root - root node
      * @return int number of nodes in tree
      */
     public int getNumberOfNodes(AVLNode root) {
-        if(root == null) {
-            return 0;
-        } else {
-            return 1 + this.getNumberOfNodes(root.getLeft()) + this.getNumberOfNodes(root.getRight());
+        return (root == null) ? 0 : root.getSubtreeSize();
+    }
+    
+    /**
+     * Method that returns number of nodes in the tree in O(1) time
+     * @return int number of nodes in tree
+     */
+    public int size() {
+        return this.getNumberOfNodes(this.root);
+    }
+    
+    /**
+     * Method that returns rank of the node, that is number of nodes in the tree less than given node
+     * @param node - node to get rank for, does not need to be present in the tree
+     * @return int rank of the node, also the index of the node in inorder if it is present
+     */
+    public int rank(AVLNode node) {
+        return this.countLess(node, false);
+    }
+    
+    /**
+     * Method that returns node with given index in inorder (k-th smallest node)
+     * @param index - zero based index of the node
+     * @return AVLNode - node with given index
+     * @throws IndexOutOfBoundsException if the index is negative or not less than size of the tree
+     */
+    public AVLNode select(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        AVLNode activeNode = this.root;
+        while (true) {
+            int leftSize = this.getNumberOfNodes(activeNode.getLeft());
+            if (index < leftSize) {
+                activeNode = activeNode.getLeft();
+            } else if (index == leftSize) {
+                return activeNode;
+            } else {
+                //skip the left subtree and the active node
+                index -= leftSize + 1;
+                activeNode = activeNode.getRight();
+            }
+        }
+    }
+    
+    /**
+     * Method that counts nodes between two bounds, both bounds are inclusive
+     * @param low - low bound, does not need to be present in the tree
+     * @param high - high bound, does not need to be present in the tree
+     * @return int number of nodes in the range
+     */
+    public int countInRange(AVLNode low, AVLNode high) {
+        return this.countInRange(low, true, high, true);
+    }
+    
+    /**
+     * Method that counts nodes between two bounds in O(log n) time
+     * @param low - low bound, does not need to be present in the tree
+     * @param lowInclusive - true if the node equal to the low bound is counted
+     * @param high - high bound, does not need to be present in the tree
+     * @param highInclusive - true if the node equal to the high bound is counted
+     * @return int number of nodes in the range, 0 if low bound is greater than high bound
+     */
+    public int countInRange(AVLNode low, boolean lowInclusive, AVLNode high, boolean highInclusive) {
+        int count = this.countLess(high, highInclusive) - this.countLess(low, !lowInclusive);
+        return (count > 0) ? count : 0;
+    }
+    
+    /**
+     * Method that counts nodes less than (or equal to) given node
+     * @param node - bound
+     * @param inclusive - true if the node equal to the bound is counted
+     * @return int number of nodes
+     */
+    private int countLess(AVLNode node, boolean inclusive) {
+        AVLNode activeNode = this.root;
+        int count = 0;
+        while (activeNode != null) {
+            int comparison = this.compare(activeNode, node);
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                //active node and its left subtree are counted
+                count += this.getNumberOfNodes(activeNode.getLeft()) + 1;
+                activeNode = activeNode.getRight();
+            } else {
+                activeNode = activeNode.getLeft();
+            }
         }
+        return count;
     }
 }
\ No newline at end of file
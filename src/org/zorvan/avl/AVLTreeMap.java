@@ -0,0 +1,1356 @@
+package org.zorvan.avl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Class represents AVL tree of keys and values implementing NavigableMap.
+ * Keys are kept in internal entries, so lookups by plain key do not allocate any node.
+ * Keys are ordered by the comparator given to the constructor or by their natural ordering.
+ * Lookup loops are separate for comparator and natural ordering, so each comparison call site
+ * sees only one receiver type and the JIT can inline it.
+ *
+ * Balancing follows the same rules as AVLTree, retracing after insertion or deletion stops
+ * at the first node whose height did not change.
+ *
+ * @param <K> - type of the keys
+ * @param <V> - type of the values
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class AVLTreeMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final Comparator<? super K> comparator;
+    private Node<K, V> root;
+    private int size; //number of entries in the map
+    private int modCount; //number of structural modifications, used by iterators to detect concurrent modification
+
+    private EntrySet entrySet; //views are created on first use
+    private KeySet<K> navigableKeySet;
+    private NavigableMap<K, V> descendingMap;
+
+    /**
+     * Constructor of the AVLTreeMap class, keys are compared by their natural ordering
+     */
+    public AVLTreeMap() {
+        this((Comparator<? super K>) null);
+    }
+
+    /**
+     * Constructor of the AVLTreeMap class
+     * @param comparator - comparator of the keys, null for natural ordering
+     */
+    public AVLTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructor of the AVLTreeMap class which contains all mappings of the given map
+     * @param map - map whose mappings are copied
+     */
+    public AVLTreeMap(Map<? extends K, ? extends V> map) {
+        this((Comparator<? super K>) null);
+        this.putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.getEntry(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> entry = this.getEntry(key);
+        return (entry == null) ? null : entry.value;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return this.comparator;
+    }
+
+    @Override
+    public K firstKey() {
+        return key(this.getFirstEntry());
+    }
+
+    @Override
+    public K lastKey() {
+        return key(this.getLastEntry());
+    }
+
+    /**
+     * Insertion of the key to the map or replacement of its value
+     * @param key - inserted key
+     * @param value - value of the key
+     * @return previous value of the key or null if the key was not present
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        Node<K, V> activeEntry = this.root;
+        if (activeEntry == null) {
+            //comparison checks type and null of the first key
+            this.compare(key, key);
+            this.root = new Node<>(key, value, null);
+            this.size = 1;
+            this.modCount++;
+            return null;
+        }
+
+        Node<K, V> parent;
+        int comparison;
+        Comparator<? super K> cmp = this.comparator;
+        if (cmp != null) {
+            do {
+                parent = activeEntry;
+                comparison = cmp.compare(key, activeEntry.key);
+                if (comparison < 0) {
+                    activeEntry = activeEntry.left;
+                } else if (comparison > 0) {
+                    activeEntry = activeEntry.right;
+                } else {
+                    return activeEntry.setValue(value);
+                }
+            } while (activeEntry != null);
+        } else {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            Comparable<? super K> comparableKey = (Comparable<? super K>) key;
+            do {
+                parent = activeEntry;
+                comparison = comparableKey.compareTo(activeEntry.key);
+                if (comparison < 0) {
+                    activeEntry = activeEntry.left;
+                } else if (comparison > 0) {
+                    activeEntry = activeEntry.right;
+                } else {
+                    return activeEntry.setValue(value);
+                }
+            } while (activeEntry != null);
+        }
+
+        Node<K, V> entry = new Node<>(key, value, parent);
+        if (comparison < 0) {
+            parent.left = entry;
+        } else {
+            parent.right = entry;
+        }
+        this.size++;
+        this.modCount++;
+        this.retrace(parent);
+        return null;
+    }
+
+    /**
+     * Deletion of the key from the map
+     * @param key - deleted key
+     * @return value of the deleted key or null if the key was not present
+     */
+    @Override
+    public V remove(Object key) {
+        Node<K, V> entry = this.getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        V oldValue = entry.value;
+        this.deleteEntry(entry);
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        this.modCount++;
+        this.size = 0;
+        this.root = null;
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return exportEntry(this.getFirstEntry());
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return exportEntry(this.getLastEntry());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        Node<K, V> entry = this.getFirstEntry();
+        Map.Entry<K, V> result = exportEntry(entry);
+        if (entry != null) {
+            this.deleteEntry(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        Node<K, V> entry = this.getLastEntry();
+        Map.Entry<K, V> result = exportEntry(entry);
+        if (entry != null) {
+            this.deleteEntry(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return exportEntry(this.getLowerEntry(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(this.getLowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return exportEntry(this.getFloorEntry(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(this.getFloorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return exportEntry(this.getCeilingEntry(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(this.getCeilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return exportEntry(this.getHigherEntry(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(this.getHigherEntry(key));
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return this.navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        if (this.navigableKeySet == null) {
+            this.navigableKeySet = new KeySet<>(this);
+        }
+        return this.navigableKeySet;
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return this.descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (this.entrySet == null) {
+            this.entrySet = new EntrySet();
+        }
+        return this.entrySet;
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        if (this.descendingMap == null) {
+            this.descendingMap = new SubMap(true, null, true, true, null, true, true);
+        }
+        return this.descendingMap;
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new SubMap(true, null, true, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap(false, fromKey, inclusive, true, null, true, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return this.subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return this.headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return this.tailMap(fromKey, true);
+    }
+
+    /**
+     * Method that returns height of the tree
+     * @return int height of the tree, 0 for empty map
+     */
+    public int getHeight() {
+        return height(this.root);
+    }
+
+    /**
+     * Method for search of the entry with given key, allocates nothing
+     * @param key - wanted key
+     * @return entry with the key or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    final Node<K, V> getEntry(Object key) {
+        Comparator<? super K> cmp = this.comparator;
+        Node<K, V> activeEntry = this.root;
+        if (cmp != null) {
+            K typedKey = (K) key;
+            while (activeEntry != null) {
+                int comparison = cmp.compare(typedKey, activeEntry.key);
+                if (comparison < 0) {
+                    activeEntry = activeEntry.left;
+                } else if (comparison > 0) {
+                    activeEntry = activeEntry.right;
+                } else {
+                    return activeEntry;
+                }
+            }
+            return null;
+        }
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        Comparable<? super K> comparableKey = (Comparable<? super K>) key;
+        while (activeEntry != null) {
+            int comparison = comparableKey.compareTo(activeEntry.key);
+            if (comparison < 0) {
+                activeEntry = activeEntry.left;
+            } else if (comparison > 0) {
+                activeEntry = activeEntry.right;
+            } else {
+                return activeEntry;
+            }
+        }
+        return null;
+    }
+
+    final Node<K, V> getFirstEntry() {
+        Node<K, V> entry = this.root;
+        if (entry != null) {
+            while (entry.left != null) {
+                entry = entry.left;
+            }
+        }
+        return entry;
+    }
+
+    final Node<K, V> getLastEntry() {
+        Node<K, V> entry = this.root;
+        if (entry != null) {
+            while (entry.right != null) {
+                entry = entry.right;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Method that finds the least entry greater than or equal to the key
+     */
+    final Node<K, V> getCeilingEntry(K key) {
+        Node<K, V> activeEntry = this.root;
+        Node<K, V> candidate = null;
+        while (activeEntry != null) {
+            int comparison = this.compare(key, activeEntry.key);
+            if (comparison < 0) {
+                //active entry is greater, better one can be in the left subtree
+                candidate = activeEntry;
+                activeEntry = activeEntry.left;
+            } else if (comparison > 0) {
+                activeEntry = activeEntry.right;
+            } else {
+                return activeEntry;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Method that finds the least entry strictly greater than the key
+     */
+    final Node<K, V> getHigherEntry(K key) {
+        Node<K, V> activeEntry = this.root;
+        Node<K, V> candidate = null;
+        while (activeEntry != null) {
+            if (this.compare(key, activeEntry.key) < 0) {
+                candidate = activeEntry;
+                activeEntry = activeEntry.left;
+            } else {
+                activeEntry = activeEntry.right;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Method that finds the greatest entry less than or equal to the key
+     */
+    final Node<K, V> getFloorEntry(K key) {
+        Node<K, V> activeEntry = this.root;
+        Node<K, V> candidate = null;
+        while (activeEntry != null) {
+            int comparison = this.compare(key, activeEntry.key);
+            if (comparison > 0) {
+                //active entry is less, better one can be in the right subtree
+                candidate = activeEntry;
+                activeEntry = activeEntry.right;
+            } else if (comparison < 0) {
+                activeEntry = activeEntry.left;
+            } else {
+                return activeEntry;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Method that finds the greatest entry strictly less than the key
+     */
+    final Node<K, V> getLowerEntry(K key) {
+        Node<K, V> activeEntry = this.root;
+        Node<K, V> candidate = null;
+        while (activeEntry != null) {
+            if (this.compare(key, activeEntry.key) > 0) {
+                candidate = activeEntry;
+                activeEntry = activeEntry.right;
+            } else {
+                activeEntry = activeEntry.left;
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Method that returns next entry in inorder
+     * @param entry - current entry
+     * @return next entry or null if the entry is the last one
+     */
+    static <K, V> Node<K, V> successor(Node<K, V> entry) {
+        if (entry.right != null) {
+            Node<K, V> next = entry.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            return next;
+        }
+        //going up until we come from the left subtree
+        Node<K, V> child = entry;
+        Node<K, V> next = entry.parent;
+        while (next != null && child == next.right) {
+            child = next;
+            next = next.parent;
+        }
+        return next;
+    }
+
+    /**
+     * Method that returns previous entry in inorder
+     * @param entry - current entry
+     * @return previous entry or null if the entry is the first one
+     */
+    static <K, V> Node<K, V> predecessor(Node<K, V> entry) {
+        if (entry.left != null) {
+            Node<K, V> previous = entry.left;
+            while (previous.right != null) {
+                previous = previous.right;
+            }
+            return previous;
+        }
+        Node<K, V> child = entry;
+        Node<K, V> previous = entry.parent;
+        while (previous != null && child == previous.left) {
+            child = previous;
+            previous = previous.parent;
+        }
+        return previous;
+    }
+
+    /**
+     * Deletion of the entry from the tree
+     * Entry with two sons takes key and value of its successor and the successor is unlinked instead.
+     * @param entry - deleted entry
+     */
+    final void deleteEntry(Node<K, V> entry) {
+        this.modCount++;
+        this.size--;
+
+        if (entry.left != null && entry.right != null) {
+            Node<K, V> substitute = successor(entry);
+            entry.key = substitute.key;
+            entry.value = substitute.value;
+            entry = substitute;
+        }
+
+        //unlinked entry has at most one son which takes its place
+        Node<K, V> replacement = (entry.left != null) ? entry.left : entry.right;
+        Node<K, V> parent = entry.parent;
+        if (replacement != null) {
+            replacement.parent = parent;
+        }
+        if (parent == null) {
+            this.root = replacement;
+        } else if (parent.left == entry) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+        entry.left = null;
+        entry.right = null;
+        entry.parent = null;
+        this.retrace(parent);
+    }
+
+    /**
+     * Method that resets heights and performs rotations on the way to the root
+     * Retracing stops at the first node whose height has not changed, nodes above it are not affected.
+     * @param entry - first entry on the way to the root
+     */
+    private void retrace(Node<K, V> entry) {
+        while (entry != null) {
+            int oldHeight = entry.height;
+            entry.updateHeight();
+            int balanceFactor = height(entry.right) - height(entry.left);
+            if (balanceFactor >= 2) {
+                if (height(entry.right.left) > height(entry.right.right)) {
+                    //right-left rotation is performed
+                    this.rightRotation(entry.right);
+                }
+                entry = this.leftRotation(entry);
+            } else if (balanceFactor <= -2) {
+                if (height(entry.left.right) > height(entry.left.left)) {
+                    //left-right rotation is performed
+                    this.leftRotation(entry.left);
+                }
+                entry = this.rightRotation(entry);
+            }
+            if (entry.height == oldHeight) {
+                return;
+            }
+            entry = entry.parent;
+        }
+    }
+
+    /**
+     * Left rotation on the given entry, right son becomes root of the subtree
+     * @return new root of the subtree
+     */
+    private Node<K, V> leftRotation(Node<K, V> entry) {
+        Node<K, V> rightEntry = entry.right;
+        entry.right = rightEntry.left;
+        if (rightEntry.left != null) {
+            rightEntry.left.parent = entry;
+        }
+        this.replaceChild(entry, rightEntry);
+        rightEntry.left = entry;
+        entry.parent = rightEntry;
+        entry.updateHeight();
+        rightEntry.updateHeight();
+        return rightEntry;
+    }
+
+    /**
+     * Right rotation on the given entry, left son becomes root of the subtree
+     * @return new root of the subtree
+     */
+    private Node<K, V> rightRotation(Node<K, V> entry) {
+        Node<K, V> leftEntry = entry.left;
+        entry.left = leftEntry.right;
+        if (leftEntry.right != null) {
+            leftEntry.right.parent = entry;
+        }
+        this.replaceChild(entry, leftEntry);
+        leftEntry.right = entry;
+        entry.parent = leftEntry;
+        entry.updateHeight();
+        leftEntry.updateHeight();
+        return leftEntry;
+    }
+
+    /**
+     * Method that puts the new entry to the place of the old entry in its parent
+     */
+    private void replaceChild(Node<K, V> oldEntry, Node<K, V> newEntry) {
+        Node<K, V> parent = oldEntry.parent;
+        newEntry.parent = parent;
+        if (parent == null) {
+            this.root = newEntry;
+        } else if (parent.left == oldEntry) {
+            parent.left = newEntry;
+        } else {
+            parent.right = newEntry;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final int compare(Object key1, Object key2) {
+        return (this.comparator == null) ? ((Comparable<? super K>) key1).compareTo((K) key2)
+                : this.comparator.compare((K) key1, (K) key2);
+    }
+
+    static int height(Node<?, ?> entry) {
+        return (entry == null) ? 0 : entry.height;
+    }
+
+    static <K, V> Map.Entry<K, V> exportEntry(Node<K, V> entry) {
+        return (entry == null) ? null : new AbstractMap.SimpleImmutableEntry<>(entry);
+    }
+
+    static <K> K keyOrNull(Node<K, ?> entry) {
+        return (entry == null) ? null : entry.key;
+    }
+
+    static <K> K key(Node<K, ?> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.key;
+    }
+
+    /**
+     * Node of the tree, also entry of the map
+     */
+    static final class Node<K, V> implements Map.Entry<K, V> {
+        K key;
+        V value;
+        Node<K, V> left, right, parent;
+        int height = 1; //height of the entry, leaf has height 1
+
+        Node(K key, V value, Node<K, V> parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+        }
+
+        void updateHeight() {
+            int leftHeight = AVLTreeMap.height(this.left);
+            int rightHeight = AVLTreeMap.height(this.right);
+            this.height = ((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return this.key;
+        }
+
+        @Override
+        public V getValue() {
+            return this.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return eq(this.key, entry.getKey()) && eq(this.value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return ((this.key == null) ? 0 : this.key.hashCode()) ^ ((this.value == null) ? 0 : this.value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.value;
+        }
+    }
+
+    static boolean eq(Object o1, Object o2) {
+        return (o1 == null) ? o2 == null : o1.equals(o2);
+    }
+
+    /**
+     * Fail-fast iterator over entries between the first entry and the fence key
+     * Fence is a key, not an entry, because deletion can move keys between entries.
+     */
+    final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private Node<K, V> next;
+        private Node<K, V> lastReturned;
+        private final Object fenceKey; //key of the first entry which is not returned, UNBOUNDED for the end
+        private final boolean ascending;
+        private int expectedModCount;
+
+        EntryIterator(Node<K, V> first, Node<K, V> fence, boolean ascending) {
+            this.next = first;
+            this.fenceKey = (fence == null) ? UNBOUNDED : fence.key;
+            this.ascending = ascending;
+            this.expectedModCount = AVLTreeMap.this.modCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null && this.next.key != this.fenceKey;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            return this.nextEntry();
+        }
+
+        Node<K, V> nextEntry() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (AVLTreeMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            this.lastReturned = this.next;
+            this.next = this.ascending ? successor(this.next) : predecessor(this.next);
+            return this.lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (this.lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (AVLTreeMap.this.modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            //deleted entry with two sons takes content of its successor, which is the next entry
+            if (this.ascending && this.lastReturned.left != null && this.lastReturned.right != null) {
+                this.next = this.lastReturned;
+            }
+            AVLTreeMap.this.deleteEntry(this.lastReturned);
+            this.lastReturned = null;
+            this.expectedModCount = AVLTreeMap.this.modCount;
+        }
+    }
+
+    private static final Object UNBOUNDED = new Object();
+
+    /**
+     * Set view of the entries of the whole map
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(AVLTreeMap.this.getFirstEntry(), null, true);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Node<K, V> found = AVLTreeMap.this.getEntry(entry.getKey());
+            return found != null && eq(found.value, entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!this.contains(o)) {
+                return false;
+            }
+            AVLTreeMap.this.deleteEntry(AVLTreeMap.this.getEntry(((Map.Entry<?, ?>) o).getKey()));
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return AVLTreeMap.this.size;
+        }
+
+        @Override
+        public void clear() {
+            AVLTreeMap.this.clear();
+        }
+    }
+
+    /**
+     * View of the part of the map between two bounds, in ascending or descending order
+     * Bounds are always absolute (low bound is less than high bound), methods of NavigableMap
+     * are mapped to the absolute ones according to the direction.
+     */
+    private final class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        private final boolean fromStart, toEnd; //true if the view is not bounded from that side
+        private final K low, high;
+        private final boolean lowInclusive, highInclusive;
+        private final boolean descending;
+
+        SubMap(boolean fromStart, K low, boolean lowInclusive, boolean toEnd, K high, boolean highInclusive,
+                boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (AVLTreeMap.this.compare(low, high) > 0) {
+                    throw new IllegalArgumentException("fromKey > toKey");
+                }
+            } else {
+                //comparison checks type and null of the bound
+                if (!fromStart) {
+                    AVLTreeMap.this.compare(low, low);
+                }
+                if (!toEnd) {
+                    AVLTreeMap.this.compare(high, high);
+                }
+            }
+            this.fromStart = fromStart;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.toEnd = toEnd;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        //<editor-fold defaultstate="collapsed" desc="ABSOLUTE NAVIGATION">
+        private boolean tooLow(Object key) {
+            if (!this.fromStart) {
+                int comparison = AVLTreeMap.this.compare(key, this.low);
+                return comparison < 0 || (comparison == 0 && !this.lowInclusive);
+            }
+            return false;
+        }
+
+        private boolean tooHigh(Object key) {
+            if (!this.toEnd) {
+                int comparison = AVLTreeMap.this.compare(key, this.high);
+                return comparison > 0 || (comparison == 0 && !this.highInclusive);
+            }
+            return false;
+        }
+
+        private boolean inRange(Object key) {
+            return !this.tooLow(key) && !this.tooHigh(key);
+        }
+
+        /**
+         * Method that checks the bound of the new view, exclusive bound can be equal to exclusive bound of this view
+         */
+        private boolean inRange(Object key, boolean inclusive) {
+            if (inclusive) {
+                return this.inRange(key);
+            }
+            return (this.fromStart || AVLTreeMap.this.compare(key, this.low) >= 0)
+                    && (this.toEnd || AVLTreeMap.this.compare(this.high, key) >= 0);
+        }
+
+        private Node<K, V> absLowest() {
+            Node<K, V> entry = this.fromStart ? AVLTreeMap.this.getFirstEntry()
+                    : (this.lowInclusive ? AVLTreeMap.this.getCeilingEntry(this.low) : AVLTreeMap.this.getHigherEntry(this.low));
+            return (entry == null || this.tooHigh(entry.key)) ? null : entry;
+        }
+
+        private Node<K, V> absHighest() {
+            Node<K, V> entry = this.toEnd ? AVLTreeMap.this.getLastEntry()
+                    : (this.highInclusive ? AVLTreeMap.this.getFloorEntry(this.high) : AVLTreeMap.this.getLowerEntry(this.high));
+            return (entry == null || this.tooLow(entry.key)) ? null : entry;
+        }
+
+        private Node<K, V> absCeiling(K key) {
+            if (this.tooLow(key)) {
+                return this.absLowest();
+            }
+            Node<K, V> entry = AVLTreeMap.this.getCeilingEntry(key);
+            return (entry == null || this.tooHigh(entry.key)) ? null : entry;
+        }
+
+        private Node<K, V> absHigher(K key) {
+            if (this.tooLow(key)) {
+                return this.absLowest();
+            }
+            Node<K, V> entry = AVLTreeMap.this.getHigherEntry(key);
+            return (entry == null || this.tooHigh(entry.key)) ? null : entry;
+        }
+
+        private Node<K, V> absFloor(K key) {
+            if (this.tooHigh(key)) {
+                return this.absHighest();
+            }
+            Node<K, V> entry = AVLTreeMap.this.getFloorEntry(key);
+            return (entry == null || this.tooLow(entry.key)) ? null : entry;
+        }
+
+        private Node<K, V> absLower(K key) {
+            if (this.tooHigh(key)) {
+                return this.absHighest();
+            }
+            Node<K, V> entry = AVLTreeMap.this.getLowerEntry(key);
+            return (entry == null || this.tooLow(entry.key)) ? null : entry;
+        }
+
+        /**
+         * @return first entry above the view or null if there is none
+         */
+        private Node<K, V> absHighFence() {
+            return this.toEnd ? null
+                    : (this.highInclusive ? AVLTreeMap.this.getHigherEntry(this.high) : AVLTreeMap.this.getCeilingEntry(this.high));
+        }
+
+        /**
+         * @return first entry below the view or null if there is none
+         */
+        private Node<K, V> absLowFence() {
+            return this.fromStart ? null
+                    : (this.lowInclusive ? AVLTreeMap.this.getLowerEntry(this.low) : AVLTreeMap.this.getFloorEntry(this.low));
+        }
+        //</editor-fold>
+
+        //<editor-fold defaultstate="collapsed" desc="RELATIVE NAVIGATION">
+        private Node<K, V> lowest() {
+            return this.descending ? this.absHighest() : this.absLowest();
+        }
+
+        private Node<K, V> highest() {
+            return this.descending ? this.absLowest() : this.absHighest();
+        }
+
+        private Node<K, V> ceiling(K key) {
+            return this.descending ? this.absFloor(key) : this.absCeiling(key);
+        }
+
+        private Node<K, V> higher(K key) {
+            return this.descending ? this.absLower(key) : this.absHigher(key);
+        }
+
+        private Node<K, V> floor(K key) {
+            return this.descending ? this.absCeiling(key) : this.absFloor(key);
+        }
+
+        private Node<K, V> lower(K key) {
+            return this.descending ? this.absHigher(key) : this.absLower(key);
+        }
+        //</editor-fold>
+
+        @Override
+        public boolean isEmpty() {
+            return (this.fromStart && this.toEnd) ? AVLTreeMap.this.isEmpty() : this.absLowest() == null;
+        }
+
+        @Override
+        public int size() {
+            if (this.fromStart && this.toEnd) {
+                return AVLTreeMap.this.size;
+            }
+            int count = 0;
+            for (Iterator<Map.Entry<K, V>> iterator = this.entrySet().iterator(); iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return this.inRange(key) && AVLTreeMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return this.inRange(key) ? AVLTreeMap.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!this.inRange(key)) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            return AVLTreeMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return this.inRange(key) ? AVLTreeMap.this.remove(key) : null;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            if (this.descending) {
+                return Collections.reverseOrder(AVLTreeMap.this.comparator);
+            }
+            return AVLTreeMap.this.comparator;
+        }
+
+        @Override
+        public K firstKey() {
+            return key(this.lowest());
+        }
+
+        @Override
+        public K lastKey() {
+            return key(this.highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return exportEntry(this.lowest());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return exportEntry(this.highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            Node<K, V> entry = this.lowest();
+            Map.Entry<K, V> result = exportEntry(entry);
+            if (entry != null) {
+                AVLTreeMap.this.deleteEntry(entry);
+            }
+            return result;
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            Node<K, V> entry = this.highest();
+            Map.Entry<K, V> result = exportEntry(entry);
+            if (entry != null) {
+                AVLTreeMap.this.deleteEntry(entry);
+            }
+            return result;
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return exportEntry(this.lower(key));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(this.lower(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return exportEntry(this.floor(key));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(this.floor(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(this.ceiling(key));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(this.ceiling(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return exportEntry(this.higher(key));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(this.higher(key));
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return this.navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return this.descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    if (SubMap.this.descending) {
+                        return new EntryIterator(SubMap.this.absHighest(), SubMap.this.absLowFence(), false);
+                    }
+                    return new EntryIterator(SubMap.this.absLowest(), SubMap.this.absHighFence(), true);
+                }
+
+                @Override
+                public int size() {
+                    return SubMap.this.size();
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return SubMap.this.isEmpty();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    if (!SubMap.this.inRange(entry.getKey())) {
+                        return false;
+                    }
+                    Node<K, V> found = AVLTreeMap.this.getEntry(entry.getKey());
+                    return found != null && eq(found.value, entry.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!this.contains(o)) {
+                        return false;
+                    }
+                    AVLTreeMap.this.deleteEntry(AVLTreeMap.this.getEntry(((Map.Entry<?, ?>) o).getKey()));
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(this.fromStart, this.low, this.lowInclusive, this.toEnd, this.high, this.highInclusive,
+                    !this.descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (!this.inRange(fromKey, fromInclusive) || !this.inRange(toKey, toInclusive)) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            if (this.descending) {
+                return new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true);
+            }
+            return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            if (!this.inRange(toKey, inclusive)) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            if (this.descending) {
+                return new SubMap(false, toKey, inclusive, this.toEnd, this.high, this.highInclusive, true);
+            }
+            return new SubMap(this.fromStart, this.low, this.lowInclusive, false, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            if (!this.inRange(fromKey, inclusive)) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            if (this.descending) {
+                return new SubMap(this.fromStart, this.low, this.lowInclusive, false, fromKey, inclusive, true);
+            }
+            return new SubMap(false, fromKey, inclusive, this.toEnd, this.high, this.highInclusive, false);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return this.subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return this.headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return this.tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * Navigable set view of the keys of the map or of its part
+     */
+    static final class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final NavigableMap<K, ?> map;
+
+        KeySet(NavigableMap<K, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return keyIterator(this.map.entrySet().iterator());
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return keyIterator(this.map.descendingMap().entrySet().iterator());
+        }
+
+        private static <K> Iterator<K> keyIterator(final Iterator<? extends Map.Entry<K, ?>> entries) {
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return this.map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return this.map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return this.map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!this.map.containsKey(o)) {
+                return false;
+            }
+            this.map.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            this.map.clear();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return this.map.comparator();
+        }
+
+        @Override
+        public K first() {
+            return this.map.firstKey();
+        }
+
+        @Override
+        public K last() {
+            return this.map.lastKey();
+        }
+
+        @Override
+        public K lower(K key) {
+            return this.map.lowerKey(key);
+        }
+
+        @Override
+        public K floor(K key) {
+            return this.map.floorKey(key);
+        }
+
+        @Override
+        public K ceiling(K key) {
+            return this.map.ceilingKey(key);
+        }
+
+        @Override
+        public K higher(K key) {
+            return this.map.higherKey(key);
+        }
+
+        @Override
+        public K pollFirst() {
+            Map.Entry<K, ?> entry = this.map.pollFirstEntry();
+            return (entry == null) ? null : entry.getKey();
+        }
+
+        @Override
+        public K pollLast() {
+            Map.Entry<K, ?> entry = this.map.pollLastEntry();
+            return (entry == null) ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return new KeySet<>(this.map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return new KeySet<>(this.map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return new KeySet<>(this.map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return new KeySet<>(this.map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return this.subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) {
+            return this.headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) {
+            return this.tailSet(fromElement, true);
+        }
+    }
+}
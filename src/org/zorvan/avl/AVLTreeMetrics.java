@@ -0,0 +1,143 @@
+package org.zorvan.avl;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Class represents hot-path metrics of the AVL tree: comparisons, rotations by type,
+ * steps of retracing to the root and search, insert and delete operations slower than
+ * the threshold.
+ *
+ * Metrics are switched on by the system property org.zorvan.avl.metrics=true, the slow operation
+ * threshold is set by org.zorvan.avl.metrics.slowNanos (1 ms by default). Every counting site in AVLTree
+ * is guarded by the static final ENABLED flag, so when metrics are disabled the JIT removes the code
+ * completely. Counters are plain fields updated by the thread which uses the tree, values read from
+ * other threads (JMX) may be slightly stale.
+ *
+ * Counted are operations of one tree: search, insert, delete, navigation (ceiling, floor, rank and similar)
+ * and their retracing. Join, split, set, range removal and batch operations work on detached subtrees of
+ * one or more trees, possibly in parallel, so their comparisons and rotations are not counted.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class AVLTreeMetrics implements AVLTreeMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("org.zorvan.avl.metrics");
+    static final long SLOW_OPERATION_NANOS = Long.getLong("org.zorvan.avl.metrics.slowNanos", 1000000L);
+
+    private final AVLTree tree;
+    long comparisons;
+    long leftRotations, rightRotations, leftRightRotations, rightLeftRotations;
+    long retraceSteps;
+    private long operations, slowOperations, maxOperationNanos;
+
+    AVLTreeMetrics(AVLTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Method that records duration of finished search, insert or delete
+     * @param start - System.nanoTime() at the start of the operation
+     */
+    void operationFinished(long start) {
+        long duration = System.nanoTime() - start;
+        this.operations++;
+        if (duration >= SLOW_OPERATION_NANOS) {
+            this.slowOperations++;
+        }
+        if (duration > this.maxOperationNanos) {
+            this.maxOperationNanos = duration;
+        }
+    }
+
+    /**
+     * Method that returns immutable snapshot of the current values
+     * @return AVLTreeStatistics - snapshot of the metrics
+     */
+    public AVLTreeStatistics snapshot() {
+        return new AVLTreeStatistics(this);
+    }
+
+    /**
+     * Method that registers the metrics to the platform MBean server
+     * @param name - name of the tree, part of the object name org.zorvan.avl:type=AVLTree,name=...
+     * @return ObjectName - name the metrics are registered under
+     * @throws JMException if the name is not valid or already registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("org.zorvan.avl:type=AVLTree,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void reset() {
+        this.comparisons = 0;
+        this.leftRotations = 0;
+        this.rightRotations = 0;
+        this.leftRightRotations = 0;
+        this.rightLeftRotations = 0;
+        this.retraceSteps = 0;
+        this.operations = 0;
+        this.slowOperations = 0;
+        this.maxOperationNanos = 0;
+    }
+
+    @Override
+    public int getHeight() {
+        AVLNode root = this.tree.getRoot();
+        return (root == null) ? 0 : root.nodeHeight() + 1;
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return this.tree.size();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    @Override
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public long getLeftRotations() {
+        return leftRotations;
+    }
+
+    @Override
+    public long getRightRotations() {
+        return rightRotations;
+    }
+
+    @Override
+    public long getLeftRightRotations() {
+        return leftRightRotations;
+    }
+
+    @Override
+    public long getRightLeftRotations() {
+        return rightLeftRotations;
+    }
+
+    @Override
+    public long getRetraceSteps() {
+        return retraceSteps;
+    }
+
+    @Override
+    public long getOperations() {
+        return operations;
+    }
+
+    @Override
+    public long getSlowOperations() {
+        return slowOperations;
+    }
+
+    @Override
+    public long getMaxOperationNanos() {
+        return maxOperationNanos;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,35 @@
+package org.zorvan.avl;
+
+/**
+ * Management interface of the AVL tree metrics, see AVLTreeMetrics
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public interface AVLTreeMetricsMXBean {
+
+    long getComparisons();
+
+    long getLeftRotations();
+
+    long getRightRotations();
+
+    long getLeftRightRotations();
+
+    long getRightLeftRotations();
+
+    long getRetraceSteps();
+
+    long getOperations();
+
+    long getSlowOperations();
+
+    long getMaxOperationNanos();
+
+    int getHeight();
+
+    int getNumberOfNodes();
+
+    /**
+     * Method that sets all counters to zero
+     */
+    void reset();
+}
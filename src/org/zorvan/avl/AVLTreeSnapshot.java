@@ -0,0 +1,150 @@
+package org.zorvan.avl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Class for saving and loading of the AVL tree in compact streaming binary format.
+ * Snapshot contains header (magic, version, number of nodes), nodes in inorder encoded by the codec
+ * and CRC32 checksum of the header and the nodes. Saving walks the tree by the lazy iterator and
+ * loading builds the tree by linear-time buildFromSorted directly from the stream, so neither needs
+ * a second in-memory copy of the tree and no rotation is performed.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class AVLTreeSnapshot {
+    private static final int MAGIC = 0x41564c53; //"AVLS"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private AVLTreeSnapshot() {
+    }
+
+    /**
+     * Method that writes snapshot of the tree to the stream, the stream is flushed but not closed
+     * @param tree - saved tree
+     * @param out - output stream
+     * @param codec - codec of the nodes
+     * @throws IOException if the output fails
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends AVLNode> void save(AVLTree tree, OutputStream out, AVLNodeCodec<T> codec) throws IOException {
+        CRC32 checksum = new CRC32();
+        DataOutputStream data = new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), checksum));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(tree.size());
+        for (AVLNode node : tree) {
+            codec.write((T) node, data);
+        }
+        //checksum itself is not part of the checksum
+        long value = checksum.getValue();
+        data.writeLong(value);
+        data.flush();
+    }
+
+    /**
+     * Method that reads snapshot from the stream and builds new tree from it in linear time
+     * Exactly the bytes of the snapshot are read, so the stream is left positioned after the checksum.
+     * The stream is read in small pieces, pass a buffered one if it reads from a file or a socket.
+     * @param in - input stream, it is not closed
+     * @param codec - codec of the nodes
+     * @return AVLTree - new tree
+     * @throws IOException if the input fails or the snapshot is malformed or corrupted
+     */
+    public static AVLTree load(InputStream in, AVLNodeCodec<?> codec) throws IOException {
+        CRC32 checksum = new CRC32();
+        //no buffer of its own, it would read past the snapshot
+        CheckedInputStream checked = new CheckedInputStream(in, checksum);
+        DataInputStream data = new DataInputStream(checked);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an AVL tree snapshot");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        int size = data.readInt();
+        if (size < 0) {
+            throw new IOException("Corrupted snapshot, size: " + size);
+        }
+
+        AVLTree tree = new AVLTree();
+        try {
+            tree.buildFromSorted(new NodeReader(data, codec, size), size);
+        } catch (ReadFailure e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted snapshot", e);
+        }
+        long expected = checksum.getValue();
+        if (data.readLong() != expected) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        return tree;
+    }
+
+    /**
+     * Iterator which decodes given number of nodes from the stream
+     */
+    private static final class NodeReader implements Iterator<AVLNode> {
+        private final DataInputStream data;
+        private final AVLNodeCodec<?> codec;
+        private int remaining;
+
+        NodeReader(DataInputStream data, AVLNodeCodec<?> codec, int size) {
+            this.data = data;
+            this.codec = codec;
+            this.remaining = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.remaining > 0;
+        }
+
+        @Override
+        public AVLNode next() {
+            if (this.remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            this.remaining--;
+            try {
+                return this.codec.read(this.data);
+            } catch (IOException e) {
+                throw new ReadFailure(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Carrier of the IOException through the iterator used by buildFromSorted
+     */
+    private static final class ReadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ReadFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
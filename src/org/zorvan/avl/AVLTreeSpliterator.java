@@ -0,0 +1,138 @@
+package org.zorvan.avl;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator of the AVLTree which splits at subtree roots.
+ * It covers one node (head) followed by the whole subtree of another node. Split gives away the head
+ * and the left subtree and keeps the root with its right subtree, so both parts have the same form and
+ * their sizes are known exactly from subtree sizes. Balance of the tree keeps the parts of similar size.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+final class AVLTreeSpliterator implements Spliterator<AVLNode> {
+    @SuppressWarnings("unchecked")
+    private static final Comparator<AVLNode> ORDER = new Comparator<AVLNode>() {
+        @Override
+        public int compare(AVLNode o1, AVLNode o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    private final AVLTree tree;
+    private final int expectedModCount;
+    private AVLNode head; //node preceding the subtree, null if there is none
+    private AVLNode subtree; //root of the subtree following the head
+    private ArrayDeque<AVLNode> stack; //traversal stack, created by the first tryAdvance
+    private long remaining; //number of nodes not traversed yet
+
+    AVLTreeSpliterator(AVLTree tree, AVLNode head, AVLNode subtree, int expectedModCount) {
+        this.tree = tree;
+        this.head = head;
+        this.subtree = subtree;
+        this.expectedModCount = expectedModCount;
+        this.remaining = ((head != null) ? 1 : 0) + ((subtree != null) ? subtree.getSubtreeSize() : 0);
+    }
+
+    @Override
+    public Spliterator<AVLNode> trySplit() {
+        if (this.stack != null || this.subtree == null) {
+            return null;
+        }
+        AVLNode left = this.subtree.getLeft();
+        if (this.head == null && left == null) {
+            return null;
+        }
+        AVLTreeSpliterator prefix = new AVLTreeSpliterator(this.tree, this.head, left, this.expectedModCount);
+        this.head = this.subtree;
+        this.subtree = this.subtree.getRight();
+        this.remaining -= prefix.remaining;
+        return prefix;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AVLNode> action) {
+        if (this.stack == null) {
+            this.stack = new ArrayDeque<>();
+            this.pushLeft(this.subtree);
+            this.subtree = null;
+        }
+        AVLNode node;
+        if (this.head != null) {
+            node = this.head;
+            this.head = null;
+        } else if (!this.stack.isEmpty()) {
+            node = this.stack.pop();
+            this.pushLeft(node.getRight());
+        } else {
+            return false;
+        }
+        this.remaining--;
+        action.accept(node);
+        this.checkModCount();
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super AVLNode> action) {
+        if (this.stack != null) {
+            while (this.tryAdvance(action)) {
+            }
+            return;
+        }
+        if (this.head != null) {
+            action.accept(this.head);
+            this.head = null;
+        }
+        forEach(this.subtree, action);
+        this.subtree = null;
+        this.remaining = 0;
+        this.checkModCount();
+    }
+
+    @Override
+    public long estimateSize() {
+        return this.remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super AVLNode> getComparator() {
+        //nodes are not Comparable, so the order is given by explicit comparator
+        return ORDER;
+    }
+
+    /**
+     * Method that performs the action on the subtree in ascending order
+     * @param node - root of the subtree
+     * @param action - performed action
+     */
+    static void forEach(AVLNode node, Consumer<? super AVLNode> action) {
+        while (node != null) {
+            forEach(node.getLeft(), action);
+            action.accept(node);
+            node = node.getRight();
+        }
+    }
+
+    private void pushLeft(AVLNode node) {
+        while (node != null) {
+            this.stack.push(node);
+            node = node.getLeft();
+        }
+    }
+
+    private void checkModCount() {
+        if (this.tree.getModCount() != this.expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.zorvan.avl;
+
+/**
+ * Class represents immutable snapshot of the AVL tree metrics
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class AVLTreeStatistics {
+    private final long comparisons;
+    private final long leftRotations, rightRotations, leftRightRotations, rightLeftRotations;
+    private final long retraceSteps;
+    private final long operations, slowOperations, maxOperationNanos;
+    private final int height, numberOfNodes;
+
+    AVLTreeStatistics(AVLTreeMetrics metrics) {
+        this.comparisons = metrics.getComparisons();
+        this.leftRotations = metrics.getLeftRotations();
+        this.rightRotations = metrics.getRightRotations();
+        this.leftRightRotations = metrics.getLeftRightRotations();
+        this.rightLeftRotations = metrics.getRightLeftRotations();
+        this.retraceSteps = metrics.getRetraceSteps();
+        this.operations = metrics.getOperations();
+        this.slowOperations = metrics.getSlowOperations();
+        this.maxOperationNanos = metrics.getMaxOperationNanos();
+        this.height = metrics.getHeight();
+        this.numberOfNodes = metrics.getNumberOfNodes();
+    }
+
+    /**
+     * Method that returns number of all rotations, double rotation is counted once
+     * @return long number of rotations
+     */
+    public long getRotations() {
+        return this.leftRotations + this.rightRotations + this.leftRightRotations + this.rightLeftRotations;
+    }
+
+    @Override
+    public String toString() {
+        return "AVLTreeStatistics[comparisons=" + this.comparisons
+                + ", leftRotations=" + this.leftRotations
+                + ", rightRotations=" + this.rightRotations
+                + ", leftRightRotations=" + this.leftRightRotations
+                + ", rightLeftRotations=" + this.rightLeftRotations
+                + ", retraceSteps=" + this.retraceSteps
+                + ", operations=" + this.operations
+                + ", slowOperations=" + this.slowOperations
+                + ", maxOperationNanos=" + this.maxOperationNanos
+                + ", height=" + this.height
+                + ", numberOfNodes=" + this.numberOfNodes + "]";
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    public long getLeftRotations() {
+        return leftRotations;
+    }
+
+    public long getRightRotations() {
+        return rightRotations;
+    }
+
+    public long getLeftRightRotations() {
+        return leftRightRotations;
+    }
+
+    public long getRightLeftRotations() {
+        return rightLeftRotations;
+    }
+
+    public long getRetraceSteps() {
+        return retraceSteps;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    public long getSlowOperations() {
+        return slowOperations;
+    }
+
+    public long getMaxOperationNanos() {
+        return maxOperationNanos;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,126 @@
+package org.zorvan.avl;
+
+/**
+ * Class represents AVL tree of AggregateNode nodes with range-aggregate queries in O(log n) time.
+ * All nodes of the tree must be AggregateNode instances with the monoid of the tree. Aggregates of
+ * the subtrees are maintained by AggregateNode.setNodeHeights, which AVLTree calls after every
+ * structural change. Query descends to the first node inside the range and then along both bounds,
+ * combining whole subtrees lying inside the range without visiting them.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ * @param <A> type of the aggregated values
+ */
+public class AggregateAVLTree<A> extends AVLTree {
+    private final Monoid<A> monoid;
+
+    /**
+     * Constructor of the AggregateAVLTree class
+     * @param monoid - monoid of the measures, the same as the nodes return
+     */
+    public AggregateAVLTree(Monoid<A> monoid) {
+        this.monoid = monoid;
+    }
+
+    /**
+     * Method that returns aggregate of all nodes in O(1) time
+     * @return A aggregate of the tree, identity for empty tree
+     */
+    @SuppressWarnings("unchecked")
+    public A aggregate() {
+        AggregateNode<?, A> root = (AggregateNode<?, A>) this.getRoot();
+        return (root == null) ? this.monoid.identity() : root.getAggregate();
+    }
+
+    /**
+     * Method that aggregates nodes between two bounds, both bounds are inclusive
+     * @param low - low bound, does not need to be present in the tree
+     * @param high - high bound, does not need to be present in the tree
+     * @return A aggregate of the nodes in the range
+     */
+    public A aggregate(AVLNode low, AVLNode high) {
+        return this.aggregate(low, true, high, true);
+    }
+
+    /**
+     * Method that aggregates nodes between two bounds in O(log n) time
+     * @param low - low bound, does not need to be present in the tree
+     * @param lowInclusive - true if the node equal to the low bound is aggregated
+     * @param high - high bound, does not need to be present in the tree
+     * @param highInclusive - true if the node equal to the high bound is aggregated
+     * @return A aggregate of the nodes in the range, identity if the range is empty
+     */
+    @SuppressWarnings("unchecked")
+    public A aggregate(AVLNode low, boolean lowInclusive, AVLNode high, boolean highInclusive) {
+        //first node inside the range splits the paths to both bounds
+        AggregateNode<?, A> split = (AggregateNode<?, A>) this.getRoot();
+        while (split != null) {
+            if (!aboveLow(split, low, lowInclusive)) {
+                split = (AggregateNode<?, A>) split.getRight();
+            } else if (!belowHigh(split, high, highInclusive)) {
+                split = (AggregateNode<?, A>) split.getLeft();
+            } else {
+                break;
+            }
+        }
+        if (split == null) {
+            return this.monoid.identity();
+        }
+
+        //nodes of the left subtree are below the high bound, only the low bound is checked
+        A leftPart = this.monoid.identity();
+        AggregateNode<?, A> activeNode = (AggregateNode<?, A>) split.getLeft();
+        while (activeNode != null) {
+            if (aboveLow(activeNode, low, lowInclusive)) {
+                //active node and its right subtree precede everything aggregated so far
+                leftPart = this.monoid.combine(this.combineWithRight(activeNode), leftPart);
+                activeNode = (AggregateNode<?, A>) activeNode.getLeft();
+            } else {
+                activeNode = (AggregateNode<?, A>) activeNode.getRight();
+            }
+        }
+
+        //nodes of the right subtree are above the low bound, only the high bound is checked
+        A rightPart = this.monoid.identity();
+        activeNode = (AggregateNode<?, A>) split.getRight();
+        while (activeNode != null) {
+            if (belowHigh(activeNode, high, highInclusive)) {
+                //left subtree and active node follow everything aggregated so far
+                rightPart = this.monoid.combine(rightPart, this.combineWithLeft(activeNode));
+                activeNode = (AggregateNode<?, A>) activeNode.getRight();
+            } else {
+                activeNode = (AggregateNode<?, A>) activeNode.getLeft();
+            }
+        }
+        return this.monoid.combine(this.monoid.combine(leftPart, split.getMeasure()), rightPart);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public Monoid<A> getMonoid() {
+        return this.monoid;
+    }
+    //</editor-fold>
+
+    @SuppressWarnings("unchecked")
+    private A combineWithRight(AggregateNode<?, A> node) {
+        AggregateNode<?, A> right = (AggregateNode<?, A>) node.getRight();
+        return (right == null) ? node.getMeasure() : this.monoid.combine(node.getMeasure(), right.getAggregate());
+    }
+
+    @SuppressWarnings("unchecked")
+    private A combineWithLeft(AggregateNode<?, A> node) {
+        AggregateNode<?, A> left = (AggregateNode<?, A>) node.getLeft();
+        return (left == null) ? node.getMeasure() : this.monoid.combine(left.getAggregate(), node.getMeasure());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean aboveLow(AVLNode node, AVLNode low, boolean inclusive) {
+        int comparison = node.compareTo(low);
+        return comparison > 0 || (inclusive && comparison == 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean belowHigh(AVLNode node, AVLNode high, boolean inclusive) {
+        int comparison = node.compareTo(high);
+        return comparison < 0 || (inclusive && comparison == 0);
+    }
+}
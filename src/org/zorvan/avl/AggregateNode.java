@@ -0,0 +1,55 @@
+package org.zorvan.avl;
+
+/**
+ * Abstract class that represents node of the AggregateAVLTree.
+ * Every node keeps aggregate of the measures of its subtree combined in ascending order by the monoid,
+ * it is recomputed together with node heights after every insertion, deletion and rotation.
+ * Measure of the node must not change while the node is in the tree.
+ * @param <T> - generic type of the node
+ * @param <A> - type of the aggregated values
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public abstract class AggregateNode<T, A> extends AVLNode<T> {
+    private A aggregate; //aggregate of the measures in the subtree of the node
+
+    /**
+     * Method that returns value of the node which is aggregated
+     * @return A measure of the node
+     */
+    public abstract A getMeasure();
+
+    /**
+     * Method that returns monoid combining the measures, all nodes of the tree must return the same monoid
+     * @return Monoid monoid of the tree
+     */
+    public abstract Monoid<A> getMonoid();
+
+    /**
+     * Method to set node heights, subtree size and aggregate of the subtree
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setNodeHeights() {
+        super.setNodeHeights();
+        Monoid<A> monoid = this.getMonoid();
+        A result = this.getMeasure();
+        AggregateNode<T, A> left = (AggregateNode<T, A>) this.getLeft();
+        if (left != null) {
+            result = monoid.combine(left.getAggregate(), result);
+        }
+        AggregateNode<T, A> right = (AggregateNode<T, A>) this.getRight();
+        if (right != null) {
+            result = monoid.combine(result, right.getAggregate());
+        }
+        this.aggregate = result;
+    }
+
+    /**
+     * Method that returns aggregate of the subtree of the node
+     * @return A aggregate of the subtree, measure of the node if it is not in any tree yet
+     */
+    public A getAggregate() {
+        return (this.aggregate != null) ? this.aggregate : this.getMeasure();
+    }
+}
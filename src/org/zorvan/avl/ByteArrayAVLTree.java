@@ -0,0 +1,442 @@
+package org.zorvan.avl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class represents AVL tree specialized for byte array keys, e.g. UTF-8 encoded strings.
+ * Keys are ordered lexicographically as unsigned bytes, which is the code point order of UTF-8 strings.
+ * Comparisons skip prefixes already known to be shared, so long keys with common prefixes (URLs, paths)
+ * are not compared from the first byte at every level:
+ * <ul>
+ * <li>plain mode keeps whole keys and tracks the common prefix of the searched key with the lower and upper
+ * bound of the descent, every key in the subtree shares at least the shorter of them</li>
+ * <li>prefix-compressed mode keeps in every node only the length of the prefix shared with its parent and
+ * the rest of the key, so shared prefixes are stored once per path; searches compare only the stored rests
+ * and never rebuild whole keys, insertions and deletions rebuild keys along their path</li>
+ * </ul>
+ * Given arrays may be stored in the tree, they must not be modified while they are in the tree.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class ByteArrayAVLTree {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final boolean compressed;
+    private Node root;
+    private int size;
+    private boolean modified; //result of the last recursive insertion or deletion
+    private Node detached; //minimum removed by removeMin
+    private byte[] detachedKey; //whole key of the detached minimum
+
+    /**
+     * Constructor of the ByteArrayAVLTree class in plain mode
+     */
+    public ByteArrayAVLTree() {
+        this(false);
+    }
+
+    /**
+     * Constructor of the ByteArrayAVLTree class
+     * @param compressed - true for prefix-compressed key storage
+     */
+    public ByteArrayAVLTree(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Method for search of the key
+     * @param key - wanted key
+     * @return true if the key is present in the tree
+     */
+    public boolean search(byte[] key) {
+        return this.compressed ? this.searchCompressed(key) : this.searchPlain(key);
+    }
+
+    /**
+     * Method for search of the UTF-8 encoded string
+     * @param key - wanted string
+     * @return true if the string is present in the tree
+     */
+    public boolean search(String key) {
+        return this.search(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean searchPlain(byte[] key) {
+        Node node = this.root;
+        int low = 0; //common prefix with the greatest lesser node on the path
+        int high = 0; //common prefix with the least greater node on the path
+        while (node != null) {
+            byte[] nodeKey = node.suffix;
+            int from = Math.min(low, high);
+            int common = from + mismatch(key, from, nodeKey, from);
+            if (common == key.length && common == nodeKey.length) {
+                return true;
+            }
+            if (compareAt(key, common, nodeKey, common) < 0) {
+                high = common;
+                node = node.left;
+            } else {
+                low = common;
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    private boolean searchCompressed(byte[] key) {
+        Node node = this.root;
+        int common = 0; //common prefix with the parent
+        int direction = 0; //comparison with the parent
+        while (node != null) {
+            int shared = node.shared;
+            byte[] suffix = node.suffix;
+            if (shared > common) {
+                //node agrees with the parent beyond the mismatch of the key, so comparison is the same
+            } else if (shared < common) {
+                //key agrees with the parent where the node differs from it
+                direction = (suffix.length == 0) ? 1 : (key[shared] & 0xff) - (suffix[0] & 0xff);
+                common = shared;
+            } else {
+                int matched = mismatch(key, shared, suffix, 0);
+                common = shared + matched;
+                if (common == key.length && matched == suffix.length) {
+                    return true;
+                }
+                direction = compareAt(key, common, suffix, matched);
+            }
+            node = (direction < 0) ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Insertion of the key to the tree
+     * @param key - inserted key
+     * @return true - if the key was inserted, false - if it is already present
+     */
+    public boolean insert(byte[] key) {
+        this.modified = false;
+        this.root = this.insert(this.root, EMPTY, key, 0, 0);
+        if (this.modified) {
+            this.size++;
+        }
+        return this.modified;
+    }
+
+    /**
+     * Insertion of the UTF-8 encoded string to the tree
+     * @param key - inserted string
+     * @return true - if the string was inserted, false - if it is already present
+     */
+    public boolean insert(String key) {
+        return this.insert(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Method that inserts the key to the subtree
+     * @param node - root of the subtree
+     * @param base - whole key of the parent of the subtree
+     * @param key - inserted key
+     * @param low - common prefix of the key with the lower bound of the subtree
+     * @param high - common prefix of the key with the upper bound of the subtree
+     * @return Node - new root of the subtree encoded relative to the base
+     */
+    private Node insert(Node node, byte[] base, byte[] key, int low, int high) {
+        if (node == null) {
+            this.modified = true;
+            Node inserted = new Node();
+            inserted.suffix = key;
+            this.encode(inserted, key, base);
+            return inserted;
+        }
+        byte[] nodeKey = this.keyOf(node, base);
+        int from = Math.min(low, high);
+        int common = from + mismatch(key, from, nodeKey, from);
+        int comparison = compareAt(key, common, nodeKey, common);
+        if (comparison == 0) {
+            return node;
+        }
+        if (comparison < 0) {
+            node.left = this.insert(node.left, nodeKey, key, low, common);
+        } else {
+            node.right = this.insert(node.right, nodeKey, key, common, high);
+        }
+        return this.modified ? this.balance(node, base, nodeKey) : node;
+    }
+
+    /**
+     * Deletion of the key from the tree
+     * @param key - deleted key
+     * @return true - if the key was deleted, false - if it is not present
+     */
+    public boolean delete(byte[] key) {
+        this.modified = false;
+        this.root = this.delete(this.root, EMPTY, key, 0, 0);
+        if (this.modified) {
+            this.size--;
+        }
+        return this.modified;
+    }
+
+    /**
+     * Deletion of the UTF-8 encoded string from the tree
+     * @param key - deleted string
+     * @return true - if the string was deleted, false - if it is not present
+     */
+    public boolean delete(String key) {
+        return this.delete(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Node delete(Node node, byte[] base, byte[] key, int low, int high) {
+        if (node == null) {
+            return null;
+        }
+        byte[] nodeKey = this.keyOf(node, base);
+        int from = Math.min(low, high);
+        int common = from + mismatch(key, from, nodeKey, from);
+        int comparison = compareAt(key, common, nodeKey, common);
+        if (comparison < 0) {
+            node.left = this.delete(node.left, nodeKey, key, low, common);
+        } else if (comparison > 0) {
+            node.right = this.delete(node.right, nodeKey, key, common, high);
+        } else {
+            this.modified = true;
+            if (node.left == null || node.right == null) {
+                Node child = (node.left != null) ? node.left : node.right;
+                if (child != null) {
+                    this.encode(child, this.keyOf(child, nodeKey), base);
+                }
+                return child;
+            }
+            //successor takes place of the deleted node
+            Node right = this.removeMin(node.right, nodeKey);
+            Node successor = this.detached;
+            byte[] successorKey = this.detachedKey;
+            this.detached = null;
+            this.detachedKey = null;
+            successor.left = node.left;
+            successor.right = right;
+            this.encode(successor.left, this.keyOf(successor.left, nodeKey), successorKey);
+            if (right != null) {
+                this.encode(right, this.keyOf(right, nodeKey), successorKey);
+            }
+            this.encode(successor, successorKey, base);
+            return this.balance(successor, base, successorKey);
+        }
+        return this.modified ? this.balance(node, base, nodeKey) : node;
+    }
+
+    /**
+     * Method that detaches the least node of the subtree
+     * @param node - root of the subtree
+     * @param base - whole key of the parent of the subtree
+     * @return Node - new root of the subtree encoded relative to the base
+     */
+    private Node removeMin(Node node, byte[] base) {
+        byte[] nodeKey = this.keyOf(node, base);
+        if (node.left == null) {
+            this.detached = node;
+            this.detachedKey = nodeKey;
+            Node right = node.right;
+            if (right != null) {
+                this.encode(right, this.keyOf(right, nodeKey), base);
+            }
+            return right;
+        }
+        node.left = this.removeMin(node.left, nodeKey);
+        return this.balance(node, base, nodeKey);
+    }
+
+    /**
+     * Method that updates height of the node and rotates it if it is out of balance
+     */
+    private Node balance(Node node, byte[] base, byte[] nodeKey) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = this.rotateLeft(node.left, nodeKey, this.keyOf(node.left, nodeKey));
+            }
+            return this.rotateRight(node, base, nodeKey);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = this.rotateRight(node.right, nodeKey, this.keyOf(node.right, nodeKey));
+            }
+            return this.rotateLeft(node, base, nodeKey);
+        }
+        updateHeight(node);
+        return node;
+    }
+
+    /**
+     * Right rotation, nodes which get new parent are encoded again
+     */
+    private Node rotateRight(Node node, byte[] base, byte[] nodeKey) {
+        Node left = node.left;
+        byte[] leftKey = this.keyOf(left, nodeKey);
+        Node middle = left.right;
+        if (middle != null) {
+            this.encode(middle, this.keyOf(middle, leftKey), nodeKey);
+        }
+        node.left = middle;
+        left.right = node;
+        this.encode(node, nodeKey, leftKey);
+        this.encode(left, leftKey, base);
+        updateHeight(node);
+        updateHeight(left);
+        return left;
+    }
+
+    /**
+     * Left rotation, nodes which get new parent are encoded again
+     */
+    private Node rotateLeft(Node node, byte[] base, byte[] nodeKey) {
+        Node right = node.right;
+        byte[] rightKey = this.keyOf(right, nodeKey);
+        Node middle = right.left;
+        if (middle != null) {
+            this.encode(middle, this.keyOf(middle, rightKey), nodeKey);
+        }
+        node.right = middle;
+        right.left = node;
+        this.encode(node, nodeKey, rightKey);
+        this.encode(right, rightKey, base);
+        updateHeight(node);
+        updateHeight(right);
+        return right;
+    }
+
+    /**
+     * Method that returns whole key of the node
+     * @param node - node of the tree
+     * @param base - whole key of the parent of the node
+     * @return byte[] - stored array in plain mode, new array in compressed mode
+     */
+    private byte[] keyOf(Node node, byte[] base) {
+        if (!this.compressed || node.shared == 0) {
+            return node.suffix;
+        }
+        byte[] key = new byte[node.shared + node.suffix.length];
+        System.arraycopy(base, 0, key, 0, node.shared);
+        System.arraycopy(node.suffix, 0, key, node.shared, node.suffix.length);
+        return key;
+    }
+
+    /**
+     * Method that stores the key in the node relative to the key of its parent, plain mode keeps whole key
+     */
+    private void encode(Node node, byte[] key, byte[] base) {
+        if (!this.compressed) {
+            return;
+        }
+        int shared = mismatch(key, 0, base, 0);
+        if (shared != node.shared || node.suffix.length != key.length - shared) {
+            node.shared = shared;
+            node.suffix = (shared == 0) ? key : Arrays.copyOfRange(key, shared, key.length);
+        }
+    }
+
+    /**
+     * Inorder traversal of the whole tree
+     * @return byte[][] - keys in ascending order
+     */
+    public byte[][] inorder() {
+        byte[][] keys = new byte[this.size][];
+        this.inorder(this.root, EMPTY, keys, 0);
+        return keys;
+    }
+
+    private int inorder(Node node, byte[] base, byte[][] keys, int index) {
+        if (node == null) {
+            return index;
+        }
+        byte[] nodeKey = this.keyOf(node, base);
+        index = this.inorder(node.left, nodeKey, keys, index);
+        keys[index++] = nodeKey;
+        return this.inorder(node.right, nodeKey, keys, index);
+    }
+
+    /**
+     * Method that returns number of key bytes stored in the nodes
+     * @return long - sum of lengths of the stored keys, or of their rests in compressed mode
+     */
+    public long getStoredKeyBytes() {
+        return storedKeyBytes(this.root);
+    }
+
+    private static long storedKeyBytes(Node node) {
+        return (node == null) ? 0 : node.suffix.length + storedKeyBytes(node.left) + storedKeyBytes(node.right);
+    }
+
+    /**
+     * Method that compares two byte arrays lexicographically as unsigned bytes
+     * @param first - first array
+     * @param second - second array
+     * @return int - negative, zero or positive if the first array is less, equal or greater
+     */
+    public static int compare(byte[] first, byte[] second) {
+        int common = mismatch(first, 0, second, 0);
+        return compareAt(first, common, second, common);
+    }
+
+    /**
+     * Method that returns length of the common run of two arrays from given positions
+     * Manual loop, Arrays.mismatch needs Java 9.
+     */
+    private static int mismatch(byte[] first, int firstFrom, byte[] second, int secondFrom) {
+        int length = Math.min(first.length - firstFrom, second.length - secondFrom);
+        for (int i = 0; i < length; i++) {
+            if (first[firstFrom + i] != second[secondFrom + i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Method that compares two arrays at their first mismatch, shorter array is less
+     */
+    private static int compareAt(byte[] first, int firstIndex, byte[] second, int secondIndex) {
+        if (firstIndex == first.length) {
+            return (secondIndex == second.length) ? 0 : -1;
+        }
+        if (secondIndex == second.length) {
+            return 1;
+        }
+        return (first[firstIndex] & 0xff) - (second[secondIndex] & 0xff);
+    }
+
+    private static int height(Node node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    private static void updateHeight(Node node) {
+        node.height = (byte) (1 + Math.max(height(node.left), height(node.right)));
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public int getNumberOfNodes() {
+        return size;
+    }
+
+    public int getHeight() {
+        return height(root);
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+    //</editor-fold>
+
+    /**
+     * Node of the tree
+     */
+    private static final class Node {
+        private byte[] suffix; //whole key in plain mode, rest of the key after the shared prefix in compressed mode
+        private int shared; //length of the prefix shared with the parent, always 0 in plain mode
+        private Node left;
+        private Node right;
+        private byte height = 1;
+    }
+}
@@ -0,0 +1,56 @@
+package org.zorvan.avl;
+
+/**
+ * Abstract class that represents low-memory node of the CompactAVLTree,
+ * node keeps only left and right son and balance factor in one byte,
+ * there is no parent reference, no heights and no subtree size
+ * @param <T> - generic type of the node
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public abstract class CompactAVLNode<T> {
+    private CompactAVLNode left, right; //left and right node of the particular node
+    private byte balance; //height of the right subtree minus height of the left subtree: -1, 0 or 1
+
+    /**
+     * Abstract method for object comparison.
+     * @param o - compared object
+     * @return int
+     */
+    public abstract int compareTo(T o);
+
+    @Override
+    public abstract String toString();
+
+    /**
+     * Just for testing purpose.
+     * @return int
+     */
+    public abstract int getValue();
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS & SETTERS">
+    public CompactAVLNode getLeft() {
+        return left;
+    }
+
+    public void setLeft(CompactAVLNode left) {
+        this.left = left;
+    }
+
+    public CompactAVLNode getRight() {
+        return right;
+    }
+
+    public void setRight(CompactAVLNode right) {
+        this.right = right;
+    }
+
+    public int getBalance() {
+        return balance;
+    }
+
+    public void setBalance(int balance) {
+        this.balance = (byte) balance;
+    }
+    //</editor-fold>
+}
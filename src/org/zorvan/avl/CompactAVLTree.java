@@ -0,0 +1,346 @@
+package org.zorvan.avl;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class represents AVL tree of low-memory nodes (CompactAVLNode).
+ * Node stores balance factor in one byte instead of two int heights, subtree size and parent reference,
+ * which saves 12 to 16 bytes per node. Insert and delete remember the path from the root in a stack
+ * owned by the tree and retrace along it, balance factors are updated incrementally without
+ * recomputing heights of the sons. Tree does not support order statistics and is not thread-safe.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class CompactAVLTree implements Iterable<CompactAVLNode> {
+    private static final int MAX_DEPTH = 64; //AVL tree of 2^31 nodes is at most 45 levels high
+
+    private CompactAVLNode root; //root of the tree
+    private int size; //number of nodes in the tree
+    private int modCount; //number of structural modifications, used by fail-fast iterator
+    private final CompactAVLNode[] path = new CompactAVLNode[MAX_DEPTH]; //ancestors of the active node
+    private final boolean[] wentRight = new boolean[MAX_DEPTH]; //direction taken from the ancestor
+
+    /**
+     * Constructor of the CompactAVLTree class
+     */
+    public CompactAVLTree() {
+        this.root = null;
+    }
+
+    /**
+     * Method for search of particular node in the tree
+     * @param node - wanted node
+     * @return found node or null if node is not present in the tree
+     */
+    public CompactAVLNode search(CompactAVLNode node) {
+        CompactAVLNode activeNode = this.root;
+        while (activeNode != null) {
+            int comparison = node.compareTo(activeNode);
+            if (comparison == 0) {
+                return activeNode;
+            }
+            activeNode = (comparison > 0) ? activeNode.getRight() : activeNode.getLeft();
+        }
+        return null;
+    }
+
+    /**
+     * Insertion of the node to the tree
+     * @param node - node to be inserted
+     * @return true - if node was inserted, false - if node was not inserted
+     */
+    public boolean insert(CompactAVLNode node) {
+        int depth = 0;
+        CompactAVLNode activeNode = this.root;
+        while (activeNode != null) {
+            int comparison = node.compareTo(activeNode);
+            if (comparison == 0) {
+                return false; //node already exists in the tree
+            }
+            this.path[depth] = activeNode;
+            this.wentRight[depth] = comparison > 0;
+            depth++;
+            activeNode = (comparison > 0) ? activeNode.getRight() : activeNode.getLeft();
+        }
+
+        node.setLeft(null);
+        node.setRight(null);
+        node.setBalance(0);
+        this.setChild(depth - 1, node);
+        this.size++;
+        this.modCount++;
+
+        //retrace while the height of the subtree grows
+        for (int i = depth - 1; i >= 0; i--) {
+            CompactAVLNode parent = this.path[i];
+            int balance = parent.getBalance() + (this.wentRight[i] ? 1 : -1);
+            parent.setBalance(balance);
+            if (balance == 0) {
+                break;
+            } else if (balance == 1 || balance == -1) {
+                continue;
+            }
+            //rotated subtree has the same height as before the insertion
+            this.setChild(i - 1, this.rebalance(parent));
+            break;
+        }
+        this.clearPath(depth);
+        return true;
+    }
+
+    /**
+     * Deletion of the node from the tree
+     * @param node - node equal to the deleted one
+     * @return true - if the node was deleted, false - if the node is not present
+     */
+    public boolean delete(CompactAVLNode node) {
+        int depth = 0;
+        CompactAVLNode target = this.root;
+        while (target != null) {
+            int comparison = node.compareTo(target);
+            if (comparison == 0) {
+                break;
+            }
+            this.path[depth] = target;
+            this.wentRight[depth] = comparison > 0;
+            depth++;
+            target = (comparison > 0) ? target.getRight() : target.getLeft();
+        }
+        if (target == null) {
+            this.clearPath(depth);
+            return false;
+        }
+
+        if (target.getLeft() != null && target.getRight() != null) {
+            //successor is unlinked and takes the place of the deleted node
+            int targetDepth = depth;
+            this.path[depth] = target;
+            this.wentRight[depth] = true;
+            depth++;
+            CompactAVLNode successor = target.getRight();
+            while (successor.getLeft() != null) {
+                this.path[depth] = successor;
+                this.wentRight[depth] = false;
+                depth++;
+                successor = successor.getLeft();
+            }
+            this.setChild(depth - 1, successor.getRight());
+            successor.setLeft(target.getLeft());
+            successor.setRight(target.getRight());
+            successor.setBalance(target.getBalance());
+            this.setChild(targetDepth - 1, successor);
+            this.path[targetDepth] = successor;
+        } else {
+            this.setChild(depth - 1, (target.getLeft() != null) ? target.getLeft() : target.getRight());
+        }
+        target.setLeft(null);
+        target.setRight(null);
+        target.setBalance(0);
+        this.size--;
+        this.modCount++;
+
+        //retrace while the height of the subtree shrinks
+        for (int i = depth - 1; i >= 0; i--) {
+            CompactAVLNode parent = this.path[i];
+            int balance = parent.getBalance() + (this.wentRight[i] ? -1 : 1);
+            parent.setBalance(balance);
+            if (balance == 1 || balance == -1) {
+                break;
+            } else if (balance == 0) {
+                continue;
+            }
+            CompactAVLNode sibling = (balance > 0) ? parent.getRight() : parent.getLeft();
+            int siblingBalance = sibling.getBalance();
+            this.setChild(i - 1, this.rebalance(parent));
+            //rotation over balanced sibling keeps the height of the subtree
+            if (siblingBalance == 0) {
+                break;
+            }
+        }
+        this.clearPath(depth);
+        return true;
+    }
+
+    /**
+     * Method that removes all nodes from the tree
+     */
+    public void clear() {
+        this.root = null;
+        this.size = 0;
+        this.modCount++;
+    }
+
+    /**
+     * Method that returns the number of nodes in the tree
+     * @return int number of nodes
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Method that returns height of the tree, it follows the higher son from the root
+     * @return int height of the tree, 0 for empty tree
+     */
+    public int getHeight() {
+        int height = 0;
+        CompactAVLNode node = this.root;
+        while (node != null) {
+            height++;
+            node = (node.getBalance() < 0) ? node.getLeft() : node.getRight();
+        }
+        return height;
+    }
+
+    /**
+     * Method that returns lazy inorder iterator, it keeps its own stack of at most height nodes
+     * @return Iterator of the nodes in ascending order
+     */
+    @Override
+    public Iterator<CompactAVLNode> iterator() {
+        return new InorderIterator();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public CompactAVLNode getRoot() {
+        return this.root;
+    }
+    //</editor-fold>
+
+    /**
+     * Method that links the son to the ancestor on the path in the remembered direction
+     * @param index - index of the ancestor in the path, -1 for the root of the tree
+     * @param child - linked son
+     */
+    private void setChild(int index, CompactAVLNode child) {
+        if (index < 0) {
+            this.root = child;
+        } else if (this.wentRight[index]) {
+            this.path[index].setRight(child);
+        } else {
+            this.path[index].setLeft(child);
+        }
+    }
+
+    private void clearPath(int depth) {
+        //path must not keep deleted nodes reachable
+        for (int i = 0; i < depth; i++) {
+            this.path[i] = null;
+        }
+    }
+
+    /**
+     * Method that rotates the node with balance factor 2 or -2
+     * @param node - unbalanced node
+     * @return CompactAVLNode new root of the subtree
+     */
+    private CompactAVLNode rebalance(CompactAVLNode node) {
+        if (node.getBalance() > 0) {
+            return (node.getRight().getBalance() < 0) ? this.rightLeftRotation(node) : this.leftRotation(node);
+        } else {
+            return (node.getLeft().getBalance() > 0) ? this.leftRightRotation(node) : this.rightRotation(node);
+        }
+    }
+
+    private CompactAVLNode leftRotation(CompactAVLNode node) {
+        CompactAVLNode right = node.getRight();
+        node.setRight(right.getLeft());
+        right.setLeft(node);
+        if (right.getBalance() == 0) {
+            //only after deletion
+            node.setBalance(1);
+            right.setBalance(-1);
+        } else {
+            node.setBalance(0);
+            right.setBalance(0);
+        }
+        return right;
+    }
+
+    private CompactAVLNode rightRotation(CompactAVLNode node) {
+        CompactAVLNode left = node.getLeft();
+        node.setLeft(left.getRight());
+        left.setRight(node);
+        if (left.getBalance() == 0) {
+            //only after deletion
+            node.setBalance(-1);
+            left.setBalance(1);
+        } else {
+            node.setBalance(0);
+            left.setBalance(0);
+        }
+        return left;
+    }
+
+    private CompactAVLNode rightLeftRotation(CompactAVLNode node) {
+        CompactAVLNode right = node.getRight();
+        CompactAVLNode middle = right.getLeft();
+        right.setLeft(middle.getRight());
+        middle.setRight(right);
+        node.setRight(middle.getLeft());
+        middle.setLeft(node);
+        node.setBalance((middle.getBalance() > 0) ? -1 : 0);
+        right.setBalance((middle.getBalance() < 0) ? 1 : 0);
+        middle.setBalance(0);
+        return middle;
+    }
+
+    private CompactAVLNode leftRightRotation(CompactAVLNode node) {
+        CompactAVLNode left = node.getLeft();
+        CompactAVLNode middle = left.getRight();
+        left.setRight(middle.getLeft());
+        middle.setLeft(left);
+        node.setLeft(middle.getRight());
+        middle.setRight(node);
+        node.setBalance((middle.getBalance() < 0) ? 1 : 0);
+        left.setBalance((middle.getBalance() > 0) ? -1 : 0);
+        middle.setBalance(0);
+        return middle;
+    }
+
+    /**
+     * Lazy inorder iterator without parent references
+     */
+    private final class InorderIterator implements Iterator<CompactAVLNode> {
+        private final CompactAVLNode[] stack = new CompactAVLNode[MAX_DEPTH];
+        private int depth;
+        private final int expectedModCount = modCount;
+
+        InorderIterator() {
+            this.pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.depth > 0;
+        }
+
+        @Override
+        public CompactAVLNode next() {
+            if (this.depth == 0) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != this.expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            CompactAVLNode node = this.stack[--this.depth];
+            this.stack[this.depth] = null;
+            this.pushLeft(node.getRight());
+            return node;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void pushLeft(CompactAVLNode node) {
+            while (node != null) {
+                this.stack[this.depth++] = node;
+                node = node.getLeft();
+            }
+        }
+    }
+}
@@ -0,0 +1,978 @@
+package org.zorvan.avl;
+
+import java.util.Comparator;
+
+/**
+ * Class represents thread-safe AVL tree with optimistic lock-free reads.
+ * Implementation follows the relaxed-balance concurrent AVL tree of Bronson, Casper, Chafi
+ * and Olukotun ("A Practical Concurrent Binary Search Tree", PPoPP 2010).
+ *
+ * Every node carries a version (OVL) which is changed whenever the node is rotated or unlinked.
+ * Searches never lock: they read the version of a node, read its child and validate that the
+ * version did not change, so they only retry when a rotation actually moved the part of the
+ * tree they are walking through. Writers lock only the nodes they modify (parent and node for
+ * linking or unlinking, up to four nodes for a double rotation). Removed nodes with two sons
+ * are kept as routing nodes without value and are unlinked later when they have at most one son.
+ * Heights are repaired after every change and the tree is rebalanced using the same rotations
+ * as AVLTree, but balance can be temporarily relaxed while concurrent repairs are in progress.
+ *
+ * All operations are linearizable. Mutable AVLNode can not be shared between threads this way,
+ * so the tree has its own node representation and stores keys and values directly.
+ *
+ * @param <K> - type of the keys
+ * @param <V> - type of the values
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class ConcurrentAVLTree<K, V> {
+    //node versions (OVL)
+    private static final long UNLINKED_OVL = 1L;
+    private static final long OVL_GROW_LOCK_MASK = 2L;
+    private static final long OVL_SHRINK_LOCK_MASK = 4L;
+    private static final int OVL_GROW_COUNT_SHIFT = 3;
+    private static final long OVL_GROW_COUNT_MASK = ((1L << 8) - 1) << OVL_GROW_COUNT_SHIFT;
+    private static final int OVL_SHRINK_COUNT_SHIFT = OVL_GROW_COUNT_SHIFT + 8;
+
+    //results of the node condition
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    //kinds of update
+    private static final int UPDATE_ALWAYS = 0;
+    private static final int UPDATE_IF_ABSENT = 1;
+
+    private static final int SPIN_COUNT = 100;
+    private static final int YIELD_COUNT = 0;
+
+    //returned by the attempts when the operation needs to be retried from the parent
+    private static final Object SPECIAL_RETRY = new Object();
+
+    private final Comparator<? super K> comparator;
+    //sentinel node without key, root of the tree is its right son
+    private final Node<K, V> rootHolder;
+
+    /**
+     * Constructor of the ConcurrentAVLTree class, keys are compared by their natural ordering
+     */
+    public ConcurrentAVLTree() {
+        this(null);
+    }
+
+    /**
+     * Constructor of the ConcurrentAVLTree class
+     * @param comparator - comparator of the keys, null for natural ordering
+     */
+    public ConcurrentAVLTree(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        this.rootHolder = new Node<>(null, 1, null, null, 0L);
+    }
+
+    /**
+     * Method for search of particular key in the tree, never blocks
+     * @param key - wanted key
+     * @return value of the key or null if key is not present in the tree
+     */
+    @SuppressWarnings("unchecked")
+    public V search(K key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            Node<K, V> right = this.rootHolder.right;
+            if (right == null) {
+                return null;
+            }
+            int rightComparison = this.compare(key, right.key);
+            if (rightComparison == 0) {
+                return (V) right.value;
+            }
+            long ovl = right.changeOVL;
+            if (isShrinkingOrUnlinked(ovl)) {
+                right.waitUntilChangeCompleted(ovl);
+            } else if (right == this.rootHolder.right) {
+                Object value = this.attemptGet(key, right, rightComparison, ovl);
+                if (value != SPECIAL_RETRY) {
+                    return (V) value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Insertion of the key to the tree
+     * @param key - key to be inserted
+     * @param value - value of the key, not null
+     * @return true - if key was inserted, false - if key was already present
+     * @throws NullPointerException if the key or the value is null
+     */
+    public boolean insert(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return this.update(key, UPDATE_IF_ABSENT, value) == null;
+    }
+
+    /**
+     * Insertion of the key to the tree or replacement of its value
+     * @param key - key to be inserted
+     * @param value - new value of the key, not null
+     * @return previous value of the key or null if key was not present
+     * @throws NullPointerException if the key or the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return (V) this.update(key, UPDATE_ALWAYS, value);
+    }
+
+    /**
+     * Deletion of the key from the tree
+     * @param key - key to be deleted
+     * @return true - if the key was deleted, false - if the key was not present
+     */
+    public boolean delete(K key) {
+        return this.update(key, UPDATE_ALWAYS, null) != null;
+    }
+
+    /**
+     * Method that counts keys in the tree
+     * Tree is traversed, so it takes O(n) time and the result is exact only if the tree
+     * is not modified concurrently.
+     * @return int number of keys in tree
+     */
+    public int size() {
+        return countValues(this.rootHolder.right);
+    }
+
+    /**
+     * Method that returns true if the tree contains no key
+     * @return true - if the tree is empty
+     */
+    public boolean isEmpty() {
+        return !hasValue(this.rootHolder.right);
+    }
+
+    /**
+     * Method that returns sentinel node whose right son is root of the tree, used by tests
+     * @return sentinel node
+     */
+    Node<K, V> getRootHolder() {
+        return this.rootHolder;
+    }
+
+    private static int countValues(Node<?, ?> node) {
+        if (node == null) {
+            return 0;
+        }
+        return ((node.value != null) ? 1 : 0) + countValues(node.left) + countValues(node.right);
+    }
+
+    /**
+     * Method that looks for any node with a value, routing nodes of removed keys are skipped
+     * @param node - root of the subtree
+     * @return true - if the subtree contains a key, the search stops at the first one
+     */
+    private static boolean hasValue(Node<?, ?> node) {
+        while (node != null) {
+            if (node.value != null || hasValue(node.left)) {
+                return true;
+            }
+            node = node.right;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K key, K nodeKey) {
+        if (this.comparator != null) {
+            return this.comparator.compare(key, nodeKey);
+        }
+        return ((Comparable<? super K>) key).compareTo(nodeKey);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="SEARCH">
+    /**
+     * Method that searches subtree of the node whose version was validated by the caller
+     * @param key - wanted key
+     * @param node - root of the searched subtree
+     * @param direction - result of comparison of the key with the node key
+     * @param nodeOVL - version of the node read by the caller
+     * @return value, null if key is not present or SPECIAL_RETRY if the caller must retry
+     */
+    private Object attemptGet(K key, Node<K, V> node, int direction, long nodeOVL) {
+        while (true) {
+            Node<K, V> child = node.child(direction);
+            if (child == null) {
+                if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                    return SPECIAL_RETRY;
+                }
+                //key is not present
+                return null;
+            }
+            int childComparison = this.compare(key, child.key);
+            if (childComparison == 0) {
+                //routing nodes and unlinked nodes do not have value
+                return child.value;
+            }
+            long childOVL = child.changeOVL;
+            if (isShrinkingOrUnlinked(childOVL)) {
+                child.waitUntilChangeCompleted(childOVL);
+                if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                    return SPECIAL_RETRY;
+                }
+                //else retry with the new child
+            } else if (child != node.child(direction)) {
+                if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                    return SPECIAL_RETRY;
+                }
+                //else retry with the new child
+            } else {
+                if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                    return SPECIAL_RETRY;
+                }
+                //the way to the child is valid, the child validates the rest of the way itself
+                Object value = this.attemptGet(key, child, childComparison, childOVL);
+                if (value != SPECIAL_RETRY) {
+                    return value;
+                }
+            }
+        }
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="UPDATE">
+    /**
+     * Method that inserts, replaces or removes value of the key
+     * @param key - updated key
+     * @param kind - UPDATE_ALWAYS or UPDATE_IF_ABSENT
+     * @param newValue - new value, null for removal
+     * @return previous value or null if the key was not present
+     */
+    private Object update(K key, int kind, Object newValue) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            Node<K, V> right = this.rootHolder.right;
+            if (right == null) {
+                //key is not present
+                if (newValue == null || this.attemptInsertIntoEmpty(key, newValue)) {
+                    return null;
+                }
+            } else {
+                long ovl = right.changeOVL;
+                if (isShrinkingOrUnlinked(ovl)) {
+                    right.waitUntilChangeCompleted(ovl);
+                } else if (right == this.rootHolder.right) {
+                    Object previous = this.attemptUpdate(key, kind, newValue, this.rootHolder, right, ovl);
+                    if (previous != SPECIAL_RETRY) {
+                        return previous;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean attemptInsertIntoEmpty(K key, Object value) {
+        synchronized (this.rootHolder) {
+            if (this.rootHolder.right == null) {
+                this.rootHolder.right = new Node<>(key, 1, value, this.rootHolder, 0L);
+                this.rootHolder.height = 2;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Method that updates the key in the subtree of the node whose version was validated by the caller
+     * @param key - updated key
+     * @param kind - UPDATE_ALWAYS or UPDATE_IF_ABSENT
+     * @param newValue - new value, null for removal
+     * @param parent - parent of the node
+     * @param node - root of the subtree
+     * @param nodeOVL - version of the node read by the caller
+     * @return previous value, null if the key was not present or SPECIAL_RETRY if the caller must retry
+     */
+    private Object attemptUpdate(K key, int kind, Object newValue, Node<K, V> parent, Node<K, V> node, long nodeOVL) {
+        int comparison = this.compare(key, node.key);
+        if (comparison == 0) {
+            return this.attemptNodeUpdate(kind, newValue, parent, node);
+        }
+
+        while (true) {
+            Node<K, V> child = node.child(comparison);
+
+            if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                return SPECIAL_RETRY;
+            }
+
+            if (child == null) {
+                //key is not present
+                if (newValue == null) {
+                    return null;
+                }
+                //update is an insertion of a new leaf
+                boolean success;
+                Node<K, V> damaged;
+                synchronized (node) {
+                    //node is locked so no future rotation can affect us, validate the past ones
+                    if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                        return SPECIAL_RETRY;
+                    }
+                    if (node.child(comparison) != null) {
+                        //lost a race with a concurrent insertion, retry from this node
+                        success = false;
+                        damaged = null;
+                    } else {
+                        node.setChild(comparison, new Node<>(key, 1, newValue, node, 0L));
+                        success = true;
+                        damaged = fixHeight(node);
+                    }
+                }
+                if (success) {
+                    this.fixHeightAndRebalance(damaged);
+                    return null;
+                }
+            } else {
+                long childOVL = child.changeOVL;
+                if (isShrinkingOrUnlinked(childOVL)) {
+                    child.waitUntilChangeCompleted(childOVL);
+                } else if (child != node.child(comparison)) {
+                    //child changed meanwhile, retry
+                } else {
+                    if (hasShrunkOrUnlinked(nodeOVL, node.changeOVL)) {
+                        return SPECIAL_RETRY;
+                    }
+                    Object previous = this.attemptUpdate(key, kind, newValue, node, child, childOVL);
+                    if (previous != SPECIAL_RETRY) {
+                        return previous;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that updates value of the node with the key
+     * Parent is used only when the node needs to be unlinked.
+     * @param kind - UPDATE_ALWAYS or UPDATE_IF_ABSENT
+     * @param newValue - new value, null for removal
+     * @param parent - parent of the node
+     * @param node - node with the updated key
+     * @return previous value, null if the key was not present or SPECIAL_RETRY if the caller must retry
+     */
+    private Object attemptNodeUpdate(int kind, Object newValue, Node<K, V> parent, Node<K, V> node) {
+        if (newValue == null && node.value == null) {
+            //node is already removed
+            return null;
+        }
+
+        if (newValue == null && (node.left == null || node.right == null)) {
+            //removed node can be unlinked, parent needs to be locked too
+            Object previous;
+            Node<K, V> damaged;
+            synchronized (parent) {
+                if (isUnlinked(parent.changeOVL) || node.parent != parent) {
+                    return SPECIAL_RETRY;
+                }
+                synchronized (node) {
+                    previous = node.value;
+                    if (previous == null) {
+                        return null;
+                    }
+                    if (!attemptUnlink(parent, node)) {
+                        return SPECIAL_RETRY;
+                    }
+                }
+                damaged = fixHeight(parent);
+            }
+            this.fixHeightAndRebalance(damaged);
+            return previous;
+        }
+
+        synchronized (node) {
+            if (isUnlinked(node.changeOVL)) {
+                return SPECIAL_RETRY;
+            }
+            Object previous = node.value;
+            if (kind == UPDATE_IF_ABSENT && previous != null) {
+                return previous;
+            }
+            //retry if unlink became possible meanwhile
+            if (newValue == null && (node.left == null || node.right == null)) {
+                return SPECIAL_RETRY;
+            }
+            //update in place, removed node with two sons stays in the tree as routing node
+            node.value = newValue;
+            return previous;
+        }
+    }
+
+    /**
+     * Method that unlinks the node with at most one son, parent and node must be locked
+     * Heights are not repaired.
+     * @param parent - parent of the node
+     * @param node - unlinked node
+     * @return true - if the node was unlinked, false - if the tree changed and unlink is not possible
+     */
+    private static <K, V> boolean attemptUnlink(Node<K, V> parent, Node<K, V> node) {
+        Node<K, V> parentLeft = parent.left;
+        Node<K, V> parentRight = parent.right;
+        if (parentLeft != node && parentRight != node) {
+            //node is no longer son of the parent
+            return false;
+        }
+        Node<K, V> left = node.left;
+        Node<K, V> right = node.right;
+        if (left != null && right != null) {
+            //node got second son meanwhile
+            return false;
+        }
+        Node<K, V> splice = (left != null) ? left : right;
+        if (parentLeft == node) {
+            parent.left = splice;
+        } else {
+            parent.right = splice;
+        }
+        if (splice != null) {
+            splice.parent = parent;
+        }
+        node.changeOVL = UNLINKED_OVL;
+        node.value = null;
+        return true;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="REBALANCING">
+    /**
+     * Method that finds out what needs to be done with the node
+     * Result is read without locks, but every thread which damages the node promises to repair it,
+     * so either the read was consistent or someone else is responsible for the node.
+     * @param node - checked node
+     * @return UNLINK_REQUIRED, REBALANCE_REQUIRED, NOTHING_REQUIRED or new height of the node
+     */
+    private static int nodeCondition(Node<?, ?> node) {
+        Node<?, ?> left = node.left;
+        Node<?, ?> right = node.right;
+
+        if ((left == null || right == null) && node.value == null) {
+            return UNLINK_REQUIRED;
+        }
+
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balanceFactor = leftHeight - rightHeight;
+
+        if (balanceFactor < -1 || balanceFactor > 1) {
+            return REBALANCE_REQUIRED;
+        }
+        return (height != newHeight) ? newHeight : NOTHING_REQUIRED;
+    }
+
+    /**
+     * Method for repairing heights and detecting rotations on the way from damaged node to root
+     * Same as resetHeightDetectRotation in AVLTree the whole way to root is checked, even when
+     * some node does not need any repair. Rotation can hand back its deepest damaged node first
+     * (unnecessary routing node) and the damage it made to its parent would be lost otherwise.
+     * Nodes which do not need repair are only read, they are not locked.
+     * @param node - damaged node, null if nothing is damaged
+     */
+    private void fixHeightAndRebalance(Node<K, V> node) {
+        while (node != null && node.parent != null) {
+            if (isUnlinked(node.changeOVL)) {
+                //no point in fixing this node, thread which unlinked it repairs its parent
+                return;
+            }
+            int condition = nodeCondition(node);
+            if (condition == NOTHING_REQUIRED) {
+                node = node.parent;
+            } else if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight(node);
+                }
+            } else {
+                Node<K, V> nodeParent = node.parent;
+                synchronized (nodeParent) {
+                    if (!isUnlinked(nodeParent.changeOVL) && node.parent == nodeParent) {
+                        synchronized (node) {
+                            node = rebalance(nodeParent, node);
+                        }
+                    }
+                    //else retry with the same node
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that repairs height of the locked node
+     * @param node - locked damaged node
+     * @return the lowest node this thread still needs to check on the way to root
+     */
+    private static <K, V> Node<K, V> fixHeight(Node<K, V> node) {
+        int condition = nodeCondition(node);
+        switch (condition) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                //can not be repaired here
+                return node;
+            case NOTHING_REQUIRED:
+                //node is fine, but its ancestors still need to be checked
+                return node.parent;
+            default:
+                node.height = condition;
+                //parent is damaged now but it is not locked
+                return node.parent;
+        }
+    }
+
+    /**
+     * Method that unlinks or rotates the node, parent and node must be locked
+     * @param nodeParent - locked parent of the node
+     * @param node - locked node
+     * @return the lowest node this thread still needs to check on the way to root
+     */
+    private static <K, V> Node<K, V> rebalance(Node<K, V> nodeParent, Node<K, V> node) {
+        Node<K, V> left = node.left;
+        Node<K, V> right = node.right;
+
+        if ((left == null || right == null) && node.value == null) {
+            if (attemptUnlink(nodeParent, node)) {
+                //parent is locked, try to repair it too
+                return fixHeight(nodeParent);
+            }
+            //retry with the node
+            return node;
+        }
+
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balanceFactor = leftHeight - rightHeight;
+
+        if (balanceFactor > 1) {
+            return rebalanceToRight(nodeParent, node, left, rightHeight);
+        } else if (balanceFactor < -1) {
+            return rebalanceToLeft(nodeParent, node, right, leftHeight);
+        } else if (newHeight != height) {
+            node.height = newHeight;
+            //parent is locked, try to repair it too
+            return fixHeight(nodeParent);
+        }
+        return nodeParent;
+    }
+
+    /**
+     * Left subtree is too high, right rotation or left-right rotation is performed
+     */
+    private static <K, V> Node<K, V> rebalanceToRight(Node<K, V> nodeParent, Node<K, V> node, Node<K, V> left, int rightHeight) {
+        synchronized (left) {
+            int leftHeight = left.height;
+            if (leftHeight - rightHeight <= 1) {
+                //retry
+                return node;
+            }
+            Node<K, V> leftRight = left.right;
+            int leftLeftHeight = height(left.left);
+            int leftRightHeight = height(leftRight);
+            if (leftLeftHeight >= leftRightHeight) {
+                return rightRotation(nodeParent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+            }
+            synchronized (leftRight) {
+                //if snapshot of the height was not correct, single rotation can be enough
+                leftRightHeight = leftRight.height;
+                if (leftLeftHeight >= leftRightHeight) {
+                    return rightRotation(nodeParent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+                }
+                //double rotation is done only when it does not leave left son damaged
+                int leftRightLeftHeight = height(leftRight.left);
+                int balanceFactor = leftLeftHeight - leftRightLeftHeight;
+                if (balanceFactor >= -1 && balanceFactor <= 1
+                        && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && left.value == null)) {
+                    return leftRightRotation(nodeParent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightLeftHeight);
+                }
+                //double rotation would leave routing left son with single son, so only the left son
+                //is rotated now and the node is rebalanced later if it is still necessary
+                return leftRotation(node, left, leftLeftHeight, leftRight, leftRight.left, leftRightLeftHeight,
+                        height(leftRight.right));
+            }
+        }
+    }
+
+    /**
+     * Right subtree is too high, left rotation or right-left rotation is performed
+     */
+    private static <K, V> Node<K, V> rebalanceToLeft(Node<K, V> nodeParent, Node<K, V> node, Node<K, V> right, int leftHeight) {
+        synchronized (right) {
+            int rightHeight = right.height;
+            if (leftHeight - rightHeight >= -1) {
+                //retry
+                return node;
+            }
+            Node<K, V> rightLeft = right.left;
+            int rightLeftHeight = height(rightLeft);
+            int rightRightHeight = height(right.right);
+            if (rightRightHeight >= rightLeftHeight) {
+                return leftRotation(nodeParent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+            }
+            synchronized (rightLeft) {
+                //if snapshot of the height was not correct, single rotation can be enough
+                rightLeftHeight = rightLeft.height;
+                if (rightRightHeight >= rightLeftHeight) {
+                    return leftRotation(nodeParent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+                }
+                //double rotation is done only when it does not leave right son damaged
+                int rightLeftRightHeight = height(rightLeft.right);
+                int balanceFactor = rightRightHeight - rightLeftRightHeight;
+                if (balanceFactor >= -1 && balanceFactor <= 1
+                        && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && right.value == null)) {
+                    return rightLeftRotation(nodeParent, node, leftHeight, right, rightLeft, rightRightHeight, rightLeftRightHeight);
+                }
+                //double rotation would leave routing right son with single son, so only the right son
+                //is rotated now and the node is rebalanced later if it is still necessary
+                return rightRotation(node, right, rightLeft, rightRightHeight, height(rightLeft.left), rightLeft.right,
+                        rightLeftRightHeight);
+            }
+        }
+    }
+
+    /**
+     * Right rotation of the locked node, its parent and left son are locked too
+     *      a                b
+     *     /               /   \
+     *    b        =>     c     a
+     *   / \                   /
+     *  c   d                 d
+     */
+    private static <K, V> Node<K, V> rightRotation(Node<K, V> nodeParent, Node<K, V> node, Node<K, V> left,
+            int rightHeight, int leftLeftHeight, Node<K, V> leftRight, int leftRightHeight) {
+        long nodeOVL = node.changeOVL;
+        long leftOVL = left.changeOVL;
+        Node<K, V> parentLeft = nodeParent.left;
+
+        node.changeOVL = beginShrink(nodeOVL);
+        left.changeOVL = beginGrow(leftOVL);
+
+        //links from the shrinking node are changed first, links to it last,
+        //so that no search can bypass the version that marks it as changing
+        node.left = leftRight;
+        left.right = node;
+        if (parentLeft == node) {
+            nodeParent.left = left;
+        } else {
+            nodeParent.right = left;
+        }
+        left.parent = nodeParent;
+        node.parent = left;
+        if (leftRight != null) {
+            leftRight.parent = node;
+        }
+
+        int newNodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+        node.height = newNodeHeight;
+        left.height = 1 + Math.max(leftLeftHeight, newNodeHeight);
+
+        left.changeOVL = endGrow(leftOVL);
+        node.changeOVL = endShrink(nodeOVL);
+
+        //node is the deepest damaged one, it can still be unbalanced or unnecessary routing node
+        int nodeBalanceFactor = leftRightHeight - rightHeight;
+        if (nodeBalanceFactor < -1 || nodeBalanceFactor > 1) {
+            return node;
+        }
+        if ((leftRight == null || rightHeight == 0) && node.value == null) {
+            return node;
+        }
+        int leftBalanceFactor = leftLeftHeight - newNodeHeight;
+        if (leftBalanceFactor < -1 || leftBalanceFactor > 1) {
+            return left;
+        }
+        if (leftLeftHeight == 0 && left.value == null) {
+            return left;
+        }
+        //parent is still locked, try to repair its height
+        return fixHeight(nodeParent);
+    }
+
+    /**
+     * Left rotation of the locked node, its parent and right son are locked too
+     *  a                  b
+     *   \               /   \
+     *    b      =>     a     c
+     *   / \             \
+     *  d   c             d
+     */
+    private static <K, V> Node<K, V> leftRotation(Node<K, V> nodeParent, Node<K, V> node, int leftHeight,
+            Node<K, V> right, Node<K, V> rightLeft, int rightLeftHeight, int rightRightHeight) {
+        long nodeOVL = node.changeOVL;
+        long rightOVL = right.changeOVL;
+        Node<K, V> parentLeft = nodeParent.left;
+
+        node.changeOVL = beginShrink(nodeOVL);
+        right.changeOVL = beginGrow(rightOVL);
+
+        node.right = rightLeft;
+        right.left = node;
+        if (parentLeft == node) {
+            nodeParent.left = right;
+        } else {
+            nodeParent.right = right;
+        }
+        right.parent = nodeParent;
+        node.parent = right;
+        if (rightLeft != null) {
+            rightLeft.parent = node;
+        }
+
+        int newNodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+        node.height = newNodeHeight;
+        right.height = 1 + Math.max(newNodeHeight, rightRightHeight);
+
+        right.changeOVL = endGrow(rightOVL);
+        node.changeOVL = endShrink(nodeOVL);
+
+        int nodeBalanceFactor = rightLeftHeight - leftHeight;
+        if (nodeBalanceFactor < -1 || nodeBalanceFactor > 1) {
+            return node;
+        }
+        if ((rightLeft == null || leftHeight == 0) && node.value == null) {
+            return node;
+        }
+        int rightBalanceFactor = rightRightHeight - newNodeHeight;
+        if (rightBalanceFactor < -1 || rightBalanceFactor > 1) {
+            return right;
+        }
+        if (rightRightHeight == 0 && right.value == null) {
+            return right;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    /**
+     * Left-Right rotation of the locked node, its parent, left son and left-right grandson are locked too
+     */
+    private static <K, V> Node<K, V> leftRightRotation(Node<K, V> nodeParent, Node<K, V> node, Node<K, V> left,
+            int rightHeight, int leftLeftHeight, Node<K, V> leftRight, int leftRightLeftHeight) {
+        long nodeOVL = node.changeOVL;
+        long leftOVL = left.changeOVL;
+        long leftRightOVL = leftRight.changeOVL;
+
+        Node<K, V> parentLeft = nodeParent.left;
+        Node<K, V> leftRightLeft = leftRight.left;
+        Node<K, V> leftRightRight = leftRight.right;
+        int leftRightRightHeight = height(leftRightRight);
+
+        node.changeOVL = beginShrink(nodeOVL);
+        left.changeOVL = beginShrink(leftOVL);
+        leftRight.changeOVL = beginGrow(leftRightOVL);
+
+        node.left = leftRightRight;
+        left.right = leftRightLeft;
+        leftRight.left = left;
+        leftRight.right = node;
+        if (parentLeft == node) {
+            nodeParent.left = leftRight;
+        } else {
+            nodeParent.right = leftRight;
+        }
+        leftRight.parent = nodeParent;
+        left.parent = leftRight;
+        node.parent = leftRight;
+        if (leftRightRight != null) {
+            leftRightRight.parent = node;
+        }
+        if (leftRightLeft != null) {
+            leftRightLeft.parent = left;
+        }
+
+        int newNodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+        node.height = newNodeHeight;
+        int newLeftHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+        left.height = newLeftHeight;
+        leftRight.height = 1 + Math.max(newLeftHeight, newNodeHeight);
+
+        leftRight.changeOVL = endGrow(leftRightOVL);
+        left.changeOVL = endShrink(leftOVL);
+        node.changeOVL = endShrink(nodeOVL);
+
+        int nodeBalanceFactor = leftRightRightHeight - rightHeight;
+        if (nodeBalanceFactor < -1 || nodeBalanceFactor > 1) {
+            return node;
+        }
+        if ((leftRightRight == null || rightHeight == 0) && node.value == null) {
+            return node;
+        }
+        int leftRightBalanceFactor = newLeftHeight - newNodeHeight;
+        if (leftRightBalanceFactor < -1 || leftRightBalanceFactor > 1) {
+            return leftRight;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    /**
+     * Right-Left rotation of the locked node, its parent, right son and right-left grandson are locked too
+     */
+    private static <K, V> Node<K, V> rightLeftRotation(Node<K, V> nodeParent, Node<K, V> node, int leftHeight,
+            Node<K, V> right, Node<K, V> rightLeft, int rightRightHeight, int rightLeftRightHeight) {
+        long nodeOVL = node.changeOVL;
+        long rightOVL = right.changeOVL;
+        long rightLeftOVL = rightLeft.changeOVL;
+
+        Node<K, V> parentLeft = nodeParent.left;
+        Node<K, V> rightLeftLeft = rightLeft.left;
+        int rightLeftLeftHeight = height(rightLeftLeft);
+        Node<K, V> rightLeftRight = rightLeft.right;
+
+        node.changeOVL = beginShrink(nodeOVL);
+        right.changeOVL = beginShrink(rightOVL);
+        rightLeft.changeOVL = beginGrow(rightLeftOVL);
+
+        node.right = rightLeftLeft;
+        right.left = rightLeftRight;
+        rightLeft.right = right;
+        rightLeft.left = node;
+        if (parentLeft == node) {
+            nodeParent.left = rightLeft;
+        } else {
+            nodeParent.right = rightLeft;
+        }
+        rightLeft.parent = nodeParent;
+        right.parent = rightLeft;
+        node.parent = rightLeft;
+        if (rightLeftLeft != null) {
+            rightLeftLeft.parent = node;
+        }
+        if (rightLeftRight != null) {
+            rightLeftRight.parent = right;
+        }
+
+        int newNodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+        node.height = newNodeHeight;
+        int newRightHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+        right.height = newRightHeight;
+        rightLeft.height = 1 + Math.max(newNodeHeight, newRightHeight);
+
+        rightLeft.changeOVL = endGrow(rightLeftOVL);
+        right.changeOVL = endShrink(rightOVL);
+        node.changeOVL = endShrink(nodeOVL);
+
+        int nodeBalanceFactor = rightLeftLeftHeight - leftHeight;
+        if (nodeBalanceFactor < -1 || nodeBalanceFactor > 1) {
+            return node;
+        }
+        if ((rightLeftLeft == null || leftHeight == 0) && node.value == null) {
+            return node;
+        }
+        int rightLeftBalanceFactor = newRightHeight - newNodeHeight;
+        if (rightLeftBalanceFactor < -1 || rightLeftBalanceFactor > 1) {
+            return rightLeft;
+        }
+        return fixHeight(nodeParent);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return (node == null) ? 0 : node.height;
+    }
+    //</editor-fold>
+
+    //<editor-fold defaultstate="collapsed" desc="VERSIONS">
+    private static boolean isChanging(long ovl) {
+        return (ovl & (OVL_SHRINK_LOCK_MASK | OVL_GROW_LOCK_MASK)) != 0;
+    }
+
+    private static boolean isUnlinked(long ovl) {
+        return ovl == UNLINKED_OVL;
+    }
+
+    private static boolean isShrinkingOrUnlinked(long ovl) {
+        return (ovl & (OVL_SHRINK_LOCK_MASK | UNLINKED_OVL)) != 0;
+    }
+
+    /**
+     * Growing node keeps all keys it had, so searches only care about shrinks and unlinks
+     */
+    private static boolean hasShrunkOrUnlinked(long originalOVL, long currentOVL) {
+        return ((originalOVL ^ currentOVL) & ~(OVL_GROW_LOCK_MASK | OVL_GROW_COUNT_MASK)) != 0;
+    }
+
+    private static long beginGrow(long ovl) {
+        return ovl | OVL_GROW_LOCK_MASK;
+    }
+
+    private static long endGrow(long ovl) {
+        //overflow of the grow count goes to the shrink count, which only causes unnecessary retry
+        return ovl + (1L << OVL_GROW_COUNT_SHIFT);
+    }
+
+    private static long beginShrink(long ovl) {
+        return ovl | OVL_SHRINK_LOCK_MASK;
+    }
+
+    private static long endShrink(long ovl) {
+        return ovl + (1L << OVL_SHRINK_COUNT_SHIFT);
+    }
+    //</editor-fold>
+
+    /**
+     * Node of the concurrent tree, node without value is a routing node
+     */
+    static final class Node<K, V> {
+        final K key;
+        volatile int height; //height of the node, leaf has height 1
+        volatile Object value; //value of the node, null for routing and unlinked nodes
+        volatile Node<K, V> parent;
+        volatile long changeOVL; //version of the node
+        volatile Node<K, V> left, right;
+
+        Node(K key, int height, Object value, Node<K, V> parent, long changeOVL) {
+            this.key = key;
+            this.height = height;
+            this.value = value;
+            this.parent = parent;
+            this.changeOVL = changeOVL;
+        }
+
+        Node<K, V> child(int direction) {
+            return (direction < 0) ? this.left : this.right;
+        }
+
+        void setChild(int direction, Node<K, V> child) {
+            if (direction < 0) {
+                this.left = child;
+            } else {
+                this.right = child;
+            }
+        }
+
+        /**
+         * Method that waits until the running rotation of the node is finished
+         * @param ovl - version of the node read by the caller
+         */
+        void waitUntilChangeCompleted(long ovl) {
+            if (!isChanging(ovl)) {
+                return;
+            }
+            for (int tries = 0; tries < SPIN_COUNT; tries++) {
+                if (this.changeOVL != ovl) {
+                    return;
+                }
+            }
+            for (int tries = 0; tries < YIELD_COUNT; tries++) {
+                Thread.yield();
+                if (this.changeOVL != ovl) {
+                    return;
+                }
+            }
+            //rotating thread holds the lock of the node, so we get it only after the change is finished
+            synchronized (this) {
+                assert this.changeOVL != ovl;
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.zorvan.avl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class represents AVL tree whose mutations are durable.
+ * Directory of the tree contains the last checkpoint (snapshot written by AVLTreeSnapshot) and
+ * the write-ahead log of the inserts and deletes done after it. Opening the tree loads the checkpoint
+ * and replays the log on top of it. Mutation is appended to the log before it is applied to the tree
+ * and insert or delete returns when the log is durable according to the sync policy, so concurrent
+ * callers share fsyncs of the log. Checkpoint writes new snapshot and empties the log.
+ *
+ * Mutation is visible to searches before its log record is durable. If the log can not be written
+ * or synced, the caller gets IOException while the mutation stays in the tree and may be replayed
+ * after restart, so the tree fails: all further inserts, deletes and checkpoints throw IOException
+ * and the tree must be reopened to recover the durable state.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ * @param <T> type of the nodes
+ */
+public class DurableAVLTree<T extends AVLNode> implements Closeable {
+    static final String CHECKPOINT_FILE = "avltree.checkpoint";
+    static final String LOG_FILE = "avltree.wal";
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    private final Path directory;
+    private final AVLNodeCodec<T> codec;
+    private final WriteAheadLog log;
+    private AVLTree tree; //guarded by this
+    private IOException failure; //first error of the log, guarded by this
+
+    /**
+     * Constructor of the DurableAVLTree class, recovers the tree from the directory or creates empty one
+     * @param directory - directory of the checkpoint and the log, it is created if it does not exist
+     * @param codec - codec of the nodes used by the checkpoint and the log
+     * @param policy - sync policy of the log
+     * @param syncIntervalMillis - sync interval of INTERVAL policy in milliseconds
+     * @throws IOException if the checkpoint or the log can not be read
+     */
+    public DurableAVLTree(Path directory, AVLNodeCodec<T> codec, WriteAheadLog.SyncPolicy policy,
+            long syncIntervalMillis) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.codec = codec;
+
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(checkpoint), 1 << 16)) {
+                this.tree = AVLTreeSnapshot.load(in, codec);
+            }
+        } else {
+            this.tree = new AVLTree();
+        }
+
+        //log contains only mutations done after the checkpoint
+        this.log = new WriteAheadLog(directory.resolve(LOG_FILE), policy, syncIntervalMillis,
+                new WriteAheadLog.RecordHandler() {
+            @Override
+            public void record(byte type, byte[] payload) throws IOException {
+                replay(type, payload);
+            }
+        });
+    }
+
+    /**
+     * Method for searching node in the tree
+     * @param node - searched node
+     * @return AVLNode - found node or null
+     */
+    public synchronized AVLNode search(AVLNode node) {
+        return this.tree.search(node);
+    }
+
+    /**
+     * Method for durable inserting of the node
+     * @param node - inserted node
+     * @return true if the node was inserted, false if equal node is already present
+     * @throws IOException if the log can not be written or synced or the tree failed before
+     */
+    public boolean insert(T node) throws IOException {
+        byte[] record = this.encode(node);
+        long sequence;
+        synchronized (this) {
+            this.checkFailure();
+            if (this.tree.search(node) != null) {
+                return false;
+            }
+            sequence = this.append(INSERT, record);
+            this.tree.insert(node);
+        }
+        //waiting outside of the lock lets other callers join the same fsync
+        this.awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * Method for durable deleting of the node
+     * @param node - node equal to the deleted one
+     * @return true if the node was deleted, false if it is not present
+     * @throws IOException if the log can not be written or synced or the tree failed before
+     */
+    public boolean delete(T node) throws IOException {
+        byte[] record = this.encode(node);
+        long sequence;
+        synchronized (this) {
+            this.checkFailure();
+            if (this.tree.search(node) == null) {
+                return false;
+            }
+            sequence = this.append(DELETE, record);
+            this.tree.delete(node);
+        }
+        this.awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * Method that writes new checkpoint of the tree and empties the log
+     * Snapshot is written to temporary file which replaces the checkpoint atomically, so crash leaves
+     * either the old checkpoint with the full log or the new one. Replaying the old log on top of
+     * the new checkpoint gives the same tree, as the last logged operation decides presence of every node.
+     * @throws IOException if the checkpoint can not be written or the tree failed before
+     */
+    public synchronized void checkpoint() throws IOException {
+        this.checkFailure();
+        Path temporary = this.directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            AVLTreeSnapshot.save(this.tree, Channels.newOutputStream(channel), this.codec);
+            channel.force(true);
+        }
+        Files.move(temporary, this.directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        //rename must be durable before the log is emptied, otherwise crash could keep the old checkpoint only
+        try (FileChannel directoryChannel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+        this.log.truncate();
+    }
+
+    /**
+     * Method that returns the number of nodes in the tree
+     * @return int number of nodes
+     */
+    public synchronized int size() {
+        return this.tree.size();
+    }
+
+    /**
+     * Method that closes the log, the tree can not be mutated afterwards
+     * @throws IOException if the log can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.log.close();
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    /**
+     * Method that returns the in-memory tree, it must not be mutated directly
+     * and access to it must be synchronized on this durable tree
+     * @return AVLTree tree
+     */
+    public AVLTree getTree() {
+        return this.tree;
+    }
+
+    public Path getDirectory() {
+        return this.directory;
+    }
+    //</editor-fold>
+
+    private byte[] encode(T node) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        this.codec.write(node, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void checkFailure() throws IOException {
+        if (this.failure != null) {
+            throw new IOException("Tree failed after log error, reopen it to recover", this.failure);
+        }
+    }
+
+    private long append(byte type, byte[] record) throws IOException {
+        try {
+            return this.log.append(type, record);
+        } catch (IOException e) {
+            //part of the record may be in the log
+            this.failure = e;
+            throw e;
+        }
+    }
+
+    private void awaitDurable(long sequence) throws IOException {
+        try {
+            this.log.awaitDurable(sequence);
+        } catch (InterruptedIOException e) {
+            //the record is still synced by other callers or by the next sync
+            throw e;
+        } catch (IOException e) {
+            synchronized (this) {
+                if (this.failure == null) {
+                    this.failure = e;
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void replay(byte type, byte[] payload) throws IOException {
+        T node = this.codec.read(new DataInputStream(new ByteArrayInputStream(payload)));
+        switch (type) {
+            case INSERT:
+                this.tree.insert(node);
+                break;
+            case DELETE:
+                this.tree.delete(node);
+                break;
+            default:
+                throw new IOException("Unknown log record type: " + type);
+        }
+    }
+}
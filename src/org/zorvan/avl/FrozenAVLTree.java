@@ -0,0 +1,152 @@
+package org.zorvan.avl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class represents immutable array-based search structure created by AVLTree.freeze().
+ * Nodes are stored in Eytzinger (breadth-first) order: sons of the slot i are the slots 2i and 2i + 1,
+ * so the top levels of the implicit tree share few cache lines, the slots visited by the search are
+ * computed instead of loaded from the nodes and the search loop has no data-dependent branch.
+ * The node links are not used, only the compareTo method of the nodes.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class FrozenAVLTree implements Iterable<AVLNode> {
+    private final AVLNode[] nodes; //nodes in Eytzinger order, slot 0 is unused
+    private final int size; //number of nodes
+    private boolean thawed; //true when the nodes were moved back to AVLTree
+
+    /**
+     * Constructor of the FrozenAVLTree class
+     * @param sorted - nodes in ascending order
+     */
+    FrozenAVLTree(AVLNode[] sorted) {
+        this.size = sorted.length;
+        this.nodes = new AVLNode[this.size + 1];
+        this.fill(sorted, 0, 1);
+    }
+
+    /**
+     * Method for search of particular node
+     * @param node - wanted node
+     * @return found node or null if node is not present
+     */
+    public AVLNode search(AVLNode node) {
+        int index = this.lowerBound(node);
+        return (index != 0 && node.compareTo(this.nodes[index]) == 0) ? this.nodes[index] : null;
+    }
+
+    /**
+     * Method that returns the least node greater than or equal to the given node
+     * @param node - compared node
+     * @return AVLNode - found node or null if there is no such node
+     */
+    public AVLNode ceiling(AVLNode node) {
+        return this.nodes[this.lowerBound(node)];
+    }
+
+    /**
+     * Method that returns the number of nodes
+     * @return int number of nodes
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Method that builds mutable AVLTree of the nodes in linear time
+     * Nodes are moved to the new tree, so the frozen tree can be thawed only once. It can still be searched
+     * afterwards, but it does not reflect changes of the new tree.
+     * @return AVLTree - new balanced tree with all nodes
+     */
+    public synchronized AVLTree thaw() {
+        if (this.thawed) {
+            throw new IllegalStateException("Frozen tree was already thawed");
+        }
+        this.thawed = true;
+        AVLTree tree = new AVLTree();
+        tree.buildFromSorted(this.iterator(), this.size);
+        return tree;
+    }
+
+    /**
+     * Method that returns iterator of the nodes in ascending order
+     * @return Iterator of the nodes
+     */
+    @Override
+    public Iterator<AVLNode> iterator() {
+        return new Iterator<AVLNode>() {
+            private int index = leftmost(1);
+
+            @Override
+            public boolean hasNext() {
+                return this.index != 0;
+            }
+
+            @Override
+            public AVLNode next() {
+                if (this.index == 0) {
+                    throw new NoSuchElementException();
+                }
+                AVLNode node = nodes[this.index];
+                this.index = successor(this.index);
+                return node;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Method that returns slot of the least node greater than or equal to the given node
+     * @param node - compared node
+     * @return int slot of the node, 0 if there is no such node
+     */
+    private int lowerBound(AVLNode node) {
+        int index = 1;
+        while (index <= this.size) {
+            //next slot is computed from the comparison, the JIT can use conditional move
+            index = 2 * index + ((node.compareTo(this.nodes[index]) > 0) ? 1 : 0);
+        }
+        //right turns after the last left turn are removed, the last left turn is the answer
+        return index >>> (Integer.numberOfTrailingZeros(~index) + 1);
+    }
+
+    /**
+     * Method that fills the subtree of the slot from sorted nodes by inorder traversal
+     * @return int position of the next unused sorted node
+     */
+    private int fill(AVLNode[] sorted, int position, int index) {
+        if (index <= this.size) {
+            position = this.fill(sorted, position, 2 * index);
+            this.nodes[index] = sorted[position++];
+            position = this.fill(sorted, position, 2 * index + 1);
+        }
+        return position;
+    }
+
+    private int leftmost(int index) {
+        if (index > this.size) {
+            return 0;
+        }
+        while (2 * index <= this.size) {
+            index = 2 * index;
+        }
+        return index;
+    }
+
+    private int successor(int index) {
+        if (2 * index + 1 <= this.size) {
+            return this.leftmost(2 * index + 1);
+        }
+        //going up while the slot is right son
+        while ((index & 1) == 1) {
+            index >>>= 1;
+        }
+        return index >>> 1;
+    }
+}
@@ -0,0 +1,94 @@
+package org.zorvan.avl;
+
+/**
+ * Class represents immutable search structure of int keys created by IntAVLTree.freeze().
+ * Keys are stored inline in one int array in Eytzinger (breadth-first) order: sons of the slot i
+ * are the slots 2i and 2i + 1. Search touches one contiguous array, the first levels share a few
+ * cache lines and the next slot is computed without data-dependent branch.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class FrozenIntAVLTree {
+    private final int[] keys; //keys in Eytzinger order, slot 0 is unused
+    private final int size; //number of keys
+
+    /**
+     * Constructor of the FrozenIntAVLTree class
+     * @param sorted - keys in ascending order
+     */
+    FrozenIntAVLTree(int[] sorted) {
+        this.size = sorted.length;
+        this.keys = new int[this.size + 1];
+        this.fill(sorted, 0, 1);
+    }
+
+    /**
+     * Method for search of particular key
+     * @param key - wanted key
+     * @return true - if the key is present, false - otherwise
+     */
+    public boolean search(int key) {
+        int index = this.lowerBound(key);
+        return index != 0 && this.keys[index] == key;
+    }
+
+    /**
+     * Method that returns number of keys
+     * @return int number of keys
+     */
+    public int getNumberOfNodes() {
+        return this.size;
+    }
+
+    /**
+     * Inorder traversal of all keys
+     * @return int[] - keys in ascending order
+     */
+    public int[] inorder() {
+        int[] result = new int[this.size];
+        this.collect(result, 0, 1);
+        return result;
+    }
+
+    /**
+     * Method that builds mutable IntAVLTree of the keys in linear time
+     * @return IntAVLTree - new tree with all keys
+     */
+    public IntAVLTree thaw() {
+        IntAVLTree tree = new IntAVLTree(this.size);
+        tree.buildFromSorted(this.inorder());
+        return tree;
+    }
+
+    /**
+     * Method that returns slot of the least key greater than or equal to the given key
+     * @param key - compared key
+     * @return int slot of the key, 0 if there is no such key
+     */
+    private int lowerBound(int key) {
+        int index = 1;
+        while (index <= this.size) {
+            index = 2 * index + ((this.keys[index] < key) ? 1 : 0);
+        }
+        //right turns after the last left turn are removed, the last left turn is the answer
+        return index >>> (Integer.numberOfTrailingZeros(~index) + 1);
+    }
+
+    private int fill(int[] sorted, int position, int index) {
+        if (index <= this.size) {
+            position = this.fill(sorted, position, 2 * index);
+            this.keys[index] = sorted[position++];
+            position = this.fill(sorted, position, 2 * index + 1);
+        }
+        return position;
+    }
+
+    private int collect(int[] result, int position, int index) {
+        if (index <= this.size) {
+            position = this.collect(result, position, 2 * index);
+            result[position++] = this.keys[index];
+            position = this.collect(result, position, 2 * index + 1);
+        }
+        return position;
+    }
+}
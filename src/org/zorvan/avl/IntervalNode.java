@@ -0,0 +1,92 @@
+package org.zorvan.avl;
+
+/**
+ * Class represents node of the IntervalTree with closed interval [low, high].
+ * Nodes are ordered by low endpoint and then by high endpoint, every node keeps the maximum
+ * high endpoint of its subtree which is recomputed together with node heights after every
+ * insertion, deletion and rotation. Subclasses can carry payload of the interval.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class IntervalNode extends AVLNode<IntervalNode> {
+    private final long low, high; //endpoints of the interval, both inclusive
+    private long maxHigh; //maximum high endpoint in the subtree of the node
+
+    /**
+     * Constructor of the IntervalNode class
+     * @param low - low endpoint
+     * @param high - high endpoint, must not be less than low endpoint
+     */
+    public IntervalNode(long low, long high) {
+        if (high < low) {
+            throw new IllegalArgumentException("Illegal interval: [" + low + ", " + high + "]");
+        }
+        this.low = low;
+        this.high = high;
+        this.maxHigh = high;
+    }
+
+    /**
+     * Method to set node heights, subtree size and maximum high endpoint of the subtree
+     */
+    @Override
+    public void setNodeHeights() {
+        super.setNodeHeights();
+        long max = this.high;
+        IntervalNode left = (IntervalNode) this.getLeft();
+        if (left != null && left.maxHigh > max) {
+            max = left.maxHigh;
+        }
+        IntervalNode right = (IntervalNode) this.getRight();
+        if (right != null && right.maxHigh > max) {
+            max = right.maxHigh;
+        }
+        this.maxHigh = max;
+    }
+
+    /**
+     * Method that checks whether the interval overlaps closed interval [low, high]
+     * @param low - low endpoint
+     * @param high - high endpoint
+     * @return true if the intervals have common point
+     */
+    public boolean overlaps(long low, long high) {
+        return this.low <= high && low <= this.high;
+    }
+
+    @Override
+    public int compareTo(IntervalNode o) {
+        if (this.low != o.low) {
+            return (this.low < o.low) ? -1 : 1;
+        }
+        return (this.high < o.high) ? -1 : ((this.high == o.high) ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + this.low + ", " + this.high + "]";
+    }
+
+    /**
+     * Just for testing purpose.
+     * @return int low endpoint
+     */
+    @Override
+    public int getValue() {
+        return (int) this.low;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public long getLow() {
+        return low;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getMaxHigh() {
+        return maxHigh;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,107 @@
+package org.zorvan.avl;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class represents AVL tree of IntervalNode nodes with stabbing and overlap queries.
+ * All nodes of the tree must be IntervalNode instances. Maximum high endpoint of every subtree
+ * is maintained by IntervalNode.setNodeHeights, which AVLTree calls after every structural change.
+ * Queries skip subtrees whose maximum high endpoint is below the query and right subtrees of nodes
+ * starting after the query, so only subtrees containing an overlapping interval are entered and
+ * reporting k intervals costs O(min(n, (k + 1) log n)).
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class IntervalTree extends AVLTree {
+
+    /**
+     * Method that returns lazy iterator of the intervals containing the point
+     * @param point - stabbing point
+     * @return Iterator of the intervals in ascending order
+     */
+    public Iterator<IntervalNode> stab(long point) {
+        return this.overlapping(point, point);
+    }
+
+    /**
+     * Method that returns lazy iterator of the intervals overlapping closed interval [low, high]
+     * @param low - low endpoint of the query
+     * @param high - high endpoint of the query
+     * @return Iterator of the intervals in ascending order
+     */
+    public Iterator<IntervalNode> overlapping(long low, long high) {
+        if (high < low) {
+            throw new IllegalArgumentException("Illegal interval: [" + low + ", " + high + "]");
+        }
+        return new OverlapIterator(low, high);
+    }
+
+    /**
+     * Lazy pruned inorder traversal, the stack holds ancestors whose right subtree is not visited yet
+     */
+    private final class OverlapIterator implements Iterator<IntervalNode> {
+        private final long low, high;
+        private final ArrayDeque<IntervalNode> stack = new ArrayDeque<>();
+        private final int expectedModCount;
+        private IntervalNode next;
+
+        OverlapIterator(long low, long high) {
+            this.low = low;
+            this.high = high;
+            this.expectedModCount = getModCount();
+            this.pushLeft((IntervalNode) getRoot());
+            this.advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public IntervalNode next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            if (this.expectedModCount != getModCount()) {
+                throw new ConcurrentModificationException();
+            }
+            IntervalNode node = this.next;
+            this.advance();
+            return node;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void advance() {
+            this.next = null;
+            while (!this.stack.isEmpty()) {
+                IntervalNode node = this.stack.pop();
+                if (node.getLow() > this.high) {
+                    //all remaining nodes start even later
+                    this.stack.clear();
+                    return;
+                }
+                this.pushLeft((IntervalNode) node.getRight());
+                if (node.getHigh() >= this.low) {
+                    this.next = node;
+                    return;
+                }
+            }
+        }
+
+        private void pushLeft(IntervalNode node) {
+            //subtree which ends before the query has no overlapping interval
+            while (node != null && node.getMaxHigh() >= this.low) {
+                this.stack.push(node);
+                node = (IntervalNode) node.getLeft();
+            }
+        }
+    }
+}
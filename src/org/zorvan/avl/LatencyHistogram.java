@@ -0,0 +1,127 @@
+package org.zorvan.avl;
+
+/**
+ * Class represents histogram of latencies in nanoseconds with log-linear buckets in the style of HdrHistogram.
+ * Values up to 127 are counted exactly, every greater power of two range is split into 64 buckets, so percentiles
+ * are reported with relative error below 1/64 using fixed 30 KB of memory. Recording does not allocate,
+ * the histogram is not thread-safe.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; //buckets of one power of two range
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS; //values counted exactly
+
+    private final long[] counts = new long[LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Method that records one value
+     * @param value - latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[index(value)]++;
+        this.totalCount++;
+        this.sum += value;
+        if (value < this.min) {
+            this.min = value;
+        }
+        if (value > this.max) {
+            this.max = value;
+        }
+    }
+
+    /**
+     * Method that adds all values recorded by other histogram
+     * @param other - added histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.totalCount += other.totalCount;
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Method that returns value at given percentile, it is the highest value equivalent to the found bucket
+     * @param percentile - percentile from 0 to 100
+     * @return long - value at the percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this.totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * this.totalCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(Math.max(highestEquivalent(i), this.min), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Method that returns mean of the recorded values
+     * @return double - mean, 0 if nothing was recorded
+     */
+    public double getMean() {
+        return (this.totalCount == 0) ? 0 : (double) this.sum / this.totalCount;
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        //value >>> shift has the highest bit at SUB_BUCKET_BITS, its lower bits select the bucket
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long highestEquivalent(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long lowest = (long) ((index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p99=%d p99.9=%d max=%d ns", this.totalCount, this.getMean(),
+                this.getValueAtPercentile(50), this.getValueAtPercentile(99), this.getValueAtPercentile(99.9),
+                this.getMax());
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS">
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return long - the least recorded value, 0 if nothing was recorded
+     */
+    public long getMin() {
+        return (totalCount == 0) ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,389 @@
+package org.zorvan.avl;
+
+import java.util.Arrays;
+
+/**
+ * Class represents AVL tree specialized for primitive long keys.
+ * Nodes are not objects but slots in parallel primitive arrays (struct-of-arrays),
+ * so there is no object header, no references for the garbage collector to trace
+ * and no virtual call for key comparison. Deleted slots are kept in a free-list
+ * and reused by subsequent insertions, so insert, search and delete do not allocate
+ * unless the pool itself needs to grow.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class LongAVLTree {
+    private static final int NIL = -1; //index used instead of null reference
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private long[] keys; //key of the node
+    private int[] left, right, parent; //left, right and parent node index of the node; left is also next free slot
+    private byte[] heights; //height of the node, leaf has height 1 and missing node height 0
+    private int root; //index of the root node
+    private int freeHead; //first slot of the free-list
+    private int nextSlot; //first slot which was never used
+    private int size; //number of nodes in the tree
+
+    /**
+     * Constructor of the LongAVLTree class
+     */
+    public LongAVLTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the LongAVLTree class with preallocated node pool
+     * @param initialCapacity - number of nodes the tree can hold before the pool grows
+     */
+    public LongAVLTree(int initialCapacity) {
+        if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.keys = new long[initialCapacity];
+        this.left = new int[initialCapacity];
+        this.right = new int[initialCapacity];
+        this.parent = new int[initialCapacity];
+        this.heights = new byte[initialCapacity];
+        this.clear();
+    }
+
+    /**
+     * Method for search of particular key in the tree
+     * @param key - wanted key
+     * @return true - if the key is present in the tree, false - otherwise
+     */
+    public boolean search(long key) {
+        return this.find(key) != NIL;
+    }
+
+    /**
+     * Insertion of the key to the tree
+     * @param key - key to be inserted
+     * @return true - if key was inserted, false - if key was already present
+     */
+    public boolean insert(long key) {
+        //if there is no root the inserted node becomes root of the tree
+        if (this.root == NIL) {
+            this.root = this.allocate(key, NIL);
+            return true;
+        }
+
+        int activeNode = this.root;
+        while (true) {
+            long activeKey = this.keys[activeNode];
+            if (key == activeKey) {
+                return false; //key already exists in the tree
+            } else if (key > activeKey) {
+                //going to right subtree
+                if (this.right[activeNode] == NIL) {
+                    int node = this.allocate(key, activeNode);
+                    this.right[activeNode] = node;
+                    this.retrace(activeNode);
+                    return true;
+                }
+                activeNode = this.right[activeNode];
+            } else {
+                //going to left subtree
+                if (this.left[activeNode] == NIL) {
+                    int node = this.allocate(key, activeNode);
+                    this.left[activeNode] = node;
+                    this.retrace(activeNode);
+                    return true;
+                }
+                activeNode = this.left[activeNode];
+            }
+        }
+    }
+
+    /**
+     * Deletion of the key from the tree
+     * @param key - key to be deleted
+     * @return true - if the key was deleted, false - if the key was not present
+     */
+    public boolean delete(long key) {
+        int nodeToRemove = this.find(key);
+        if (nodeToRemove == NIL) {
+            return false;
+        }
+
+        //if deleting node has both sons its key is replaced by the key of the substitute
+        //(leftmost node of the right subtree) and the substitute slot is removed instead
+        if (this.left[nodeToRemove] != NIL && this.right[nodeToRemove] != NIL) {
+            int substitute = this.right[nodeToRemove];
+            while (this.left[substitute] != NIL) {
+                substitute = this.left[substitute];
+            }
+            this.keys[nodeToRemove] = this.keys[substitute];
+            nodeToRemove = substitute;
+        }
+
+        //now deleting node has at most one son which takes its place
+        int child = (this.left[nodeToRemove] != NIL) ? this.left[nodeToRemove] : this.right[nodeToRemove];
+        int nodeToRemoveParent = this.parent[nodeToRemove];
+        if (child != NIL) {
+            this.parent[child] = nodeToRemoveParent;
+        }
+        this.replaceChild(nodeToRemoveParent, nodeToRemove, child);
+        this.release(nodeToRemove);
+
+        //reset node heights and detect rotation on the way to root
+        this.retrace(nodeToRemoveParent);
+        return true;
+    }
+
+    /**
+     * Inorder traversal of the whole tree
+     * @return long[] - keys in ascending order
+     */
+    public long[] inorder() {
+        long[] result = new long[this.size];
+        int i = 0;
+        int node = this.leftmost(this.root);
+        while (node != NIL) {
+            result[i++] = this.keys[node];
+            node = this.successor(node);
+        }
+        return result;
+    }
+
+    /**
+     * Method that returns number of keys in the tree
+     * @return int number of keys in tree
+     */
+    public int getNumberOfNodes() {
+        return this.size;
+    }
+
+    /**
+     * Method that returns height of the tree
+     * @return int height of the tree, 0 for empty tree
+     */
+    public int getHeight() {
+        return this.height(this.root);
+    }
+
+    /**
+     * Method that removes all keys from the tree, the node pool is kept for reuse
+     */
+    public void clear() {
+        this.root = NIL;
+        this.freeHead = NIL;
+        this.nextSlot = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Method for finding slot of the particular key
+     * @param key - wanted key
+     * @return slot of the key or NIL if key is not present in the tree
+     */
+    private int find(long key) {
+        int activeNode = this.root;
+        while (activeNode != NIL) {
+            long activeKey = this.keys[activeNode];
+            if (key == activeKey) {
+                return activeNode;
+            }
+            activeNode = (key > activeKey) ? this.right[activeNode] : this.left[activeNode];
+        }
+        return NIL;
+    }
+
+    /**
+     * Method for setting heights and detecting rotations on the way from given node to root
+     * Tracing stops as soon as height of the (rebalanced) subtree did not change
+     * @param node - first node on which heights are set and rotations are detected
+     */
+    private void retrace(int node) {
+        while (node != NIL) {
+            int oldHeight = this.heights[node];
+            this.setNodeHeight(node);
+            node = this.detectRotation(node);
+            if (this.heights[node] == oldHeight) {
+                break;
+            }
+            node = this.parent[node];
+        }
+    }
+
+    /**
+     * Method for rotation detection, same rules as in AVLTree
+     * @param node - node on which rotation needs to be detected
+     * @return root of the subtree after possible rotation
+     */
+    private int detectRotation(int node) {
+        int balanceFactor = this.height(this.right[node]) - this.height(this.left[node]);
+        if (balanceFactor >= 2) {
+            int rightNode = this.right[node];
+            if (this.height(this.left[rightNode]) > this.height(this.right[rightNode])) {
+                //right-left rotation is performed
+                this.rightRotation(rightNode);
+            }
+            return this.leftRotation(node);
+        }
+        if (balanceFactor <= -2) {
+            int leftNode = this.left[node];
+            if (this.height(this.right[leftNode]) > this.height(this.left[leftNode])) {
+                //left-right rotation is performed
+                this.leftRotation(leftNode);
+            }
+            return this.rightRotation(node);
+        }
+        return node;
+    }
+
+    /**
+     * Left rotation on the given node
+     * @param node - node on which rotation is performed
+     * @return right son of the node which becomes root of the subtree
+     */
+    private int leftRotation(int node) {
+        int rightNode = this.right[node];
+        int middle = this.left[rightNode];
+
+        this.right[node] = middle;
+        if (middle != NIL) {
+            this.parent[middle] = node;
+        }
+        this.parent[rightNode] = this.parent[node];
+        this.replaceChild(this.parent[node], node, rightNode);
+        this.left[rightNode] = node;
+        this.parent[node] = rightNode;
+
+        //set new heights to nodes
+        this.setNodeHeight(node);
+        this.setNodeHeight(rightNode);
+        return rightNode;
+    }
+
+    /**
+     * Right rotation on the given node
+     * @param node - node on which rotation is performed
+     * @return left son of the node which becomes root of the subtree
+     */
+    private int rightRotation(int node) {
+        int leftNode = this.left[node];
+        int middle = this.right[leftNode];
+
+        this.left[node] = middle;
+        if (middle != NIL) {
+            this.parent[middle] = node;
+        }
+        this.parent[leftNode] = this.parent[node];
+        this.replaceChild(this.parent[node], node, leftNode);
+        this.right[leftNode] = node;
+        this.parent[node] = leftNode;
+
+        //set new heights to nodes
+        this.setNodeHeight(node);
+        this.setNodeHeight(leftNode);
+        return leftNode;
+    }
+
+    /**
+     * Method that links new child to the parent instead of the old one
+     * @param parentNode - parent node, NIL if the old child is root
+     * @param oldChild - replaced son
+     * @param newChild - new son
+     */
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        if (parentNode == NIL) {
+            this.root = newChild;
+        } else if (this.left[parentNode] == oldChild) {
+            this.left[parentNode] = newChild;
+        } else {
+            this.right[parentNode] = newChild;
+        }
+    }
+
+    private void setNodeHeight(int node) {
+        int leftHeight = this.height(this.left[node]);
+        int rightHeight = this.height(this.right[node]);
+        this.heights[node] = (byte) (((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1);
+    }
+
+    private int height(int node) {
+        return (node == NIL) ? 0 : this.heights[node];
+    }
+
+    private int leftmost(int node) {
+        if (node != NIL) {
+            while (this.left[node] != NIL) {
+                node = this.left[node];
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Method that returns next node in inorder using parent indexes
+     * @param node - node to get successor for
+     * @return successor slot or NIL if the node is the last one
+     */
+    private int successor(int node) {
+        if (this.right[node] != NIL) {
+            return this.leftmost(this.right[node]);
+        }
+        int parentNode = this.parent[node];
+        while (parentNode != NIL && this.right[parentNode] == node) {
+            node = parentNode;
+            parentNode = this.parent[node];
+        }
+        return parentNode;
+    }
+
+    /**
+     * Method that takes slot from the free-list or from the end of the pool
+     * @param key - key of the new node
+     * @param parentNode - parent of the new node
+     * @return slot of the new leaf node
+     */
+    private int allocate(long key, int parentNode) {
+        int node;
+        if (this.freeHead != NIL) {
+            node = this.freeHead;
+            this.freeHead = this.left[node];
+        } else {
+            if (this.nextSlot == this.keys.length) {
+                this.grow();
+            }
+            node = this.nextSlot++;
+        }
+        this.keys[node] = key;
+        this.left[node] = NIL;
+        this.right[node] = NIL;
+        this.parent[node] = parentNode;
+        this.heights[node] = 1;
+        this.size++;
+        return node;
+    }
+
+    /**
+     * Method that returns slot to the free-list
+     * @param node - released slot
+     */
+    private void release(int node) {
+        this.left[node] = this.freeHead;
+        this.right[node] = NIL;
+        this.parent[node] = NIL;
+        this.freeHead = node;
+        this.size--;
+    }
+
+    private void grow() {
+        int oldCapacity = this.keys.length;
+        if (oldCapacity == MAX_CAPACITY) {
+            throw new IllegalStateException("Node pool capacity exceeded");
+        }
+        int newCapacity = oldCapacity + (oldCapacity >> 1) + 1;
+        if (newCapacity < 0 || newCapacity > MAX_CAPACITY) {
+            newCapacity = MAX_CAPACITY;
+        }
+        this.keys = Arrays.copyOf(this.keys, newCapacity);
+        this.left = Arrays.copyOf(this.left, newCapacity);
+        this.right = Arrays.copyOf(this.right, newCapacity);
+        this.parent = Arrays.copyOf(this.parent, newCapacity);
+        this.heights = Arrays.copyOf(this.heights, newCapacity);
+    }
+}
@@ -0,0 +1,565 @@
+package org.zorvan.avl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class represents disk-resident AVL tree of long keys and long values.
+ * Nodes are fixed size records in a file accessed through memory mapped buffers, child and parent
+ * references are record indexes instead of object references. Insert, delete and rotations update
+ * the records in place, so the operating system page cache works as the buffer pool: hot upper levels
+ * of the tree stay resident and the garbage collector never sees the nodes.
+ *
+ * File starts with a header record (magic, version, record size, root, size, first unused record and
+ * head of the free-list) followed by node records:
+ * key (8 bytes), value (8), left (4), right (4), parent (4), height (4).
+ * Reopening the file only reads the header, there is no deserialization.
+ *
+ * The file is mapped in segments of at most 1 GB, the last segment is remapped with double size when
+ * the tree grows. Changes reach the disk when the operating system writes the pages back or after force(),
+ * the file is not crash consistent by itself.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class MappedAVLTree implements Closeable {
+    private static final long MAGIC = 0x41564c5452454531L; //"AVLTREE1"
+    private static final int VERSION = 1;
+    private static final int NIL = -1; //index used instead of null reference
+
+    private static final int RECORD_SIZE = 32;
+    private static final int HEADER_RECORDS = 2; //header takes the first 64 bytes
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int INITIAL_MAPPING = 1 << 20;
+    private static final int MAX_RECORDS = Integer.MAX_VALUE - HEADER_RECORDS;
+
+    //header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int RECORD_SIZE_OFFSET = 12;
+    private static final int ROOT_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+    private static final int NEXT_SLOT_OFFSET = 24;
+    private static final int FREE_HEAD_OFFSET = 28;
+
+    //record fields
+    private static final int KEY = 0;
+    private static final int VALUE = 8;
+    private static final int LEFT = 16;
+    private static final int RIGHT = 20;
+    private static final int PARENT = 24;
+    private static final int HEIGHT = 28;
+
+    private final FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long mappedSize; //number of mapped bytes of the file
+    private int root; //index of the root node
+    private int size; //number of nodes in the tree
+    private int nextSlot; //first record which was never used
+    private int freeHead; //first record of the free-list
+
+    /**
+     * Constructor of the MappedAVLTree class, opens existing tree file or creates new one
+     * @param file - path of the tree file
+     * @throws IOException if the file can not be opened or it is not a tree file
+     */
+    public MappedAVLTree(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try {
+            long fileSize = this.channel.size();
+            this.segments = new MappedByteBuffer[0];
+            if (fileSize == 0) {
+                this.map(INITIAL_MAPPING);
+                MappedByteBuffer header = this.segments[0];
+                header.putLong(MAGIC_OFFSET, MAGIC);
+                header.putInt(VERSION_OFFSET, VERSION);
+                header.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+                this.clear();
+            } else {
+                //header is checked before mapping, mapping for writing would extend any other file
+                this.readHeader(file);
+                this.map(Math.max(fileSize, INITIAL_MAPPING));
+            }
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    private void readHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_RECORDS * RECORD_SIZE);
+        while (header.hasRemaining()) {
+            if (this.channel.read(header, header.position()) < 0) {
+                throw new IOException("Not an AVL tree file: " + file);
+            }
+        }
+        if (header.getLong(MAGIC_OFFSET) != MAGIC || header.getInt(VERSION_OFFSET) != VERSION
+                || header.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+            throw new IOException("Not an AVL tree file: " + file);
+        }
+        this.root = header.getInt(ROOT_OFFSET);
+        this.size = header.getInt(SIZE_OFFSET);
+        this.nextSlot = header.getInt(NEXT_SLOT_OFFSET);
+        this.freeHead = header.getInt(FREE_HEAD_OFFSET);
+    }
+
+    /**
+     * Method for search of particular key in the tree
+     * @param key - wanted key
+     * @return true - if the key is present in the tree, false - otherwise
+     */
+    public boolean search(long key) {
+        return this.find(key) != NIL;
+    }
+
+    /**
+     * Method that returns value of the key
+     * @param key - wanted key
+     * @param defaultValue - value returned if the key is not present
+     * @return value of the key or default value
+     */
+    public long get(long key, long defaultValue) {
+        int node = this.find(key);
+        return (node == NIL) ? defaultValue : this.getLong(node, VALUE);
+    }
+
+    /**
+     * Insertion of the key to the tree
+     * @param key - key to be inserted
+     * @param value - value of the key
+     * @return true - if key was inserted, false - if key was already present
+     */
+    public boolean insert(long key, long value) {
+        //if there is no root the inserted node becomes root of the tree
+        if (this.root == NIL) {
+            this.setRoot(this.allocate(key, value, NIL));
+            return true;
+        }
+
+        int activeNode = this.root;
+        while (true) {
+            long activeKey = this.getLong(activeNode, KEY);
+            if (key == activeKey) {
+                return false; //key already exists in the tree
+            } else if (key > activeKey) {
+                //going to right subtree
+                int rightNode = this.getInt(activeNode, RIGHT);
+                if (rightNode == NIL) {
+                    this.putInt(activeNode, RIGHT, this.allocate(key, value, activeNode));
+                    this.retrace(activeNode);
+                    return true;
+                }
+                activeNode = rightNode;
+            } else {
+                //going to left subtree
+                int leftNode = this.getInt(activeNode, LEFT);
+                if (leftNode == NIL) {
+                    this.putInt(activeNode, LEFT, this.allocate(key, value, activeNode));
+                    this.retrace(activeNode);
+                    return true;
+                }
+                activeNode = leftNode;
+            }
+        }
+    }
+
+    /**
+     * Deletion of the key from the tree
+     * @param key - key to be deleted
+     * @return true - if the key was deleted, false - if the key was not present
+     */
+    public boolean delete(long key) {
+        int nodeToRemove = this.find(key);
+        if (nodeToRemove == NIL) {
+            return false;
+        }
+
+        //if deleting node has both sons its key and value are replaced by the substitute
+        //(leftmost node of the right subtree) and the substitute record is removed instead
+        if (this.getInt(nodeToRemove, LEFT) != NIL && this.getInt(nodeToRemove, RIGHT) != NIL) {
+            int substitute = this.leftmost(this.getInt(nodeToRemove, RIGHT));
+            this.putLong(nodeToRemove, KEY, this.getLong(substitute, KEY));
+            this.putLong(nodeToRemove, VALUE, this.getLong(substitute, VALUE));
+            nodeToRemove = substitute;
+        }
+
+        //now deleting node has at most one son which takes its place
+        int child = this.getInt(nodeToRemove, LEFT);
+        if (child == NIL) {
+            child = this.getInt(nodeToRemove, RIGHT);
+        }
+        int nodeToRemoveParent = this.getInt(nodeToRemove, PARENT);
+        if (child != NIL) {
+            this.putInt(child, PARENT, nodeToRemoveParent);
+        }
+        this.replaceChild(nodeToRemoveParent, nodeToRemove, child);
+        this.release(nodeToRemove);
+
+        //reset node heights and detect rotation on the way to root
+        this.retrace(nodeToRemoveParent);
+        return true;
+    }
+
+    /**
+     * Inorder traversal of the whole tree
+     * @return long[] - keys in ascending order
+     */
+    public long[] inorder() {
+        long[] result = new long[this.size];
+        int i = 0;
+        int node = this.leftmost(this.root);
+        while (node != NIL) {
+            result[i++] = this.getLong(node, KEY);
+            node = this.successor(node);
+        }
+        return result;
+    }
+
+    /**
+     * Method that returns number of keys in the tree
+     * @return int number of keys in tree
+     */
+    public int getNumberOfNodes() {
+        return this.size;
+    }
+
+    /**
+     * Method that returns height of the tree
+     * @return int height of the tree, 0 for empty tree
+     */
+    public int getHeight() {
+        return this.height(this.root);
+    }
+
+    /**
+     * Method that removes all keys from the tree, the file keeps its size and records are reused
+     */
+    public final void clear() {
+        this.setRoot(NIL);
+        this.setSize(0);
+        this.setNextSlot(0);
+        this.setFreeHead(NIL);
+    }
+
+    /**
+     * Method that writes all changes of the mapped file to the storage device
+     */
+    public void force() {
+        for (MappedByteBuffer segment : this.segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Method that closes the file, changes are forced to the storage device
+     * @throws IOException if the file can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.channel.isOpen()) {
+            this.force();
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Method for finding record of the particular key
+     * @param key - wanted key
+     * @return record of the key or NIL if key is not present in the tree
+     */
+    private int find(long key) {
+        int activeNode = this.root;
+        while (activeNode != NIL) {
+            long activeKey = this.getLong(activeNode, KEY);
+            if (key == activeKey) {
+                return activeNode;
+            }
+            activeNode = this.getInt(activeNode, (key > activeKey) ? RIGHT : LEFT);
+        }
+        return NIL;
+    }
+
+    /**
+     * Method for setting heights and detecting rotations on the way from given node to root
+     * Tracing stops as soon as height of the (rebalanced) subtree did not change
+     * @param node - first node on which heights are set and rotations are detected
+     */
+    private void retrace(int node) {
+        while (node != NIL) {
+            int oldHeight = this.getInt(node, HEIGHT);
+            this.setNodeHeight(node);
+            node = this.detectRotation(node);
+            if (this.getInt(node, HEIGHT) == oldHeight) {
+                break;
+            }
+            node = this.getInt(node, PARENT);
+        }
+    }
+
+    /**
+     * Method for rotation detection, same rules as in AVLTree
+     * @param node - node on which rotation needs to be detected
+     * @return root of the subtree after possible rotation
+     */
+    private int detectRotation(int node) {
+        int leftNode = this.getInt(node, LEFT);
+        int rightNode = this.getInt(node, RIGHT);
+        int balanceFactor = this.height(rightNode) - this.height(leftNode);
+        if (balanceFactor >= 2) {
+            if (this.height(this.getInt(rightNode, LEFT)) > this.height(this.getInt(rightNode, RIGHT))) {
+                //right-left rotation is performed
+                this.rightRotation(rightNode);
+            }
+            return this.leftRotation(node);
+        }
+        if (balanceFactor <= -2) {
+            if (this.height(this.getInt(leftNode, RIGHT)) > this.height(this.getInt(leftNode, LEFT))) {
+                //left-right rotation is performed
+                this.leftRotation(leftNode);
+            }
+            return this.rightRotation(node);
+        }
+        return node;
+    }
+
+    /**
+     * Left rotation on the given node
+     * @param node - node on which rotation is performed
+     * @return right son of the node which becomes root of the subtree
+     */
+    private int leftRotation(int node) {
+        int rightNode = this.getInt(node, RIGHT);
+        int middle = this.getInt(rightNode, LEFT);
+        int parentNode = this.getInt(node, PARENT);
+
+        this.putInt(node, RIGHT, middle);
+        if (middle != NIL) {
+            this.putInt(middle, PARENT, node);
+        }
+        this.putInt(rightNode, PARENT, parentNode);
+        this.replaceChild(parentNode, node, rightNode);
+        this.putInt(rightNode, LEFT, node);
+        this.putInt(node, PARENT, rightNode);
+
+        //set new heights to nodes
+        this.setNodeHeight(node);
+        this.setNodeHeight(rightNode);
+        return rightNode;
+    }
+
+    /**
+     * Right rotation on the given node
+     * @param node - node on which rotation is performed
+     * @return left son of the node which becomes root of the subtree
+     */
+    private int rightRotation(int node) {
+        int leftNode = this.getInt(node, LEFT);
+        int middle = this.getInt(leftNode, RIGHT);
+        int parentNode = this.getInt(node, PARENT);
+
+        this.putInt(node, LEFT, middle);
+        if (middle != NIL) {
+            this.putInt(middle, PARENT, node);
+        }
+        this.putInt(leftNode, PARENT, parentNode);
+        this.replaceChild(parentNode, node, leftNode);
+        this.putInt(leftNode, RIGHT, node);
+        this.putInt(node, PARENT, leftNode);
+
+        //set new heights to nodes
+        this.setNodeHeight(node);
+        this.setNodeHeight(leftNode);
+        return leftNode;
+    }
+
+    /**
+     * Method that links new child to the parent instead of the old one
+     * @param parentNode - parent node, NIL if the old child is root
+     * @param oldChild - replaced son
+     * @param newChild - new son
+     */
+    private void replaceChild(int parentNode, int oldChild, int newChild) {
+        if (parentNode == NIL) {
+            this.setRoot(newChild);
+        } else if (this.getInt(parentNode, LEFT) == oldChild) {
+            this.putInt(parentNode, LEFT, newChild);
+        } else {
+            this.putInt(parentNode, RIGHT, newChild);
+        }
+    }
+
+    private void setNodeHeight(int node) {
+        int leftHeight = this.height(this.getInt(node, LEFT));
+        int rightHeight = this.height(this.getInt(node, RIGHT));
+        this.putInt(node, HEIGHT, ((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1);
+    }
+
+    private int height(int node) {
+        return (node == NIL) ? 0 : this.getInt(node, HEIGHT);
+    }
+
+    private int leftmost(int node) {
+        if (node != NIL) {
+            int leftNode;
+            while ((leftNode = this.getInt(node, LEFT)) != NIL) {
+                node = leftNode;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Method that returns next node in inorder using parent indexes
+     * @param node - node to get successor for
+     * @return successor record or NIL if the node is the last one
+     */
+    private int successor(int node) {
+        int rightNode = this.getInt(node, RIGHT);
+        if (rightNode != NIL) {
+            return this.leftmost(rightNode);
+        }
+        int parentNode = this.getInt(node, PARENT);
+        while (parentNode != NIL && this.getInt(parentNode, RIGHT) == node) {
+            node = parentNode;
+            parentNode = this.getInt(node, PARENT);
+        }
+        return parentNode;
+    }
+
+    /**
+     * Method that takes record from the free-list or from the end of the file
+     * @param key - key of the new node
+     * @param value - value of the new node
+     * @param parentNode - parent of the new node
+     * @return record of the new leaf node
+     */
+    private int allocate(long key, long value, int parentNode) {
+        int node;
+        if (this.freeHead != NIL) {
+            node = this.freeHead;
+            this.setFreeHead(this.getInt(node, LEFT));
+        } else {
+            if (this.nextSlot == MAX_RECORDS) {
+                throw new IllegalStateException("Tree file capacity exceeded");
+            }
+            node = this.nextSlot;
+            this.ensureMapped(node);
+            this.setNextSlot(node + 1);
+        }
+        this.putLong(node, KEY, key);
+        this.putLong(node, VALUE, value);
+        this.putInt(node, LEFT, NIL);
+        this.putInt(node, RIGHT, NIL);
+        this.putInt(node, PARENT, parentNode);
+        this.putInt(node, HEIGHT, 1);
+        this.setSize(this.size + 1);
+        return node;
+    }
+
+    /**
+     * Method that returns record to the free-list
+     * @param node - released record
+     */
+    private void release(int node) {
+        this.putInt(node, LEFT, this.freeHead);
+        this.putInt(node, RIGHT, NIL);
+        this.putInt(node, PARENT, NIL);
+        this.setFreeHead(node);
+        this.setSize(this.size - 1);
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="MAPPING">
+    /**
+     * Method that makes sure the record is inside the mapped part of the file
+     * Mapping grows by doubling of the last segment up to the segment size, then new segment is added.
+     * @param node - record which will be written
+     */
+    private void ensureMapped(int node) {
+        long end = offset(node) + RECORD_SIZE;
+        if (end <= this.mappedSize) {
+            return;
+        }
+        long lastSegmentSize = this.mappedSize - ((long) (this.segments.length - 1) << SEGMENT_SHIFT);
+        long newSize = (lastSegmentSize < SEGMENT_SIZE)
+                ? this.mappedSize + Math.min(lastSegmentSize, SEGMENT_SIZE - lastSegmentSize)
+                : this.mappedSize + INITIAL_MAPPING;
+        try {
+            this.map(Math.max(newSize, end));
+        } catch (IOException e) {
+            throw new IllegalStateException("Tree file can not grow", e);
+        }
+    }
+
+    /**
+     * Method that maps the file up to the given size, only the last segment and new segments are remapped
+     * @param size - number of bytes of the file to map
+     * @throws IOException if the file can not be mapped
+     */
+    private void map(long size) throws IOException {
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        int firstRemapped = Math.max(0, this.segments.length - 1);
+        if (this.segments.length > 0 && this.segments[firstRemapped].capacity() == SEGMENT_SIZE) {
+            //full segment does not need to be remapped
+            firstRemapped++;
+        }
+        this.segments = Arrays.copyOf(this.segments, segmentCount);
+        for (int i = firstRemapped; i < segmentCount; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(SEGMENT_SIZE, size - start);
+            this.segments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+        }
+        this.mappedSize = size;
+    }
+
+    private static long offset(int node) {
+        return ((long) node + HEADER_RECORDS) * RECORD_SIZE;
+    }
+
+    private long getLong(int node, int field) {
+        long offset = offset(node);
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & (SEGMENT_SIZE - 1)) + field);
+    }
+
+    private void putLong(int node, int field, long value) {
+        long offset = offset(node);
+        this.segments[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & (SEGMENT_SIZE - 1)) + field, value);
+    }
+
+    private int getInt(int node, int field) {
+        long offset = offset(node);
+        return this.segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & (SEGMENT_SIZE - 1)) + field);
+    }
+
+    private void putInt(int node, int field, int value) {
+        long offset = offset(node);
+        this.segments[(int) (offset >>> SEGMENT_SHIFT)].putInt((int) (offset & (SEGMENT_SIZE - 1)) + field, value);
+    }
+
+    private void setRoot(int root) {
+        this.root = root;
+        this.segments[0].putInt(ROOT_OFFSET, root);
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        this.segments[0].putInt(SIZE_OFFSET, size);
+    }
+
+    private void setNextSlot(int nextSlot) {
+        this.nextSlot = nextSlot;
+        this.segments[0].putInt(NEXT_SLOT_OFFSET, nextSlot);
+    }
+
+    private void setFreeHead(int freeHead) {
+        this.freeHead = freeHead;
+        this.segments[0].putInt(FREE_HEAD_OFFSET, freeHead);
+    }
+    //</editor-fold>
+}
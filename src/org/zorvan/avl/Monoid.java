@@ -0,0 +1,25 @@
+package org.zorvan.avl;
+
+/**
+ * Interface of the monoid used by AggregateAVLTree: associative combine function with identity element.
+ * Combine does not need to be commutative, values are always combined in ascending order of the nodes.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ * @param <A> type of the aggregated values
+ */
+public interface Monoid<A> {
+
+    /**
+     * Method that returns identity element, aggregate of no node
+     * @return A identity element
+     */
+    A identity();
+
+    /**
+     * Associative combine function
+     * @param left - aggregate of the lesser nodes
+     * @param right - aggregate of the greater nodes
+     * @return A aggregate of both
+     */
+    A combine(A left, A right);
+}
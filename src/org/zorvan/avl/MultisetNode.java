@@ -0,0 +1,53 @@
+package org.zorvan.avl;
+
+/**
+ * Abstract class that represents node of the AVLMultiset with number of occurrences of its key.
+ * Every node keeps total number of occurrences in its subtree, it is recomputed together with node heights
+ * after every insertion, deletion and rotation, and along the path to the root when a count changes.
+ * @param <T> - generic type of the node
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public abstract class MultisetNode<T> extends AVLNode<T> {
+    private int count = 1; //number of occurrences of the key
+    private long subtreeCount = 1; //number of occurrences in the subtree of the node
+
+    /**
+     * Method to set node heights, subtree size and number of occurrences in the subtree
+     */
+    @Override
+    public void setNodeHeights() {
+        super.setNodeHeights();
+        this.recount();
+    }
+
+    /**
+     * Method that recomputes number of occurrences in the subtree from the sons
+     */
+    void recount() {
+        long result = this.count;
+        MultisetNode left = (MultisetNode) this.getLeft();
+        if (left != null) {
+            result += left.subtreeCount;
+        }
+        MultisetNode right = (MultisetNode) this.getRight();
+        if (right != null) {
+            result += right.subtreeCount;
+        }
+        this.subtreeCount = result;
+    }
+
+    //<editor-fold defaultstate="collapsed" desc="GETTERS & SETTERS">
+    public int getCount() {
+        return count;
+    }
+
+    void setCount(int count) {
+        this.count = count;
+    }
+
+    public long getSubtreeCount() {
+        return subtreeCount;
+    }
+    //</editor-fold>
+}
@@ -0,0 +1,394 @@
+package org.zorvan.avl;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Class represents persistent (path-copying) AVL tree of keys and values.
+ * Nodes are immutable, insertion and deletion copy only the O(log n) nodes on the path
+ * from the root and share the rest of the tree with the previous version. Thanks to that
+ * snapshot of the tree is taken in O(1) time and can be read by any number of threads
+ * without locks while writers keep changing the tree.
+ *
+ * Balancing follows the same rules as detectRotation in AVLTree, but rotations build new nodes
+ * instead of relinking the old ones, so the nodes do not have parent references.
+ * Writers are serialized by the lock of the tree, readers never lock.
+ *
+ * @param <K> - type of the keys
+ * @param <V> - type of the values
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class PersistentAVLTree<K, V> implements Iterable<Map.Entry<K, V>> {
+    private final Comparator<? super K> comparator;
+    private final boolean readOnly; //snapshots can not be changed
+    private volatile Node<K, V> root;
+
+    /**
+     * Constructor of the PersistentAVLTree class, keys are compared by their natural ordering
+     */
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    /**
+     * Constructor of the PersistentAVLTree class
+     * @param comparator - comparator of the keys, null for natural ordering
+     */
+    public PersistentAVLTree(Comparator<? super K> comparator) {
+        this(comparator, null, false);
+    }
+
+    private PersistentAVLTree(Comparator<? super K> comparator, Node<K, V> root, boolean readOnly) {
+        this.comparator = comparator;
+        this.root = root;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Method that returns immutable snapshot of the current version of the tree in O(1) time
+     * Later changes of this tree are not visible in the snapshot.
+     * @return PersistentAVLTree - read-only tree
+     */
+    public PersistentAVLTree<K, V> snapshot() {
+        if (this.readOnly) {
+            return this;
+        }
+        return new PersistentAVLTree<>(this.comparator, this.root, true);
+    }
+
+    /**
+     * Method for search of particular key in the tree
+     * @param key - wanted key
+     * @return value of the key or null if key is not present in the tree
+     */
+    public V search(K key) {
+        Node<K, V> activeNode = this.root;
+        while (activeNode != null) {
+            int comparison = this.compare(key, activeNode.key);
+            if (comparison == 0) {
+                return activeNode.value;
+            }
+            activeNode = (comparison < 0) ? activeNode.left : activeNode.right;
+        }
+        return null;
+    }
+
+    /**
+     * Insertion of the key to the tree
+     * @param key - key to be inserted
+     * @param value - value of the key
+     * @return true - if key was inserted, false - if key was already present
+     */
+    public synchronized boolean insert(K key, V value) {
+        this.checkWritable();
+        Node<K, V> oldRoot = this.root;
+        Node<K, V> newRoot = this.insert(oldRoot, key, value, false);
+        this.root = newRoot;
+        return newRoot != oldRoot;
+    }
+
+    /**
+     * Insertion of the key to the tree or replacement of its value
+     * @param key - key to be inserted
+     * @param value - new value of the key
+     * @return previous value of the key or null if key was not present
+     */
+    public synchronized V put(K key, V value) {
+        this.checkWritable();
+        V previous = this.search(key);
+        this.root = this.insert(this.root, key, value, true);
+        return previous;
+    }
+
+    /**
+     * Deletion of the key from the tree
+     * @param key - key to be deleted
+     * @return true - if the key was deleted, false - if the key was not present
+     */
+    public synchronized boolean delete(K key) {
+        this.checkWritable();
+        Node<K, V> oldRoot = this.root;
+        Node<K, V> newRoot = this.delete(oldRoot, key);
+        this.root = newRoot;
+        return newRoot != oldRoot;
+    }
+
+    /**
+     * Method that returns number of keys in the tree in O(1) time
+     * @return int number of keys in tree
+     */
+    public int size() {
+        return size(this.root);
+    }
+
+    /**
+     * Method that returns true if the tree contains no key
+     * @return true - if the tree is empty
+     */
+    public boolean isEmpty() {
+        return this.root == null;
+    }
+
+    /**
+     * Method that returns height of the tree
+     * @return int height of the tree, 0 for empty tree
+     */
+    public int getHeight() {
+        return height(this.root);
+    }
+
+    /**
+     * Method that returns true if the tree is read-only snapshot
+     * @return true - if the tree can not be changed
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    /**
+     * Method that returns ascending iterator over entries of the version of the tree
+     * current at the time of the call, later changes are not visible in the iteration
+     * @return Iterator - lazy iterator of immutable entries
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(this.root);
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("Snapshot can not be changed");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K key, K nodeKey) {
+        if (this.comparator != null) {
+            return this.comparator.compare(key, nodeKey);
+        }
+        return ((Comparable<? super K>) key).compareTo(nodeKey);
+    }
+
+    /**
+     * Insertion of the key to the subtree
+     * @param node - root of the subtree
+     * @param key - key to be inserted
+     * @param value - value of the key
+     * @param replace - true if value of present key is replaced
+     * @return new root of the subtree, the same node if nothing changed
+     */
+    private Node<K, V> insert(Node<K, V> node, K key, V value, boolean replace) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int comparison = this.compare(key, node.key);
+        if (comparison == 0) {
+            if (!replace || node.value == value) {
+                return node;
+            }
+            return new Node<>(node.key, value, node.left, node.right);
+        }
+        if (comparison < 0) {
+            Node<K, V> left = this.insert(node.left, key, value, replace);
+            return (left == node.left) ? node : balance(node.key, node.value, left, node.right);
+        }
+        Node<K, V> right = this.insert(node.right, key, value, replace);
+        return (right == node.right) ? node : balance(node.key, node.value, node.left, right);
+    }
+
+    /**
+     * Deletion of the key from the subtree
+     * @param node - root of the subtree
+     * @param key - key to be deleted
+     * @return new root of the subtree, the same node if the key is not present
+     */
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = this.compare(key, node.key);
+        if (comparison < 0) {
+            Node<K, V> left = this.delete(node.left, key);
+            return (left == node.left) ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (comparison > 0) {
+            Node<K, V> right = this.delete(node.right, key);
+            return (right == node.right) ? node : balance(node.key, node.value, node.left, right);
+        }
+        //deleting node with at most one son is replaced by the son
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        //substitute is the leftmost node from the right subtree
+        Node<K, V> substitute = node.right;
+        while (substitute.left != null) {
+            substitute = substitute.left;
+        }
+        return balance(substitute.key, substitute.value, node.left, removeLeftmost(node.right));
+    }
+
+    /**
+     * Method that removes the leftmost node from the subtree
+     * @param node - root of the subtree
+     * @return new root of the subtree
+     */
+    private static <K, V> Node<K, V> removeLeftmost(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeLeftmost(node.left), node.right);
+    }
+
+    /**
+     * Method that creates new node and performs rotation if it is needed, same rules as in AVLTree
+     * @param key - key of the new node
+     * @param value - value of the new node
+     * @param left - left son of the new node
+     * @param right - right son of the new node
+     * @return root of the balanced subtree
+     */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int balanceFactor = height(right) - height(left);
+        if (balanceFactor >= 2) {
+            if (height(right.left) > height(right.right)) {
+                //right-left rotation is performed
+                right = rightRotation(right.key, right.value, right.left, right.right);
+            }
+            return leftRotation(key, value, left, right);
+        }
+        if (balanceFactor <= -2) {
+            if (height(left.right) > height(left.left)) {
+                //left-right rotation is performed
+                left = leftRotation(left.key, left.value, left.left, left.right);
+            }
+            return rightRotation(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    /**
+     * Left rotation of the node given by its content, right son becomes root of the subtree
+     */
+    private static <K, V> Node<K, V> leftRotation(K key, V value, Node<K, V> left, Node<K, V> right) {
+        Node<K, V> node = new Node<>(key, value, left, right.left);
+        return new Node<>(right.key, right.value, node, right.right);
+    }
+
+    /**
+     * Right rotation of the node given by its content, left son becomes root of the subtree
+     */
+    private static <K, V> Node<K, V> rightRotation(K key, V value, Node<K, V> left, Node<K, V> right) {
+        Node<K, V> node = new Node<>(key, value, left.right, right);
+        return new Node<>(left.key, left.value, left.left, node);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return (node == null) ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    /**
+     * Immutable node of the persistent tree
+     */
+    static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left, right;
+        final int height; //height of the node, leaf has height 1
+        final int size; //number of nodes in the subtree
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            int leftHeight = PersistentAVLTree.height(left);
+            int rightHeight = PersistentAVLTree.height(right);
+            this.height = ((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1;
+            this.size = PersistentAVLTree.size(left) + PersistentAVLTree.size(right) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return this.key;
+        }
+
+        @Override
+        public V getValue() {
+            return this.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Nodes of persistent tree are immutable");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return AVLTreeMap.eq(this.key, entry.getKey()) && AVLTreeMap.eq(this.value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return ((this.key == null) ? 0 : this.key.hashCode()) ^ ((this.value == null) ? 0 : this.value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "=" + this.value;
+        }
+    }
+
+    /**
+     * Inorder iterator over fixed version of the tree
+     * Nodes do not have parent references, so the path is kept in a stack of tree height size.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        EntryIterator(Node<K, V> root) {
+            this.pushLeftPath(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !this.path.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (this.path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = this.path.pop();
+            this.pushLeftPath(node.right);
+            return node;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Nodes of persistent tree are immutable");
+        }
+
+        private void pushLeftPath(Node<K, V> node) {
+            while (node != null) {
+                this.path.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
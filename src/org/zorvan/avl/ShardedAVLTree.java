@@ -0,0 +1,360 @@
+package org.zorvan.avl;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Class represents thread-safe AVL tree sharded by key ranges.
+ * Key space is split by boundary nodes into range partitions, each backed by its own AVLTree and
+ * read-write lock, so writers into different partitions do not contend. Operations are routed by
+ * binary search in the boundaries. When two neighbouring shards get skewed, they are merged by join
+ * and split at the median in O(log n) time and the new boundary is published; operations which
+ * locked a replaced shard retry on the new layout.
+ * Iterator is weakly consistent: it copies batches of nodes under the read lock of one shard and
+ * continues after the last returned node, so it never throws ConcurrentModificationException.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class ShardedAVLTree implements Iterable<AVLNode> {
+    private static final int SCAN_BATCH = 256; //nodes copied by the iterator under one lock
+    private static final int SKEW_CHECK_INTERVAL = 1024; //insertions into shard between checks of skew
+    private static final int SKEW_MIN_DIFFERENCE = 1024; //smaller differences of shard sizes are ignored
+
+    private volatile Layout layout; //current boundaries and shards
+    private final ReentrantLock rebalanceLock = new ReentrantLock(); //serializes changes of the layout
+
+    /**
+     * Constructor of the ShardedAVLTree class
+     * @param bounds - lower bounds of the shards except for the first one in strictly ascending order,
+     * n bounds create n + 1 shards
+     * @throws IllegalArgumentException if the bounds are not in strictly ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public ShardedAVLTree(AVLNode[] bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i - 1].compareTo(bounds[i]) >= 0) {
+                throw new IllegalArgumentException("Bounds are not in strictly ascending order: "
+                        + bounds[i - 1] + ", " + bounds[i]);
+            }
+        }
+        Shard[] shards = new Shard[bounds.length + 1];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(new AVLTree());
+        }
+        this.layout = new Layout(bounds.clone(), shards);
+    }
+
+    /**
+     * Method for search of particular node in the tree
+     * @param node - wanted node
+     * @return found node or null if node is not present in the tree
+     */
+    public AVLNode search(AVLNode node) {
+        Shard shard = this.lockShard(node, false);
+        try {
+            return shard.tree.search(node);
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insertion of the node to the tree
+     * @param node - node to be inserted
+     * @return true - if node was inserted, false - if node was not inserted
+     */
+    public boolean insert(AVLNode node) {
+        Shard shard = this.lockShard(node, true);
+        boolean inserted;
+        boolean checkSkew;
+        try {
+            inserted = shard.tree.insert(node);
+            shard.size = shard.tree.size();
+            checkSkew = inserted && shard.size % SKEW_CHECK_INTERVAL == 0;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        //rebalancing locks two shards, so it must not run under the lock of one of them
+        if (checkSkew) {
+            this.rebalanceAround(shard);
+        }
+        return inserted;
+    }
+
+    /**
+     * Deletion of the node from the tree
+     * @param node - node to be deleted
+     * @return true - if the node was deleted, false - if the node was not deleted
+     */
+    public boolean delete(AVLNode node) {
+        Shard shard = this.lockShard(node, true);
+        try {
+            boolean deleted = shard.tree.delete(node);
+            shard.size = shard.tree.size();
+            return deleted;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method that returns the number of nodes, it is exact only if the tree is not modified concurrently
+     * @return int number of nodes
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : this.layout.shards) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    /**
+     * Method that returns sizes of the shards in ascending order of their ranges
+     * @return int[] sizes of the shards
+     */
+    public int[] getShardSizes() {
+        Shard[] shards = this.layout.shards;
+        int[] sizes = new int[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            sizes[i] = shards[i].size;
+        }
+        return sizes;
+    }
+
+    /**
+     * Method that returns current lower bounds of the shards except for the first one
+     * @return AVLNode[] boundaries in ascending order
+     */
+    public AVLNode[] getBounds() {
+        return this.layout.bounds.clone();
+    }
+
+    /**
+     * Method that rebalances all pairs of neighbouring shards whose sizes are skewed
+     * Boundary moves to the median of the pair, so repeated calls spread a hot range over all shards.
+     */
+    public void rebalance() {
+        this.rebalanceLock.lock();
+        try {
+            for (int i = 0; i + 1 < this.layout.shards.length; i++) {
+                this.rebalancePair(i);
+            }
+        } finally {
+            this.rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Method that returns weakly consistent iterator of the nodes in ascending order
+     * @return Iterator of the nodes
+     */
+    @Override
+    public Iterator<AVLNode> iterator() {
+        return new ScanIterator();
+    }
+
+    /**
+     * Method that locks the shard owning the node, it retries if the shard was replaced by rebalancing
+     * @param node - routed node
+     * @param write - true for the write lock, false for the read lock
+     * @return Shard - locked shard
+     */
+    private Shard lockShard(AVLNode node, boolean write) {
+        while (true) {
+            Layout current = this.layout;
+            Shard shard = current.shards[current.shardIndex(node)];
+            Lock lock = write ? shard.lock.writeLock() : shard.lock.readLock();
+            lock.lock();
+            if (!shard.retired) {
+                return shard;
+            }
+            lock.unlock();
+        }
+    }
+
+    private void rebalanceAround(Shard shard) {
+        //skew check is only a hint, busy rebalancing is not waited for
+        if (!this.rebalanceLock.tryLock()) {
+            return;
+        }
+        try {
+            Shard[] shards = this.layout.shards;
+            for (int i = 0; i < shards.length; i++) {
+                if (shards[i] == shard) {
+                    if (i > 0) {
+                        this.rebalancePair(i - 1);
+                    }
+                    if (i + 1 < this.layout.shards.length) {
+                        this.rebalancePair(i);
+                    }
+                    return;
+                }
+            }
+        } finally {
+            this.rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Method that moves the boundary between the shard and the next one to the median of their nodes
+     * Caller must hold the rebalance lock.
+     * @param index - index of the left shard of the pair
+     */
+    private void rebalancePair(int index) {
+        Layout current = this.layout;
+        Shard left = current.shards[index];
+        Shard right = current.shards[index + 1];
+        //locks are taken in the order of shards, single shard operations take only one
+        left.lock.writeLock().lock();
+        right.lock.writeLock().lock();
+        try {
+            int leftSize = left.tree.size();
+            int rightSize = right.tree.size();
+            int difference = Math.abs(leftSize - rightSize);
+            if (difference < SKEW_MIN_DIFFERENCE || difference <= Math.min(leftSize, rightSize)) {
+                return;
+            }
+
+            AVLTree merged;
+            if (leftSize == 0) {
+                merged = right.tree;
+            } else if (rightSize == 0) {
+                merged = left.tree;
+            } else {
+                AVLNode first = right.tree.first();
+                right.tree.delete(first);
+                merged = AVLTree.join(left.tree, first, right.tree);
+            }
+            AVLNode median = merged.select(merged.size() / 2);
+            AVLTree.Split split = AVLTree.split(merged, median);
+            AVLTree greater = split.getGreater();
+            greater.insert(split.getNode());
+
+            AVLNode[] bounds = current.bounds.clone();
+            bounds[index] = median;
+            Shard[] shards = current.shards.clone();
+            shards[index] = new Shard(split.getLess());
+            shards[index + 1] = new Shard(greater);
+            //new layout is visible before the old shards are retired, so retrying operations find it
+            this.layout = new Layout(bounds, shards);
+            left.retired = true;
+            right.retired = true;
+        } finally {
+            right.lock.writeLock().unlock();
+            left.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Immutable boundaries with the shards between them
+     */
+    private static final class Layout {
+        final AVLNode[] bounds; //bounds[i] is the lowest node of the shard i + 1
+        final Shard[] shards;
+
+        Layout(AVLNode[] bounds, Shard[] shards) {
+            this.bounds = bounds;
+            this.shards = shards;
+        }
+
+        /**
+         * Method that returns index of the shard owning the node
+         * @param node - routed node
+         * @return int number of bounds less than or equal to the node
+         */
+        @SuppressWarnings("unchecked")
+        int shardIndex(AVLNode node) {
+            int low = 0;
+            int high = this.bounds.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (node.compareTo(this.bounds[middle]) >= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Partition of the key space with its own tree and lock
+     */
+    private static final class Shard {
+        final AVLTree tree;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        volatile int size; //size of the tree published for unlocked readers
+        volatile boolean retired; //true when the shard was replaced by rebalancing
+
+        Shard(AVLTree tree) {
+            this.tree = tree;
+            this.size = tree.size();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator which copies batches of nodes under the read lock of one shard
+     */
+    private final class ScanIterator implements Iterator<AVLNode> {
+        private final ArrayDeque<AVLNode> batch = new ArrayDeque<>();
+        private AVLNode last; //last fetched node, next batch continues after it
+        private boolean finished;
+
+        @Override
+        public boolean hasNext() {
+            if (this.batch.isEmpty() && !this.finished) {
+                this.fetch();
+            }
+            return !this.batch.isEmpty();
+        }
+
+        @Override
+        public AVLNode next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return this.batch.poll();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void fetch() {
+            retry:
+            while (true) {
+                Layout current = layout;
+                int index = (this.last == null) ? 0 : current.shardIndex(this.last);
+                for (; index < current.shards.length; index++) {
+                    Shard shard = current.shards[index];
+                    shard.lock.readLock().lock();
+                    try {
+                        if (shard.retired) {
+                            continue retry;
+                        }
+                        Iterator<AVLNode> nodes = (this.last == null)
+                                ? shard.tree.iterator() : shard.tree.tailIterator(this.last, false);
+                        while (nodes.hasNext() && this.batch.size() < SCAN_BATCH) {
+                            this.batch.add(nodes.next());
+                        }
+                    } finally {
+                        shard.lock.readLock().unlock();
+                    }
+                    if (!this.batch.isEmpty()) {
+                        this.last = this.batch.peekLast();
+                        return;
+                    }
+                }
+                this.finished = true;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.zorvan.avl;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that replays WorkloadTrace against any tree implementation and measures latency of every operation,
+ * throughput and allocation. Trace is decoded before the replay starts and operations are replayed back to back
+ * in the recorded order, so recorded times are only used to report original duration of the workload.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class TraceReplay {
+
+    /**
+     * Interface of the replayed tree implementation
+     * @param <T> - type of the nodes
+     */
+    public interface Target<T extends AVLNode> {
+
+        boolean insert(T node);
+
+        boolean search(T node);
+
+        boolean delete(T node);
+
+        /**
+         * Inorder traversal
+         * @param from - key of the node where traversal begins, null for the whole tree
+         * @return int - number of traversed nodes
+         */
+        int inorder(T from);
+    }
+
+    private TraceReplay() {
+    }
+
+    /**
+     * Method that creates target replaying the trace against AVLTree
+     * @param <T> - type of the nodes
+     * @param tree - replayed tree, usually empty
+     * @return Target - target delegating to the tree
+     */
+    public static <T extends AVLNode> Target<T> of(final AVLTree tree) {
+        return new Target<T>() {
+            @Override
+            public boolean insert(T node) {
+                return tree.insert(node);
+            }
+
+            @Override
+            public boolean search(T node) {
+                return tree.search(node) != null;
+            }
+
+            @Override
+            public boolean delete(T node) {
+                return tree.delete(node);
+            }
+
+            @Override
+            public int inorder(T from) {
+                AVLNode node = (from == null) ? tree.getRoot() : tree.search(from);
+                return (node == null) ? 0 : tree.inorder(node).size();
+            }
+        };
+    }
+
+    /**
+     * Method that reads the trace and replays it against the target
+     * @param <T> - type of the nodes
+     * @param trace - trace file
+     * @param codec - codec of the keys
+     * @param target - replayed tree implementation
+     * @return Result - measured latencies, throughput and allocation
+     * @throws IOException if the trace can not be read
+     */
+    public static <T extends AVLNode> Result replay(Path trace, AVLNodeCodec<T> codec, Target<T> target)
+            throws IOException {
+        return replay(WorkloadTrace.read(trace, codec), target);
+    }
+
+    /**
+     * Method that replays read records against the target, the records can be replayed only once
+     * because their nodes get linked to the target
+     * @param <T> - type of the nodes
+     * @param records - records read by WorkloadTrace.read
+     * @param target - replayed tree implementation
+     * @return Result - measured latencies, throughput and allocation
+     */
+    public static <T extends AVLNode> Result replay(List<WorkloadTrace.Record<T>> records, Target<T> target) {
+        Result result = new Result(records.isEmpty() ? 0 : records.get(records.size() - 1).getNanos());
+        LatencyHistogram[] histograms = new LatencyHistogram[WorkloadTrace.Operation.values().length];
+        for (WorkloadTrace.Operation operation : WorkloadTrace.Operation.values()) {
+            histograms[operation.ordinal()] = result.getHistogram(operation);
+        }
+        long allocatedBefore = allocatedBytes();
+        long replayStart = System.nanoTime();
+        for (WorkloadTrace.Record<T> record : records) {
+            T node = record.getNode();
+            long start = System.nanoTime();
+            switch (record.getOperation()) {
+                case INSERT:
+                    target.insert(node);
+                    break;
+                case SEARCH:
+                    target.search(node);
+                    break;
+                case DELETE:
+                    target.delete(node);
+                    break;
+                default:
+                    target.inorder(node);
+                    break;
+            }
+            histograms[record.getOperation().ordinal()].record(System.nanoTime() - start);
+        }
+        result.elapsedNanos = System.nanoTime() - replayStart;
+        long allocatedAfter = allocatedBytes();
+        result.allocatedBytes = (allocatedBefore < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocatedBefore;
+        return result;
+    }
+
+    /**
+     * Method that returns number of bytes allocated by the current thread
+     * @return long - allocated bytes or -1 if the JVM does not measure them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Class represents measurements of one replay
+     */
+    public static final class Result {
+        private final Map<WorkloadTrace.Operation, LatencyHistogram> histograms = new EnumMap<>(WorkloadTrace.Operation.class);
+        private final long recordedNanos;
+        private long elapsedNanos;
+        private long allocatedBytes;
+
+        Result(long recordedNanos) {
+            this.recordedNanos = recordedNanos;
+            for (WorkloadTrace.Operation operation : WorkloadTrace.Operation.values()) {
+                this.histograms.put(operation, new LatencyHistogram());
+            }
+        }
+
+        /**
+         * Method that returns histogram of all replayed operations
+         * @return LatencyHistogram - new merged histogram
+         */
+        public LatencyHistogram getTotal() {
+            LatencyHistogram total = new LatencyHistogram();
+            for (LatencyHistogram histogram : this.histograms.values()) {
+                total.add(histogram);
+            }
+            return total;
+        }
+
+        /**
+         * Method that returns throughput of the replay
+         * @return double - operations per second
+         */
+        public double getThroughput() {
+            long operations = 0;
+            for (LatencyHistogram histogram : this.histograms.values()) {
+                operations += histogram.getTotalCount();
+            }
+            return (this.elapsedNanos == 0) ? 0 : operations * 1e9 / this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("replayed in %.3f ms (recorded %.3f ms), %.0f ops/s, allocated %s%n",
+                    this.elapsedNanos / 1e6, this.recordedNanos / 1e6, this.getThroughput(),
+                    (this.allocatedBytes < 0) ? "n/a" : this.allocatedBytes + " B"));
+            for (Map.Entry<WorkloadTrace.Operation, LatencyHistogram> entry : this.histograms.entrySet()) {
+                if (entry.getValue().getTotalCount() > 0) {
+                    report.append(String.format("%-8s %s%n", entry.getKey(), entry.getValue()));
+                }
+            }
+            report.append(String.format("%-8s %s%n", "TOTAL", this.getTotal()));
+            return report.toString();
+        }
+
+        //<editor-fold defaultstate="collapsed" desc="GETTERS">
+        public LatencyHistogram getHistogram(WorkloadTrace.Operation operation) {
+            return histograms.get(operation);
+        }
+
+        /**
+         * @return long - duration of the recorded workload in nanoseconds, from start of the recording to the last record
+         */
+        public long getRecordedNanos() {
+            return recordedNanos;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return long - bytes allocated by the replay including the measured operations, -1 if not supported
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+        //</editor-fold>
+    }
+}
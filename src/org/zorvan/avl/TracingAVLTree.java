@@ -0,0 +1,105 @@
+package org.zorvan.avl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedList;
+
+/**
+ * Class represents AVL tree which records keys and times of its insert, search, delete and inorder calls
+ * to the WorkloadTrace file, so production access patterns can be replayed offline by TraceReplay.
+ * Recording is opt-in, plain AVLTree does not pay for it. Records are buffered and written when the buffer
+ * fills, on flush and on close. Like AVLTree the class is not thread-safe.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ * @param <T> type of the nodes
+ */
+public class TracingAVLTree<T extends AVLNode> extends AVLTree implements Closeable {
+    private final WorkloadTrace.Writer<T> writer;
+
+    /**
+     * Constructor of the TracingAVLTree class
+     * @param trace - trace file, existing file is replaced
+     * @param codec - codec of the recorded keys
+     * @throws IOException if the trace file can not be created
+     */
+    public TracingAVLTree(Path trace, AVLNodeCodec<T> codec) throws IOException {
+        this.writer = new WorkloadTrace.Writer<>(trace, codec);
+    }
+
+    /**
+     * Method for search of particular node in the tree, the call is recorded
+     * @param node - wanted node
+     * @return found node or null if node is not present in the tree
+     * @throws UncheckedIOException if the record can not be written
+     */
+    @Override
+    public AVLNode search(AVLNode node) {
+        this.record(WorkloadTrace.Operation.SEARCH, node);
+        return super.search(node);
+    }
+
+    /**
+     * Insertion of the node to the tree, the call is recorded
+     * @param node - node to be inserted
+     * @return true - if node was inserted, false - if node was not inserted
+     * @throws UncheckedIOException if the record can not be written
+     */
+    @Override
+    public boolean insert(AVLNode node) {
+        this.record(WorkloadTrace.Operation.INSERT, node);
+        return super.insert(node);
+    }
+
+    /**
+     * Deletion of the node from the tree, the call is recorded
+     * @param node - node to be deleted
+     * @return true - if the node was deleted, false - if the node was not deleted
+     * @throws UncheckedIOException if the record can not be written
+     */
+    @Override
+    public boolean delete(AVLNode node) {
+        this.record(WorkloadTrace.Operation.DELETE, node);
+        return super.delete(node);
+    }
+
+    /**
+     * Inorder traversal from given node, the call is recorded without key if it starts at the root
+     * @param node - node from which traversal begins
+     * @return LinkedList - list of nodes
+     * @throws UncheckedIOException if the record can not be written
+     */
+    @Override
+    public LinkedList inorder(AVLNode node) {
+        this.record(WorkloadTrace.Operation.INORDER, (node == this.getRoot()) ? null : node);
+        return super.inorder(node);
+    }
+
+    /**
+     * Method that writes buffered records to the trace file
+     * @throws IOException if the write fails
+     */
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    /**
+     * Method that writes buffered records and closes the trace file, the tree stays usable but
+     * its next recorded call fails
+     * @throws IOException if the write fails
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(WorkloadTrace.Operation operation, AVLNode node) {
+        try {
+            this.writer.write(operation, (T) node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
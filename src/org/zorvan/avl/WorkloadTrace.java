@@ -0,0 +1,188 @@
+package org.zorvan.avl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class represents binary trace of the operations called on a tree, recorded by TracingAVLTree and replayed by TraceReplay.
+ * Trace starts with magic number and version, every record is one byte of the operation, time since the previous
+ * record in nanoseconds as variable length number and key of the node written by AVLNodeCodec.
+ * Inorder traversal of the whole tree has no key.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public final class WorkloadTrace {
+    static final int MAGIC = 0x41564c54; //"AVLT"
+    static final byte VERSION = 1;
+    private static final int NO_KEY = 0x80; //flag of the operation byte
+
+    /**
+     * Traced operations of the tree
+     */
+    public enum Operation {
+        INSERT, SEARCH, DELETE, INORDER
+    }
+
+    private WorkloadTrace() {
+    }
+
+    /**
+     * Method that reads whole trace into memory, so decoding is not measured when the trace is replayed.
+     * Every call creates new nodes which are not linked to any tree.
+     * @param <T> - type of the nodes
+     * @param trace - trace file
+     * @param codec - codec of the keys
+     * @return List - records in the recorded order
+     * @throws IOException if the trace can not be read or it is malformed
+     */
+    public static <T extends AVLNode> List<Record<T>> read(Path trace, AVLNodeCodec<T> codec) throws IOException {
+        List<Record<T>> records = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(trace), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a workload trace: " + trace);
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of the workload trace: " + version);
+            }
+            Operation[] operations = Operation.values();
+            long nanos = 0;
+            while (true) {
+                int header = in.read();
+                if (header < 0) {
+                    return records;
+                }
+                int ordinal = header & ~NO_KEY;
+                if (ordinal >= operations.length) {
+                    throw new IOException("Malformed workload trace, unknown operation " + ordinal);
+                }
+                nanos += readVarLong(in);
+                T node = ((header & NO_KEY) != 0) ? null : codec.read(in);
+                records.add(new Record<>(operations[ordinal], nanos, node));
+            }
+        }
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated workload trace");
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed workload trace, too long number");
+    }
+
+    /**
+     * Class represents one traced operation
+     * @param <T> - type of the nodes
+     */
+    public static final class Record<T extends AVLNode> {
+        private final Operation operation;
+        private final long nanos;
+        private final T node;
+
+        Record(Operation operation, long nanos, T node) {
+            this.operation = operation;
+            this.nanos = nanos;
+            this.node = node;
+        }
+
+        //<editor-fold defaultstate="collapsed" desc="GETTERS">
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return long - time of the operation in nanoseconds since start of the recording
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return T - key of the operation, null for inorder traversal of the whole tree
+         */
+        public T getNode() {
+            return node;
+        }
+        //</editor-fold>
+    }
+
+    /**
+     * Class that appends records to the trace file through a buffer, it is not thread-safe
+     * @param <T> - type of the nodes
+     */
+    public static final class Writer<T extends AVLNode> implements Closeable {
+        private final DataOutputStream out;
+        private final AVLNodeCodec<T> codec;
+        private long lastNanos;
+
+        /**
+         * Constructor of the Writer class, existing trace file is replaced
+         * @param trace - trace file
+         * @param codec - codec of the keys
+         * @throws IOException if the file can not be created
+         */
+        public Writer(Path trace, AVLNodeCodec<T> codec) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(trace), 1 << 16));
+            this.codec = codec;
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.lastNanos = System.nanoTime();
+        }
+
+        /**
+         * Method that appends record of the operation called now
+         * @param operation - called operation
+         * @param node - key of the operation or null for inorder traversal of the whole tree
+         * @throws IOException if the write fails
+         */
+        public void write(Operation operation, T node) throws IOException {
+            long now = System.nanoTime();
+            this.out.writeByte((node == null) ? operation.ordinal() | NO_KEY : operation.ordinal());
+            this.writeVarLong(now - this.lastNanos);
+            this.lastNanos = now;
+            if (node != null) {
+                this.codec.write(node, this.out);
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            //most records follow the previous one within microseconds, so they take two or three bytes
+            while ((value & ~0x7fL) != 0) {
+                this.out.writeByte((int) (value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            this.out.writeByte((int) value);
+        }
+
+        /**
+         * Method that writes buffered records to the file
+         * @throws IOException if the write fails
+         */
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package org.zorvan.avl;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Class represents append-only write-ahead log of tree mutations.
+ * Every record is written by one sequential write at the end of the file:
+ * payload length (4 bytes), type (1), payload and CRC32 of type and payload (4).
+ * Opening the log replays all complete records and cuts off the torn tail left by a crash.
+ *
+ * Durability is given by the sync policy. With EVERY_OPERATION callers wait in awaitDurable
+ * and fsyncs are shared (group commit): one caller forces the file for all records appended
+ * so far while the others wait for it. INTERVAL forces the file from a background thread,
+ * OS leaves writing back to the operating system.
+ *
+ * Failed or partial write and failed force leave the log in unknown state: records appended after
+ * a torn record would be dropped by the replay, so every later append and sync throws IOException
+ * and the log must be reopened, which cuts off the torn tail.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class WriteAheadLog implements Closeable {
+    private static final int HEADER_SIZE = 5; //length and type
+    private static final int TRAILER_SIZE = 4; //checksum
+    private static final int MAX_PAYLOAD = 1 << 24;
+
+    /**
+     * Policy of forcing the log to the storage device
+     */
+    public enum SyncPolicy {
+        /** every mutation is durable when awaitDurable returns, fsyncs of concurrent callers are shared */
+        EVERY_OPERATION,
+        /** log is forced every sync interval, mutations of the last interval can be lost */
+        INTERVAL,
+        /** log is never forced explicitly, the operating system decides */
+        OS
+    }
+
+    /**
+     * Handler of the records replayed when the log is opened
+     */
+    public interface RecordHandler {
+
+        /**
+         * Method called for every complete record in the order of appending
+         * @param type - type of the record
+         * @param payload - payload of the record
+         * @throws IOException if the record can not be applied
+         */
+        void record(byte type, byte[] payload) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final SyncPolicy policy;
+    private final Thread syncThread; //background thread of INTERVAL policy
+    private final CRC32 checksum = new CRC32();
+    private volatile long appendedSequence; //sequence number of the last record written to the file
+    private final Object syncLock = new Object();
+    private long durableSequence; //sequence number of the last forced record, guarded by syncLock
+    private boolean syncing; //true while some caller forces the file, guarded by syncLock
+    private volatile boolean closed; //written under intervalLock
+    private final Object intervalLock = new Object(); //sync thread waits on it, close wakes it up
+    private volatile IOException failure; //first failed write or force, the log can not be used after it
+
+    /**
+     * Constructor of the WriteAheadLog class, opens existing log or creates new one
+     * @param file - path of the log file
+     * @param policy - sync policy
+     * @param syncIntervalMillis - sync interval of INTERVAL policy in milliseconds
+     * @param handler - handler of the replayed records, null if they are only checked
+     * @throws IOException if the log can not be opened or the handler fails
+     */
+    public WriteAheadLog(Path file, SyncPolicy policy, final long syncIntervalMillis, RecordHandler handler)
+            throws IOException {
+        if (policy == SyncPolicy.INTERVAL && syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Illegal sync interval: " + syncIntervalMillis);
+        }
+        this.policy = policy;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try {
+            long end = this.replay(handler);
+            //torn tail of the interrupted append is removed
+            this.channel.truncate(end);
+            this.channel.position(end);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+
+        if (policy == SyncPolicy.INTERVAL) {
+            this.syncThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    syncPeriodically(syncIntervalMillis);
+                }
+            }, "avl-wal-sync");
+            this.syncThread.setDaemon(true);
+            this.syncThread.start();
+        } else {
+            this.syncThread = null;
+        }
+    }
+
+    /**
+     * Method that appends record to the end of the log
+     * @param type - type of the record
+     * @param payload - payload of the record
+     * @return long sequence number of the record, used in awaitDurable
+     * @throws IOException if the log can not be written or it failed before
+     */
+    public synchronized long append(byte type, byte[] payload) throws IOException {
+        if (this.closed) {
+            throw new IOException("Log is closed");
+        }
+        this.checkFailure();
+        if (payload.length > MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Payload too large: " + payload.length);
+        }
+        this.checksum.reset();
+        this.checksum.update(type);
+        this.checksum.update(payload, 0, payload.length);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length + TRAILER_SIZE);
+        record.putInt(payload.length).put(type).put(payload).putInt((int) this.checksum.getValue());
+        record.flip();
+        try {
+            while (record.hasRemaining()) {
+                this.channel.write(record);
+            }
+        } catch (IOException e) {
+            //part of the record may be in the file
+            this.failure = e;
+            throw e;
+        }
+        long sequence = this.appendedSequence + 1;
+        this.appendedSequence = sequence;
+        return sequence;
+    }
+
+    /**
+     * Method that waits until the record is forced to the storage device, it returns immediately
+     * for other policies than EVERY_OPERATION
+     * The first waiting caller forces the file for all records appended so far, callers which come
+     * during the force wait for it and the next one forces the records appended meanwhile.
+     * @param sequence - sequence number returned by append
+     * @throws IOException if the log can not be forced, it failed before or the thread is interrupted
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        if (this.policy != SyncPolicy.EVERY_OPERATION) {
+            return;
+        }
+        synchronized (this.syncLock) {
+            while (this.durableSequence < sequence && this.syncing) {
+                try {
+                    this.syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log sync");
+                }
+            }
+            if (this.durableSequence >= sequence) {
+                return;
+            }
+            this.syncing = true;
+        }
+        this.forceAppended();
+    }
+
+    /**
+     * Method that forces all appended records to the storage device
+     * @throws IOException if the log can not be forced or it failed before
+     */
+    public void sync() throws IOException {
+        synchronized (this.syncLock) {
+            while (this.syncing) {
+                try {
+                    this.syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the log sync");
+                }
+            }
+            this.syncing = true;
+        }
+        this.forceAppended();
+    }
+
+    /**
+     * Method that removes all records, used after checkpoint
+     * @throws IOException if the log can not be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        this.channel.truncate(0);
+        this.channel.position(0);
+        this.channel.force(true);
+    }
+
+    /**
+     * Method that returns sequence number of the last appended record
+     * @return long sequence number, 0 if nothing was appended since opening
+     */
+    public long getAppendedSequence() {
+        return this.appendedSequence;
+    }
+
+    /**
+     * Method that closes the log, appended records are forced to the storage device except for OS policy
+     * @throws IOException if the log can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.intervalLock) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.intervalLock.notifyAll();
+        }
+        if (this.syncThread != null) {
+            //interrupt would close the channel if it came during force, so the thread is woken up and joined
+            boolean interrupted = false;
+            while (this.syncThread.isAlive()) {
+                try {
+                    this.syncThread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                if (this.policy != SyncPolicy.OS) {
+                    this.channel.force(false);
+                }
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Method that forces the file as the leader of the group commit
+     * Caller must have set syncing flag.
+     */
+    private void forceAppended() throws IOException {
+        //records up to this sequence are already written, so the force covers them
+        long target = this.appendedSequence;
+        boolean forced = false;
+        try {
+            this.checkFailure();
+            this.channel.force(false);
+            forced = true;
+        } catch (IOException e) {
+            //pages which were not written back may be dropped, later force would not report it
+            if (this.failure == null && !(e instanceof InterruptedIOException) && this.channel.isOpen()) {
+                this.failure = e;
+            }
+            throw e;
+        } finally {
+            synchronized (this.syncLock) {
+                this.syncing = false;
+                if (forced && target > this.durableSequence) {
+                    this.durableSequence = target;
+                }
+                this.syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException failure = this.failure;
+        if (failure != null) {
+            throw new IOException("Log failed, reopen it to recover", failure);
+        }
+    }
+
+    private void syncPeriodically(long syncIntervalMillis) {
+        while (true) {
+            try {
+                synchronized (this.intervalLock) {
+                    long deadline = System.nanoTime() + syncIntervalMillis * 1000000L;
+                    long remaining = syncIntervalMillis;
+                    while (!this.closed && remaining > 0) {
+                        this.intervalLock.wait(remaining);
+                        remaining = (deadline - System.nanoTime()) / 1000000L;
+                    }
+                    if (this.closed) {
+                        return;
+                    }
+                }
+                this.sync();
+            } catch (InterruptedException | InterruptedIOException e) {
+                return;
+            } catch (IOException e) {
+                //closed channel or failed log ends the thread
+                if (!this.channel.isOpen() || this.failure != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that reads all complete records from the start of the file
+     * @param handler - handler of the records, can be null
+     * @return long position after the last complete record
+     * @throws IOException if the log can not be read or the handler fails
+     */
+    private long replay(RecordHandler handler) throws IOException {
+        this.channel.position(0);
+        long fileSize = this.channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(this.channel), 1 << 16));
+        long position = 0;
+        CRC32 recordChecksum = new CRC32();
+        while (position + HEADER_SIZE + TRAILER_SIZE <= fileSize) {
+            int length;
+            byte type;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                if (length < 0 || length > MAX_PAYLOAD || position + HEADER_SIZE + length + TRAILER_SIZE > fileSize) {
+                    break;
+                }
+                type = in.readByte();
+                payload = new byte[length];
+                in.readFully(payload);
+                recordChecksum.reset();
+                recordChecksum.update(type);
+                recordChecksum.update(payload, 0, length);
+                if (in.readInt() != (int) recordChecksum.getValue()) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            if (handler != null) {
+                handler.record(type, payload);
+            }
+            position += HEADER_SIZE + length + TRAILER_SIZE;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,312 @@
+package org.zorvan.avl.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class represents client of KeyValueServer over one blocking connection.
+ * Methods get, put, delete and range send one batch and wait for its response. Methods starting with send
+ * only buffer the request and return Reply, so many requests can be pipelined: they are sent by flush
+ * (or by the first Reply.get) and responses are read in order as replies are asked for.
+ * The client is not thread-safe, every thread needs its own connection.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class KeyValueClient implements Closeable {
+    private static final int BUFFER_SIZE = 64 << 10;
+
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final ArrayDeque<Reply<?>> pending = new ArrayDeque<>(); //replies in order of the requests
+    private int nextId;
+
+    /**
+     * Constructor of the KeyValueClient class, connects to the server
+     * @param address - address of the server
+     * @throws IOException if the connection fails
+     */
+    public KeyValueClient(InetSocketAddress address) throws IOException {
+        this.socket = new Socket();
+        try {
+            this.socket.setTcpNoDelay(true);
+            this.socket.connect(address);
+            this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream(), BUFFER_SIZE));
+            this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream(), BUFFER_SIZE));
+        } catch (IOException e) {
+            this.socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method that returns values of the keys
+     * @param keys - batch of keys
+     * @return byte[][] - values in order of the keys, null for missing keys
+     * @throws IOException if the connection fails or the server rejects the request
+     */
+    public byte[][] get(long... keys) throws IOException {
+        return this.sendGet(keys).get();
+    }
+
+    /**
+     * Method that stores the values under the keys
+     * @param keys - batch of keys
+     * @param values - values in order of the keys
+     * @return boolean[] - true for every key which was not present before
+     * @throws IOException if the connection fails or the server rejects the request
+     */
+    public boolean[] put(long[] keys, byte[][] values) throws IOException {
+        return this.sendPut(keys, values).get();
+    }
+
+    /**
+     * Method that deletes the keys
+     * @param keys - batch of keys
+     * @return boolean[] - true for every key which was present
+     * @throws IOException if the connection fails or the server rejects the request
+     */
+    public boolean[] delete(long... keys) throws IOException {
+        return this.sendDelete(keys).get();
+    }
+
+    /**
+     * Method that returns entries between two keys in ascending order
+     * @param low - low bound, inclusive
+     * @param high - high bound, exclusive
+     * @param limit - maximum number of entries, server may return less to fit the response into one frame,
+     * but at least one if the range is not empty
+     * @return List - entries of keys and values
+     * @throws IOException if the connection fails or the server rejects the request
+     */
+    public List<Map.Entry<Long, byte[]>> range(long low, long high, int limit) throws IOException {
+        return this.sendRange(low, high, limit).get();
+    }
+
+    /**
+     * Method that buffers GET request
+     * @param keys - batch of keys
+     * @return Reply - reply with values in order of the keys, null for missing keys, the server rejects the batch
+     * if the values do not fit into one frame
+     * @throws IOException if the buffer can not be sent
+     */
+    public Reply<byte[][]> sendGet(long... keys) throws IOException {
+        Reply<byte[][]> reply = this.begin(Protocol.GET, keyBatchLength(keys));
+        this.out.writeInt(keys.length);
+        for (long key : keys) {
+            this.out.writeLong(key);
+        }
+        return reply;
+    }
+
+    /**
+     * Method that buffers PUT request
+     * @param keys - batch of keys
+     * @param values - values in order of the keys, each at most 16 MB minus 21 bytes long
+     * @return Reply - reply with true for every key which was not present before
+     * @throws IOException if the buffer can not be sent
+     */
+    public Reply<boolean[]> sendPut(long[] keys, byte[][] values) throws IOException {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Got " + keys.length + " keys and " + values.length + " values");
+        }
+        long length = 4;
+        for (byte[] value : values) {
+            if (value.length > Protocol.MAX_VALUE) {
+                throw new IllegalArgumentException("Value of " + value.length + " bytes is longer than "
+                        + Protocol.MAX_VALUE + " bytes");
+            }
+            length += 12 + value.length;
+        }
+        if (length > Protocol.MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Batch of " + length + " bytes does not fit into one frame");
+        }
+        Reply<boolean[]> reply = this.begin(Protocol.PUT, (int) length);
+        this.out.writeInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            this.out.writeLong(keys[i]);
+            this.out.writeInt(values[i].length);
+            this.out.write(values[i]);
+        }
+        return reply;
+    }
+
+    /**
+     * Method that buffers DELETE request
+     * @param keys - batch of keys
+     * @return Reply - reply with true for every key which was present
+     * @throws IOException if the buffer can not be sent
+     */
+    public Reply<boolean[]> sendDelete(long... keys) throws IOException {
+        Reply<boolean[]> reply = this.begin(Protocol.DELETE, keyBatchLength(keys));
+        this.out.writeInt(keys.length);
+        for (long key : keys) {
+            this.out.writeLong(key);
+        }
+        return reply;
+    }
+
+    /**
+     * Method that buffers RANGE request
+     * @param low - low bound, inclusive
+     * @param high - high bound, exclusive
+     * @param limit - maximum number of entries
+     * @return Reply - reply with entries in ascending order
+     * @throws IOException if the buffer can not be sent
+     */
+    public Reply<List<Map.Entry<Long, byte[]>>> sendRange(long low, long high, int limit) throws IOException {
+        Reply<List<Map.Entry<Long, byte[]>>> reply = this.begin(Protocol.RANGE, 8 + 8 + 4);
+        this.out.writeLong(low);
+        this.out.writeLong(high);
+        this.out.writeInt(limit);
+        return reply;
+    }
+
+    /**
+     * Method that sends all buffered requests
+     * @throws IOException if the connection fails
+     */
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Method that returns number of requests whose responses were not read yet
+     * @return int - number of pending requests
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    }
+
+    private static int keyBatchLength(long[] keys) {
+        long length = 4 + 8L * keys.length;
+        if (length > Protocol.MAX_PAYLOAD) {
+            throw new IllegalArgumentException("Batch of " + length + " bytes does not fit into one frame");
+        }
+        return (int) length;
+    }
+
+    private <T> Reply<T> begin(byte command, int payloadLength) throws IOException {
+        Reply<T> reply = new Reply<>(this, this.nextId++, command);
+        this.out.writeInt(Protocol.HEADER_SIZE - 4 + payloadLength);
+        this.out.writeInt(reply.id);
+        this.out.writeByte(command);
+        this.pending.add(reply);
+        return reply;
+    }
+
+    /**
+     * Method that reads responses until the reply is done
+     */
+    private void receive(Reply<?> reply) throws IOException {
+        this.flush();
+        while (!reply.done) {
+            Reply<?> next = this.pending.poll();
+            if (next == null) {
+                throw new IllegalStateException("Reply does not belong to this client");
+            }
+            this.in.readInt(); //length of the frame
+            int id = this.in.readInt();
+            if (id != next.id) {
+                throw new IOException("Response " + id + " does not match request " + next.id);
+            }
+            if (this.in.readByte() == Protocol.ERROR) {
+                next.error = this.in.readUTF();
+            } else {
+                next.value = this.decode(next.command);
+            }
+            next.done = true;
+        }
+    }
+
+    private Object decode(byte command) throws IOException {
+        int n = this.in.readInt();
+        switch (command) {
+            case Protocol.GET: {
+                byte[][] values = new byte[n][];
+                for (int i = 0; i < n; i++) {
+                    int length = this.in.readInt();
+                    if (length != Protocol.MISSING) {
+                        values[i] = new byte[length];
+                        this.in.readFully(values[i]);
+                    }
+                }
+                return values;
+            }
+            case Protocol.PUT:
+            case Protocol.DELETE: {
+                boolean[] results = new boolean[n];
+                for (int i = 0; i < n; i++) {
+                    results[i] = this.in.readByte() != 0;
+                }
+                return results;
+            }
+            default: {
+                List<Map.Entry<Long, byte[]>> entries = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    long key = this.in.readLong();
+                    byte[] value = new byte[this.in.readInt()];
+                    this.in.readFully(value);
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value));
+                }
+                return entries;
+            }
+        }
+    }
+
+    /**
+     * Class represents response to one pipelined request
+     * @param <T> - type of the result
+     */
+    public static final class Reply<T> {
+        private final KeyValueClient client;
+        private final int id;
+        private final byte command;
+        private boolean done;
+        private Object value;
+        private String error;
+
+        private Reply(KeyValueClient client, int id, byte command) {
+            this.client = client;
+            this.id = id;
+            this.command = command;
+        }
+
+        /**
+         * Method that returns result of the request, buffered requests are sent and responses to all
+         * earlier requests are read first
+         * @return T - result of the request
+         * @throws IOException if the connection fails or the server rejects the request
+         */
+        @SuppressWarnings("unchecked")
+        public T get() throws IOException {
+            if (!this.done) {
+                this.client.receive(this);
+            }
+            if (this.error != null) {
+                throw new IOException("Server rejected request " + this.id + ": " + this.error);
+            }
+            return (T) this.value;
+        }
+
+        public boolean isDone() {
+            return this.done;
+        }
+    }
+}
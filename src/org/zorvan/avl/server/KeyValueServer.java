@@ -0,0 +1,402 @@
+package org.zorvan.avl.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import org.zorvan.avl.AVLTreeMap;
+
+/**
+ * Class represents server which shares one ordered map of long keys and byte array values with other processes
+ * over TCP socket, by default bound to the loopback interface. Protocol is described in Protocol class.
+ * One NIO selector thread serves all connections and runs all commands, so the map needs no locking and requests
+ * of one connection are executed in order. Responses to all complete requests read from a connection at once
+ * (pipelined requests) are written with one write call. The map must not be modified by other threads while
+ * the server is running.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class KeyValueServer implements Closeable {
+    private static final int READ_BUFFER_SIZE = 64 << 10;
+    private static final int MAX_PENDING_OUTPUT = 4 << 20; //connection with more unsent bytes is not read
+
+    private final AVLTreeMap<Long, byte[]> map;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor of the KeyValueServer class, the server starts immediately
+     * @param map - served map
+     * @param address - address to bind, port 0 chooses free port
+     * @throws IOException if the socket can not be bound
+     */
+    public KeyValueServer(AVLTreeMap<Long, byte[]> map, InetSocketAddress address) throws IOException {
+        this.map = map;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            this.serverChannel.bind(address);
+            this.serverChannel.configureBlocking(false);
+            this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            this.serverChannel.close();
+            this.selector.close();
+            throw e;
+        }
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                serve();
+            }
+        }, "KeyValueServer-" + this.getAddress().getPort());
+        this.thread.start();
+    }
+
+    /**
+     * Method that returns address the server is bound to
+     * @return InetSocketAddress - local address with the actual port
+     */
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) this.serverChannel.socket().getLocalSocketAddress();
+    }
+
+    /**
+     * Method that stops the server and closes all connections, the map stays usable
+     * @throws IOException if the server socket can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.running = false;
+        this.selector.wakeup();
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve() {
+        try {
+            while (this.running) {
+                this.selector.select();
+                Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        this.accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isWritable()) {
+                                connection.write();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                connection.read();
+                            }
+                        } catch (IOException e) {
+                            //broken connection does not stop the server
+                            connection.close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Server selector failed", e);
+        } finally {
+            for (SelectionKey key : this.selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    //closing anyway
+                }
+            }
+            try {
+                this.selector.close();
+            } catch (IOException e) {
+                //closing anyway
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = this.serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(this.selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    /**
+     * Method that executes one request and appends its response
+     * @param request - payload of the request, positioned after the command byte
+     * @param command - command of the request
+     * @param out - output of the response payload
+     * @throws IOException if the output fails
+     */
+    private void execute(ByteBuffer request, byte command, FrameDataOutput out) throws IOException {
+        switch (command) {
+            case Protocol.GET: {
+                int payloadStart = out.getOutput().getPayloadStart();
+                int n = request.getInt();
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    byte[] value = this.map.get(request.getLong());
+                    if (value == null) {
+                        out.writeInt(Protocol.MISSING);
+                    } else {
+                        //response must fit into one frame, checked before the value is buffered
+                        long size = out.getOutput().size() - payloadStart + 4L + value.length;
+                        if (size > Protocol.MAX_PAYLOAD) {
+                            throw new IllegalArgumentException("Response of GET does not fit into one frame");
+                        }
+                        out.writeInt(value.length);
+                        out.write(value);
+                    }
+                }
+                break;
+            }
+            case Protocol.PUT: {
+                int n = request.getInt();
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    long key = request.getLong();
+                    int length = request.getInt();
+                    if (length < 0 || length > Protocol.MAX_VALUE || length > request.remaining()) {
+                        throw new IllegalArgumentException("Illegal value length " + length);
+                    }
+                    byte[] value = new byte[length];
+                    request.get(value);
+                    out.writeByte((this.map.put(key, value) == null) ? 1 : 0);
+                }
+                break;
+            }
+            case Protocol.DELETE: {
+                int n = request.getInt();
+                out.writeInt(n);
+                for (int i = 0; i < n; i++) {
+                    out.writeByte((this.map.remove(request.getLong()) == null) ? 0 : 1);
+                }
+                break;
+            }
+            case Protocol.RANGE: {
+                long low = request.getLong();
+                long high = request.getLong();
+                int limit = request.getInt();
+                if (limit < 0) {
+                    throw new IllegalArgumentException("Negative limit " + limit);
+                }
+                int payloadStart = out.getOutput().getPayloadStart();
+                out.writeInt(0); //patched when the number of entries is known
+                int count = 0;
+                if (low < high) {
+                    for (Map.Entry<Long, byte[]> entry : this.map.subMap(low, true, high, false).entrySet()) {
+                        if (count == limit) {
+                            break;
+                        }
+                        //response must fit into one frame, the first entry always fits
+                        long size = out.getOutput().size() - payloadStart + 12L + entry.getValue().length;
+                        if (count > 0 && size > Protocol.MAX_PAYLOAD) {
+                            break;
+                        }
+                        out.writeLong(entry.getKey());
+                        out.writeInt(entry.getValue().length);
+                        out.write(entry.getValue());
+                        count++;
+                    }
+                }
+                out.getOutput().setInt(payloadStart, count);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command " + command);
+        }
+    }
+
+    /**
+     * Method that runs server bound to loopback interface until the process is killed
+     * @param args - port, 7070 by default
+     * @throws IOException if the socket can not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7070;
+        KeyValueServer server = new KeyValueServer(new AVLTreeMap<Long, byte[]>(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        System.out.println("Listening on " + server.getAddress());
+    }
+
+    /**
+     * Output of the responses, frames can be patched and cut off
+     */
+    private static final class FrameOutput extends ByteArrayOutputStream {
+        private int payloadStart;
+
+        FrameOutput() {
+            super(READ_BUFFER_SIZE);
+        }
+
+        void setInt(int position, int value) {
+            this.buf[position] = (byte) (value >>> 24);
+            this.buf[position + 1] = (byte) (value >>> 16);
+            this.buf[position + 2] = (byte) (value >>> 8);
+            this.buf[position + 3] = (byte) value;
+        }
+
+        void truncate(int size) {
+            this.count = size;
+        }
+
+        int getPayloadStart() {
+            return this.payloadStart;
+        }
+
+        void setPayloadStart(int payloadStart) {
+            this.payloadStart = payloadStart;
+        }
+
+        ByteBuffer drain() {
+            ByteBuffer buffer = ByteBuffer.wrap(this.toByteArray());
+            this.reset();
+            return buffer;
+        }
+    }
+
+    /**
+     * Data output with access to the underlying frame output
+     */
+    private static final class FrameDataOutput extends DataOutputStream {
+
+        FrameDataOutput(FrameOutput output) {
+            super(output);
+        }
+
+        FrameOutput getOutput() {
+            return (FrameOutput) this.out;
+        }
+    }
+
+    /**
+     * State of one client connection
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final FrameDataOutput output = new FrameDataOutput(new FrameOutput());
+        private ByteBuffer pending; //responses which were not written completely
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (this.channel.read(this.input) < 0) {
+                this.close();
+                return;
+            }
+            this.input.flip();
+            while (this.input.remaining() >= 4) {
+                int length = this.input.getInt(this.input.position());
+                if (length < Protocol.HEADER_SIZE - 4 || length > Protocol.MAX_FRAME) {
+                    this.close();
+                    return;
+                }
+                if (this.input.remaining() < 4 + length) {
+                    if (this.input.capacity() < 4 + length) {
+                        //buffer grows only for large frames
+                        ByteBuffer larger = ByteBuffer.allocate(4 + length);
+                        larger.put(this.input);
+                        this.input = larger;
+                        this.write();
+                        return;
+                    }
+                    break;
+                }
+                int end = this.input.position() + 4 + length;
+                this.input.position(this.input.position() + 4);
+                ByteBuffer request = this.input.slice();
+                request.limit(length);
+                this.input.position(end);
+                this.respond(request);
+            }
+            this.input.compact();
+            this.write();
+        }
+
+        private void respond(ByteBuffer request) throws IOException {
+            FrameOutput frames = this.output.getOutput();
+            int start = frames.size();
+            int id = request.getInt();
+            byte command = request.get();
+            this.output.writeInt(0);
+            this.output.writeInt(id);
+            this.output.writeByte(Protocol.OK);
+            frames.setPayloadStart(frames.size());
+            try {
+                execute(request, command, this.output);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                //malformed request, the frame boundary is still known, so the connection goes on
+                //entries of a batch before the malformed one stay applied
+                frames.truncate(start);
+                this.output.writeInt(0);
+                this.output.writeInt(id);
+                this.output.writeByte(Protocol.ERROR);
+                this.output.writeUTF((e.getMessage() == null) ? e.toString() : e.getMessage());
+            }
+            frames.setInt(start, frames.size() - start - 4);
+        }
+
+        void write() throws IOException {
+            if (this.pending == null && this.output.getOutput().size() > 0) {
+                this.pending = this.output.getOutput().drain();
+            }
+            if (this.pending != null) {
+                this.channel.write(this.pending);
+                if (!this.pending.hasRemaining()) {
+                    this.pending = null;
+                }
+            }
+            int interest = 0;
+            if (this.pending != null || this.output.getOutput().size() > 0) {
+                interest |= SelectionKey.OP_WRITE;
+            }
+            //slow reader gets no more responses until it takes the pending ones
+            int unsent = this.output.getOutput().size() + ((this.pending == null) ? 0 : this.pending.remaining());
+            if (unsent < MAX_PENDING_OUTPUT) {
+                interest |= SelectionKey.OP_READ;
+            }
+            if (this.key.isValid()) {
+                this.key.interestOps(interest);
+            }
+        }
+
+        void close() {
+            this.key.cancel();
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                //closing anyway
+            }
+        }
+    }
+}
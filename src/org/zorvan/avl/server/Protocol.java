@@ -0,0 +1,42 @@
+package org.zorvan.avl.server;
+
+/**
+ * Constants of the binary protocol of KeyValueServer.
+ * Every request and response is a frame: int length of the rest of the frame, int request id and one byte
+ * of the command (request) or status (response) followed by the payload. All numbers are big-endian.
+ * Client can send any number of requests without waiting (pipelining), responses come in the same order
+ * and repeat request ids.
+ *
+ * <pre>
+ * GET     request: int n, n x long key                        response: int n, n x (int length or -1, bytes)
+ * PUT     request: int n, n x (long key, int length, bytes)   response: int n, n x byte (1 new key, 0 replaced)
+ * DELETE  request: int n, n x long key                        response: int n, n x byte (1 deleted, 0 missing)
+ * RANGE   request: long low (inclusive), long high (exclusive), int limit
+ *                                                             response: int n, n x (long key, int length, bytes)
+ * ERROR   response: UTF message
+ * </pre>
+ * Values are at most {@link #MAX_VALUE} bytes long. GET whose values do not fit into one frame is answered
+ * by ERROR, the keys must be requested in smaller batches. RANGE response stops before the entry which would not fit
+ * into one frame, but it always contains at least one entry, so a shorter response than the limit is not the end
+ * of the range unless it is empty.
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+final class Protocol {
+    static final byte GET = 1;
+    static final byte PUT = 2;
+    static final byte DELETE = 3;
+    static final byte RANGE = 4;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final int HEADER_SIZE = 4 + 4 + 1; //length, request id, command or status
+    static final int MAX_FRAME = 16 << 20; //connection sending greater frame is closed
+    static final int MAX_PAYLOAD = MAX_FRAME - (HEADER_SIZE - 4); //frame length counts request id and command too
+    static final int MAX_VALUE = MAX_PAYLOAD - 4 - 8 - 4; //one PUT entry or RANGE entry fits into one frame
+    static final int MISSING = -1; //length of missing value in GET response
+
+    private Protocol() {
+    }
+}
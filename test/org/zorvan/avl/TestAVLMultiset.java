@@ -0,0 +1,115 @@
+package org.zorvan.avl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestAVLMultiset {
+
+     @Test
+     public void testAddRemove() {
+         AVLMultiset multiset = new AVLMultiset();
+         Assert.assertEquals(0, multiset.add(new Event(5)));
+         Assert.assertEquals(1, multiset.add(new Event(5)));
+         Assert.assertEquals(2, multiset.add(new Event(5), 3));
+         Assert.assertEquals(0, multiset.add(new Event(7)));
+         Assert.assertEquals(5, multiset.count(new Event(5)));
+         Assert.assertEquals(2, multiset.size());
+         Assert.assertEquals(6, multiset.getTotalCount());
+
+         Assert.assertEquals(5, multiset.remove(new Event(5), 2));
+         Assert.assertEquals(3, multiset.count(new Event(5)));
+         Assert.assertEquals(3, multiset.remove(new Event(5), 10));
+         Assert.assertEquals(0, multiset.count(new Event(5)));
+         Assert.assertEquals(0, multiset.remove(new Event(5)));
+         Assert.assertEquals(1, multiset.size());
+         Assert.assertEquals(1, multiset.getTotalCount());
+     }
+
+     @Test
+     public void testRandomAgainstTreeMap() {
+         AVLMultiset multiset = new AVLMultiset();
+         TreeMap<Integer, Integer> expected = new TreeMap<>();
+         Random random = new Random(29);
+
+         for (int i = 0; i < 30000; i++) {
+             int key = random.nextInt(300);
+             int occurrences = 1 + random.nextInt(3);
+             Integer count = expected.get(key);
+             int before = (count == null) ? 0 : count;
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(before, multiset.remove(new Event(key), occurrences));
+                 if (before > occurrences) {
+                     expected.put(key, before - occurrences);
+                 } else {
+                     expected.remove(key);
+                 }
+             } else {
+                 Assert.assertEquals(before, multiset.add(new Event(key), occurrences));
+                 expected.put(key, before + occurrences);
+             }
+         }
+         TestAvlTree.assertBalanced(multiset.getRoot(), null);
+         Assert.assertEquals(expected.size(), multiset.size());
+
+         long total = 0;
+         Iterator<AVLNode> occurrences = multiset.occurrenceIterator();
+         for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+             Assert.assertEquals(total, multiset.rankOf(new Event(entry.getKey())));
+             for (int i = 0; i < entry.getValue(); i++) {
+                 Assert.assertEquals(entry.getKey().intValue(), occurrences.next().getValue());
+                 Assert.assertEquals(entry.getKey().intValue(), multiset.selectOccurrence(total + i).getValue());
+             }
+             total += entry.getValue();
+         }
+         Assert.assertFalse(occurrences.hasNext());
+         Assert.assertEquals(total, multiset.getTotalCount());
+
+         for (int i = 0; i < 200; i++) {
+             int low = random.nextInt(320) - 10;
+             int high = low + random.nextInt(100);
+             long inRange = 0;
+             for (int count : expected.subMap(low, true, high, true).values()) {
+                 inRange += count;
+             }
+             Assert.assertEquals(inRange, multiset.countOccurrences(new Event(low), new Event(high)));
+         }
+     }
+
+     @Test(expected = IndexOutOfBoundsException.class)
+     public void testSelectOutOfBounds() {
+         AVLMultiset multiset = new AVLMultiset();
+         multiset.add(new Event(1), 2);
+         multiset.selectOccurrence(2);
+     }
+
+    private static class Event extends MultisetNode<Event> {
+        private final int key;
+
+        Event(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Event e) {
+            return (this.key < e.key) ? -1 : ((this.key == e.key) ? 0 : 1);
+        }
+
+        @Override
+        public int getValue() {
+            return this.key;
+        }
+
+        @Override
+        public String toString() {
+            return "" + this.key;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.zorvan.avl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestAVLTreeMap {
+    private AVLTreeMap<Integer, String> map;
+
+     @Before
+     public void setUp() {
+         this.map = new AVLTreeMap<>();
+     }
+
+     @Test
+     public void testPutGetRemove() {
+         for (int i = 0; i < 100; i++) {
+             Assert.assertNull(this.map.put(i, "" + i));
+         }
+         Assert.assertEquals("50", this.map.put(50, "x"));
+         Assert.assertEquals("x", this.map.get(50));
+         Assert.assertEquals("x", this.map.remove(50));
+         Assert.assertNull(this.map.remove(50));
+         Assert.assertFalse(this.map.containsKey(50));
+         Assert.assertEquals(99, this.map.size());
+         Assert.assertTrue(this.map.getHeight() <= 8);
+         Assert.assertEquals(Integer.valueOf(0), this.map.firstKey());
+         Assert.assertEquals(Integer.valueOf(51), this.map.higherKey(49));
+         Assert.assertEquals(Integer.valueOf(49), this.map.floorKey(50));
+     }
+
+     @Test
+     public void testComparator() {
+         AVLTreeMap<String, Integer> reversed = new AVLTreeMap<>(Collections.<String>reverseOrder());
+         reversed.put("a", 1);
+         reversed.put("c", 3);
+         reversed.put("b", 2);
+         Assert.assertEquals("c", reversed.firstKey());
+         Assert.assertEquals("b", reversed.ceilingKey("bb"));
+         Assert.assertEquals("[c, b, a]", reversed.keySet().toString());
+     }
+
+     @Test
+     public void testRandomAgainstTreeMap() {
+         TreeMap<Integer, String> expected = new TreeMap<>();
+         Random random = new Random(17);
+
+         for (int i = 0; i < 20000; i++) {
+             int key = random.nextInt(1000);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(key), this.map.remove(key));
+             } else {
+                 Assert.assertEquals(expected.put(key, "" + i), this.map.put(key, "" + i));
+             }
+         }
+         Assert.assertEquals(expected, this.map);
+         assert this.map.getHeight() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2));
+
+         for (int i = 0; i < 1000; i++) {
+             int key = random.nextInt(1100) - 50;
+             Assert.assertEquals(expected.floorEntry(key), this.map.floorEntry(key));
+             Assert.assertEquals(expected.ceilingEntry(key), this.map.ceilingEntry(key));
+             Assert.assertEquals(expected.lowerKey(key), this.map.lowerKey(key));
+             Assert.assertEquals(expected.higherKey(key), this.map.higherKey(key));
+         }
+     }
+
+     @Test
+     public void testViews() {
+         TreeMap<Integer, String> expected = new TreeMap<>();
+         Random random = new Random(23);
+         for (int i = 0; i < 500; i++) {
+             int key = random.nextInt(1000);
+             expected.put(key, "" + key);
+             this.map.put(key, "" + key);
+         }
+
+         for (int i = 0; i < 200; i++) {
+             int from = random.nextInt(1000);
+             int to = from + random.nextInt(1000 - from + 1);
+             boolean fromInclusive = random.nextBoolean();
+             boolean toInclusive = random.nextBoolean();
+             assertSameView(expected.subMap(from, fromInclusive, to, toInclusive),
+                     this.map.subMap(from, fromInclusive, to, toInclusive), random);
+             assertSameView(expected.headMap(to, toInclusive), this.map.headMap(to, toInclusive), random);
+             assertSameView(expected.tailMap(from, fromInclusive).descendingMap(),
+                     this.map.tailMap(from, fromInclusive).descendingMap(), random);
+             assertSameView(expected.descendingMap().subMap(to, toInclusive, from, fromInclusive),
+                     this.map.descendingMap().subMap(to, toInclusive, from, fromInclusive), random);
+         }
+         Assert.assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(this.map.descendingKeySet()));
+     }
+
+     @Test
+     public void testIteratorRemove() {
+         for (int i = 0; i < 1000; i++) {
+             this.map.put(i, "" + i);
+         }
+         //removal of entries with two sons moves keys between entries
+         Iterator<Integer> iterator = this.map.subMap(100, true, 900, false).keySet().iterator();
+         int expected = 100;
+         while (iterator.hasNext()) {
+             Assert.assertEquals(Integer.valueOf(expected++), iterator.next());
+             iterator.remove();
+         }
+         Assert.assertEquals(900, expected);
+         Assert.assertEquals(200, this.map.size());
+         Assert.assertEquals(Integer.valueOf(900), this.map.higherKey(99));
+
+         iterator = this.map.descendingKeySet().iterator();
+         while (iterator.hasNext()) {
+             if (iterator.next() % 2 == 0) {
+                 iterator.remove();
+             }
+         }
+         Assert.assertEquals(100, this.map.size());
+         for (Integer key : this.map.keySet()) {
+             Assert.assertTrue(key % 2 == 1);
+         }
+     }
+
+     @Test(expected = IllegalArgumentException.class)
+     public void testSubMapOutOfRange() {
+         this.map.headMap(10, false).put(10, "10");
+     }
+
+     private static void assertSameView(NavigableMap<Integer, String> expected, NavigableMap<Integer, String> actual,
+             Random random) {
+         List<Map.Entry<Integer, String>> expectedEntries = new ArrayList<>(expected.entrySet());
+         List<Map.Entry<Integer, String>> actualEntries = new ArrayList<>(actual.entrySet());
+         Assert.assertEquals(expectedEntries, actualEntries);
+         Assert.assertEquals(expected.size(), actual.size());
+         Assert.assertEquals(expected.firstEntry(), actual.firstEntry());
+         Assert.assertEquals(expected.lastEntry(), actual.lastEntry());
+         for (int i = 0; i < 10; i++) {
+             int key = random.nextInt(1100) - 50;
+             Assert.assertEquals(expected.containsKey(key), actual.containsKey(key));
+             Assert.assertEquals(expected.floorKey(key), actual.floorKey(key));
+             Assert.assertEquals(expected.ceilingKey(key), actual.ceilingKey(key));
+             Assert.assertEquals(expected.lowerKey(key), actual.lowerKey(key));
+             Assert.assertEquals(expected.higherKey(key), actual.higherKey(key));
+         }
+     }
+}
@@ -0,0 +1,66 @@
+package org.zorvan.avl;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Metrics are switched on only by -Dorg.zorvan.avl.metrics=true, which is set for the tests in project.properties
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestAVLTreeMetrics {
+
+     @Test
+     public void testCounters() {
+         Assume.assumeTrue(AVLTreeMetrics.ENABLED);
+         AVLTree tree = new AVLTree();
+         for (int i = 0; i < 100; i++) {
+             tree.insert(new Int(i));
+         }
+
+         AVLTreeStatistics statistics = tree.getMetrics().snapshot();
+         Assert.assertEquals(100, statistics.getOperations());
+         Assert.assertEquals(100, statistics.getNumberOfNodes());
+         Assert.assertEquals(7, statistics.getHeight());
+         //ascending insertion needs only left rotations
+         Assert.assertTrue(statistics.getLeftRotations() > 0);
+         Assert.assertEquals(statistics.getLeftRotations(), statistics.getRotations());
+         Assert.assertTrue(statistics.getRetraceSteps() >= 99);
+
+         tree.getMetrics().reset();
+         Assert.assertNotNull(tree.search(new Int(tree.getRoot().getValue())));
+         Assert.assertEquals(1, tree.getMetrics().getComparisons());
+         Assert.assertTrue(tree.delete(new Int(0)));
+         Assert.assertEquals(2, tree.getMetrics().getOperations());
+
+         //navigation is counted too, comparisons of detached subtrees are not
+         tree.getMetrics().reset();
+         Assert.assertEquals(50, tree.ceiling(new Int(50)).getValue());
+         Assert.assertEquals(7, tree.getMetrics().getComparisons());
+     }
+
+     @Test
+     public void testJmx() throws Exception {
+         Assume.assumeTrue(AVLTreeMetrics.ENABLED);
+         AVLTree tree = new AVLTree();
+         tree.insert(new Int(1));
+
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = tree.getMetrics().register("testJmx");
+         try {
+             Assert.assertEquals(1, server.getAttribute(name, "NumberOfNodes"));
+             Assert.assertEquals(1L, server.getAttribute(name, "Operations"));
+         } finally {
+             server.unregisterMBean(name);
+         }
+     }
+
+     @Test(expected = IllegalStateException.class)
+     public void testDisabled() {
+         Assume.assumeFalse(AVLTreeMetrics.ENABLED);
+         new AVLTree().getMetrics();
+     }
+}
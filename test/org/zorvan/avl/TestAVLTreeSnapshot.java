@@ -0,0 +1,91 @@
+package org.zorvan.avl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestAVLTreeSnapshot {
+    private static final AVLNodeCodec<Int> CODEC = new AVLNodeCodec<Int>() {
+        @Override
+        public void write(Int node, DataOutput out) throws IOException {
+            out.writeInt(node.getValue());
+        }
+
+        @Override
+        public Int read(DataInput in) throws IOException {
+            return new Int(in.readInt());
+        }
+    };
+
+     @Test
+     public void testSaveLoad() throws IOException {
+         AVLTree tree = new AVLTree();
+         for (int i = 0; i < 100000; i++) {
+             tree.insert(new Int(i * 3));
+         }
+
+         byte[] snapshot = save(tree);
+         Assert.assertEquals(12 + 4 * 100000 + 8, snapshot.length);
+         AVLTree loaded = AVLTreeSnapshot.load(new ByteArrayInputStream(snapshot), CODEC);
+         TestAvlTree.assertBalanced(loaded.getRoot(), null);
+         Assert.assertEquals(100000, loaded.size());
+         TestAvlTree.assertValues(loaded.iterator(), 0, 299997, 3);
+
+         AVLTree empty = AVLTreeSnapshot.load(new ByteArrayInputStream(save(new AVLTree())), CODEC);
+         Assert.assertEquals(0, empty.size());
+     }
+
+     @Test
+     public void testTrailingBytes() throws IOException {
+         AVLTree tree = new AVLTree();
+         for (int i = 0; i < 1000; i++) {
+             tree.insert(new Int(i));
+         }
+         ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+         AVLTreeSnapshot.save(tree, bytes, CODEC);
+         AVLTreeSnapshot.save(new AVLTree(), bytes, CODEC);
+         bytes.write(42);
+
+         //stream stays usable after the snapshot
+         ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+         Assert.assertEquals(1000, AVLTreeSnapshot.load(in, CODEC).size());
+         Assert.assertEquals(0, AVLTreeSnapshot.load(in, CODEC).size());
+         Assert.assertEquals(42, in.read());
+         Assert.assertEquals(-1, in.read());
+     }
+
+     @Test(expected = IOException.class)
+     public void testCorrupted() throws IOException {
+         AVLTree tree = new AVLTree();
+         for (int i = 0; i < 100; i++) {
+             tree.insert(new Int(i * 10));
+         }
+         byte[] snapshot = save(tree);
+         //changed value keeps the nodes ascending, only the checksum can find it
+         snapshot[12 + 4 * 50 + 3] ^= 0x01;
+         AVLTreeSnapshot.load(new ByteArrayInputStream(snapshot), CODEC);
+     }
+
+     @Test(expected = IOException.class)
+     public void testTruncated() throws IOException {
+         AVLTree tree = new AVLTree();
+         tree.insert(new Int(1));
+         tree.insert(new Int(2));
+         byte[] snapshot = save(tree);
+         AVLTreeSnapshot.load(new ByteArrayInputStream(snapshot, 0, snapshot.length - 10), CODEC);
+     }
+
+     private static byte[] save(AVLTree tree) throws IOException {
+         ByteArrayOutputStream out = new ByteArrayOutputStream();
+         AVLTreeSnapshot.save(tree, out, CODEC);
+         return out.toByteArray();
+     }
+}
@@ -0,0 +1,153 @@
+package org.zorvan.avl;
+
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestAggregateAVLTree {
+    //concatenation is not commutative, so it also checks the order of combining
+    private static final Monoid<String> CONCATENATION = new Monoid<String>() {
+        @Override
+        public String identity() {
+            return "";
+        }
+
+        @Override
+        public String combine(String left, String right) {
+            return left + right;
+        }
+    };
+
+    private static final Monoid<Long> SUM = new Monoid<Long>() {
+        @Override
+        public Long identity() {
+            return 0L;
+        }
+
+        @Override
+        public Long combine(Long left, Long right) {
+            return left + right;
+        }
+    };
+
+     @Test
+     public void testSum() {
+         AggregateAVLTree<Long> tree = new AggregateAVLTree<>(SUM);
+         for (int timestamp = 0; timestamp < 1000; timestamp++) {
+             tree.insert(new Sample(timestamp, 2 * timestamp));
+         }
+         Assert.assertEquals(Long.valueOf(999 * 1000), tree.aggregate());
+         Assert.assertEquals(Long.valueOf(2 * (10 + 11 + 12)), tree.aggregate(new Sample(10, 0), new Sample(12, 0)));
+         Assert.assertEquals(Long.valueOf(2 * 11), tree.aggregate(new Sample(10, 0), false, new Sample(12, 0), false));
+         Assert.assertEquals(Long.valueOf(0), tree.aggregate(new Sample(12, 0), new Sample(10, 0)));
+         Assert.assertEquals(Long.valueOf(0), new AggregateAVLTree<>(SUM).aggregate());
+     }
+
+     @Test
+     public void testRandomAgainstTreeMap() {
+         AggregateAVLTree<String> tree = new AggregateAVLTree<>(CONCATENATION);
+         TreeMap<Integer, String> expected = new TreeMap<>();
+         Random random = new Random(11);
+
+         for (int i = 0; i < 5000; i++) {
+             int key = random.nextInt(500);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(key) != null, tree.delete(new Letter(key)));
+             } else if (tree.insert(new Letter(key))) {
+                 expected.put(key, new Letter(key).getMeasure());
+             }
+         }
+         TestAvlTree.assertBalanced(tree.getRoot(), null);
+         Assert.assertEquals(concatenate(expected.values()), tree.aggregate());
+
+         for (int i = 0; i < 1000; i++) {
+             int low = random.nextInt(520) - 10;
+             int high = low + random.nextInt(200);
+             boolean lowInclusive = random.nextBoolean();
+             boolean highInclusive = random.nextBoolean();
+             String actual = tree.aggregate(new Letter(low), lowInclusive, new Letter(high), highInclusive);
+             Assert.assertEquals(concatenate(expected.subMap(low, lowInclusive, high, highInclusive).values()), actual);
+         }
+     }
+
+     private static String concatenate(Iterable<String> values) {
+         StringBuilder builder = new StringBuilder();
+         for (String value : values) {
+             builder.append(value);
+         }
+         return builder.toString();
+     }
+
+    private static class Sample extends AggregateNode<Sample, Long> {
+        private final int timestamp;
+        private final long bytes;
+
+        Sample(int timestamp, long bytes) {
+            this.timestamp = timestamp;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public Long getMeasure() {
+            return this.bytes;
+        }
+
+        @Override
+        public Monoid<Long> getMonoid() {
+            return SUM;
+        }
+
+        @Override
+        public int compareTo(Sample s) {
+            return (this.timestamp < s.timestamp) ? -1 : ((this.timestamp == s.timestamp) ? 0 : 1);
+        }
+
+        @Override
+        public int getValue() {
+            return this.timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return this.timestamp + ":" + this.bytes;
+        }
+    }
+
+    private static class Letter extends AggregateNode<Letter, String> {
+        private final int key;
+
+        Letter(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getMeasure() {
+            return this.key + ",";
+        }
+
+        @Override
+        public Monoid<String> getMonoid() {
+            return CONCATENATION;
+        }
+
+        @Override
+        public int compareTo(Letter l) {
+            return (this.key < l.key) ? -1 : ((this.key == l.key) ? 0 : 1);
+        }
+
+        @Override
+        public int getValue() {
+            return this.key;
+        }
+
+        @Override
+        public String toString() {
+            return "" + this.key;
+        }
+    }
+}
@@ -1,5 +1,16 @@
 package org.zorvan.avl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 import org.zorvan.avl.AVLNode;
 import org.zorvan.avl.AVLTree;
 import org.junit.Assert;
@@ -73,4 +84,463 @@ public class TestAvlTree {
          Assert.assertTrue(this.avlTree.delete(new Int(97)));
          Assert.assertTrue(this.avlTree.delete(new Int(73)));
      }
+     
+     @Test
+     public void testBuildFromSortedArray() {
+         Int[] nodes = new Int[1000];
+         for (int i = 0; i < nodes.length; i++) {
+             nodes[i] = new Int(i);
+         }
+         
+         this.avlTree.buildFromSorted(nodes);
+         
+         assertBalanced(this.avlTree.getRoot(), null);
+         Assert.assertEquals(1000, this.avlTree.getNumberOfNodes(this.avlTree.getRoot()));
+         Assert.assertEquals(9, this.avlTree.getRoot().nodeHeight());
+         assertInorder(this.avlTree, 0, 1000);
+         //built tree behaves as any other tree
+         Assert.assertTrue(this.avlTree.insert(new Int(1000)));
+         Assert.assertTrue(this.avlTree.delete(new Int(500)));
+         assertBalanced(this.avlTree.getRoot(), null);
+     }
+     
+     @Test
+     public void testBuildFromUnsortedArray() {
+         List<Int> nodes = new ArrayList<>();
+         for (int i = 0; i < 100; i++) {
+             nodes.add(new Int(i));
+         }
+         Collections.shuffle(nodes);
+         
+         this.avlTree.buildFromSorted(nodes.toArray(new Int[nodes.size()]));
+         
+         assertBalanced(this.avlTree.getRoot(), null);
+         assertInorder(this.avlTree, 0, 100);
+     }
+     
+     @Test(expected = IllegalArgumentException.class)
+     public void testBuildFromArrayWithDuplicates() {
+         this.avlTree.buildFromSorted(new Int[] {new Int(2), new Int(1), new Int(2)});
+     }
+     
+     @Test
+     public void testBuildFromSortedIterator() {
+         List<Int> nodes = new ArrayList<>();
+         for (int i = 0; i < 777; i++) {
+             nodes.add(new Int(i));
+         }
+         
+         this.avlTree.buildFromSorted(nodes);
+         
+         assertBalanced(this.avlTree.getRoot(), null);
+         assertInorder(this.avlTree, 0, 777);
+     }
+     
+     @Test(expected = IllegalArgumentException.class)
+     public void testBuildFromUnsortedIterator() {
+         List<Int> nodes = new ArrayList<>();
+         nodes.add(new Int(1));
+         nodes.add(new Int(3));
+         nodes.add(new Int(2));
+         this.avlTree.buildFromSorted(nodes);
+     }
+     
+     @Test
+     public void testIterators() {
+         for (int i = 0; i < 100; i += 2) {
+             this.avlTree.insert(new Int(i));
+         }
+         
+         assertValues(this.avlTree.iterator(), 0, 98, 2);
+         assertValues(this.avlTree.descendingIterator(), 98, 0, -2);
+         assertValues(this.avlTree.tailIterator(new Int(50), true), 50, 98, 2);
+         assertValues(this.avlTree.tailIterator(new Int(50), false), 52, 98, 2);
+         assertValues(this.avlTree.tailIterator(new Int(51), true), 52, 98, 2);
+         assertValues(this.avlTree.descendingHeadIterator(new Int(50), false), 48, 0, -2);
+         assertValues(this.avlTree.subIterator(new Int(10), true, new Int(20), true), 10, 20, 2);
+         assertValues(this.avlTree.subIterator(new Int(10), false, new Int(20), false), 12, 18, 2);
+         assertValues(this.avlTree.subIterator(new Int(9), true, new Int(21), false), 10, 20, 2);
+         assertValues(this.avlTree.descendingSubIterator(new Int(10), true, new Int(20), false), 18, 10, -2);
+         Assert.assertFalse(this.avlTree.subIterator(new Int(10), false, new Int(10), false).hasNext());
+         Assert.assertFalse(this.avlTree.subIterator(new Int(11), true, new Int(11), true).hasNext());
+         Assert.assertFalse(this.avlTree.tailIterator(new Int(98), false).hasNext());
+         Assert.assertFalse(new AVLTree().iterator().hasNext());
+     }
+     
+     @Test
+     public void testCursor() {
+         for (int i = 0; i < 100; i += 2) {
+             this.avlTree.insert(new Int(i));
+         }
+         
+         Assert.assertEquals(0, this.avlTree.first().getValue());
+         Assert.assertEquals(98, this.avlTree.last().getValue());
+         Assert.assertEquals(42, this.avlTree.ceiling(new Int(41)).getValue());
+         Assert.assertEquals(42, this.avlTree.higher(new Int(40)).getValue());
+         Assert.assertEquals(40, this.avlTree.floor(new Int(41)).getValue());
+         Assert.assertEquals(38, this.avlTree.lower(new Int(40)).getValue());
+         Assert.assertNull(this.avlTree.higher(new Int(98)));
+         Assert.assertNull(this.avlTree.lower(new Int(0)));
+         
+         AVLNode cursor = this.avlTree.ceiling(new Int(41));
+         Assert.assertEquals(44, this.avlTree.successor(cursor).getValue());
+         Assert.assertEquals(40, this.avlTree.predecessor(cursor).getValue());
+     }
+     
+     @Test
+     public void testIteratorRemove() {
+         for (int i = 0; i < 100; i++) {
+             this.avlTree.insert(new Int(i));
+         }
+         
+         Iterator<AVLNode> iterator = this.avlTree.iterator();
+         while (iterator.hasNext()) {
+             if (iterator.next().getValue() % 2 == 1) {
+                 iterator.remove();
+             }
+         }
+         
+         assertValues(this.avlTree.iterator(), 0, 98, 2);
+         assertBalanced(this.avlTree.getRoot(), null);
+     }
+     
+     @Test(expected = java.util.ConcurrentModificationException.class)
+     public void testIteratorConcurrentModification() {
+         for (int i = 0; i < 10; i++) {
+             this.avlTree.insert(new Int(i));
+         }
+         
+         Iterator<AVLNode> iterator = this.avlTree.iterator();
+         iterator.next();
+         this.avlTree.delete(new Int(5));
+         iterator.next();
+     }
+     
+     @Test
+     public void testOrderStatistics() {
+         TreeSet<Integer> expected = new TreeSet<>();
+         Random random = new Random(3);
+         
+         for (int i = 0; i < 5000; i++) {
+             int value = random.nextInt(1000);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(value), this.avlTree.delete(new Int(value)));
+             } else {
+                 Assert.assertEquals(expected.add(value), this.avlTree.insert(new Int(value)));
+             }
+         }
+         
+         assertBalanced(this.avlTree.getRoot(), null);
+         Assert.assertEquals(expected.size(), this.avlTree.size());
+         int index = 0;
+         for (Integer value : expected) {
+             Assert.assertEquals(value.intValue(), this.avlTree.select(index).getValue());
+             Assert.assertEquals(index, this.avlTree.rank(new Int(value)));
+             index++;
+         }
+         Assert.assertEquals(expected.headSet(500).size(), this.avlTree.rank(new Int(500)));
+         Assert.assertEquals(expected.subSet(100, true, 200, true).size(), this.avlTree.countInRange(new Int(100), new Int(200)));
+         Assert.assertEquals(expected.subSet(100, false, 200, false).size(),
+                 this.avlTree.countInRange(new Int(100), false, new Int(200), false));
+         Assert.assertEquals(0, this.avlTree.countInRange(new Int(200), new Int(100)));
+     }
+     
+     @Test(expected = IndexOutOfBoundsException.class)
+     public void testSelectOutOfBounds() {
+         this.avlTree.insert(new Int(1));
+         this.avlTree.select(1);
+     }
+     
+     @Test
+     public void testJoinSplit() {
+         AVLTree left = new AVLTree();
+         AVLTree right = new AVLTree();
+         for (int i = 0; i < 1000; i++) {
+             left.insert(new Int(i));
+         }
+         for (int i = 1001; i < 1010; i++) {
+             right.insert(new Int(i));
+         }
+         
+         AVLTree joined = AVLTree.join(left, new Int(1000), right);
+         Assert.assertEquals(0, left.size());
+         Assert.assertEquals(0, right.size());
+         assertBalanced(joined.getRoot(), null);
+         assertInorder(joined, 0, 1010);
+         
+         AVLTree.Split split = AVLTree.split(joined, new Int(300));
+         Assert.assertEquals(0, joined.size());
+         Assert.assertEquals(300, split.getNode().getValue());
+         Assert.assertNull(split.getNode().getParent());
+         assertBalanced(split.getLess().getRoot(), null);
+         assertBalanced(split.getGreater().getRoot(), null);
+         assertInorder(split.getLess(), 0, 300);
+         assertInorder(split.getGreater(), 301, 1010);
+         
+         split = AVLTree.split(split.getGreater(), new Int(5000));
+         Assert.assertNull(split.getNode());
+         assertInorder(split.getLess(), 301, 1010);
+         Assert.assertEquals(0, split.getGreater().size());
+     }
+     
+     @Test(expected = IllegalArgumentException.class)
+     public void testJoinUnordered() {
+         AVLTree left = new AVLTree();
+         left.insert(new Int(10));
+         AVLTree.join(left, new Int(5), new AVLTree());
+     }
+
+     @Test
+     public void testRemoveRange() {
+         AVLTree tree = new AVLTree();
+         for (int i = 0; i < 1000; i++) {
+             tree.insert(new Int(2 * i));
+         }
+
+         AVLTree removed = tree.removeRange(new Int(100), new Int(300));
+         assertBalanced(tree.getRoot(), null);
+         assertBalanced(removed.getRoot(), null);
+         assertValues(removed.iterator(), 100, 298, 2);
+         Assert.assertEquals(900, tree.size());
+         Assert.assertNotNull(tree.search(new Int(300)));
+         Assert.assertNull(tree.search(new Int(100)));
+
+         removed = tree.removeRange(new Int(301), false, new Int(501), true);
+         assertValues(removed.iterator(), 302, 500, 2);
+         Assert.assertEquals(0, tree.removeRange(new Int(600), new Int(600)).size());
+         Assert.assertEquals(0, tree.removeRange(new Int(700), new Int(600)).size());
+
+         Assert.assertEquals(51, tree.truncateBelow(new Int(301)));
+         Assert.assertEquals(502, tree.first().getValue());
+         AVLTree tail = tree.tailTree(new Int(1000));
+         assertValues(tail.iterator(), 1000, 1998, 2);
+         AVLTree head = tree.headTree(new Int(700), true);
+         assertValues(head.iterator(), 502, 700, 2);
+         assertBalanced(tree.getRoot(), null);
+         assertValues(tree.iterator(), 702, 998, 2);
+         tree.insert(new Int(1));
+         Assert.assertEquals(150, tree.size());
+     }
+
+     @Test
+     public void testSetOperations() {
+         Random random = new Random(3);
+         //second size is big enough for parallel tasks, third one is small
+         TreeSet<Integer> first = randomSet(random, 20000, 40000);
+         TreeSet<Integer> second = randomSet(random, 30000, 40000);
+         TreeSet<Integer> third = randomSet(random, 100, 40000);
+         
+         TreeSet<Integer> expected = new TreeSet<>(first);
+         expected.addAll(second);
+         assertContent(expected, AVLTree.union(treeOf(first), treeOf(second)));
+         assertContent(expected, AVLTree.union(treeOf(second), treeOf(first)));
+         expected = new TreeSet<>(first);
+         expected.addAll(third);
+         assertContent(expected, AVLTree.union(treeOf(third), treeOf(first)));
+         
+         expected = new TreeSet<>(first);
+         expected.retainAll(second);
+         assertContent(expected, AVLTree.intersection(treeOf(first), treeOf(second)));
+         expected = new TreeSet<>(first);
+         expected.retainAll(third);
+         assertContent(expected, AVLTree.intersection(treeOf(first), treeOf(third)));
+         
+         expected = new TreeSet<>(first);
+         expected.removeAll(second);
+         assertContent(expected, AVLTree.difference(treeOf(first), treeOf(second)));
+         expected = new TreeSet<>(first);
+         expected.removeAll(third);
+         assertContent(expected, AVLTree.difference(treeOf(first), treeOf(third)));
+         expected = new TreeSet<>(third);
+         expected.removeAll(first);
+         assertContent(expected, AVLTree.difference(treeOf(third), treeOf(first)));
+         
+         assertContent(first, AVLTree.union(treeOf(first), new AVLTree()));
+         assertContent(new TreeSet<Integer>(), AVLTree.intersection(new AVLTree(), treeOf(first)));
+     }
+     
+     @Test
+     public void testBatchOperations() {
+         Random random = new Random(5);
+         AVLTree single = new AVLTree();
+         TreeSet<Integer> expected = new TreeSet<>();
+         
+         for (int round = 0; round < 20; round++) {
+             //batches contain repeated nodes and nodes already present in the tree
+             int batchSize = random.nextInt(2000);
+             AVLNode[] batch = new AVLNode[batchSize];
+             AVLNode[] singleBatch = new AVLNode[batchSize];
+             for (int i = 0; i < batchSize; i++) {
+                 int value = random.nextInt(5000);
+                 batch[i] = new Int(value);
+                 singleBatch[i] = new Int(value);
+             }
+             boolean delete = round % 3 == 2;
+             boolean[] results = delete ? this.avlTree.deleteAll(batch) : this.avlTree.insertAll(batch);
+             for (int i = 0; i < batchSize; i++) {
+                 Integer value = singleBatch[i].getValue();
+                 boolean result = delete ? single.delete(singleBatch[i]) : single.insert(singleBatch[i]);
+                 Assert.assertEquals(result, results[i]);
+                 Assert.assertEquals(delete ? expected.remove(value) : expected.add(value), results[i]);
+             }
+             assertContent(expected, this.avlTree);
+         }
+         
+         AVLNode[] sorted = {new Int(-3), new Int(-2), new Int(-1)};
+         Assert.assertArrayEquals(new boolean[] {true, true, true}, this.avlTree.insertAll(sorted));
+         Assert.assertArrayEquals(new boolean[] {true, false}, this.avlTree.deleteAll(new AVLNode[] {new Int(-2), new Int(-2)}));
+         Assert.assertEquals(0, this.avlTree.insertAll(new AVLNode[0]).length);
+         assertBalanced(this.avlTree.getRoot(), null);
+     }
+     
+     @Test
+     public void testFreezeThaw() {
+         Random random = new Random(13);
+         //sizes around powers of two cover complete and incomplete last levels
+         for (int size : new int[] {0, 1, 2, 7, 8, 9, 1000}) {
+             TreeSet<Integer> expected = randomSet(random, size, 10 * size + 1);
+             AVLTree tree = treeOf(expected);
+             FrozenAVLTree frozen = tree.freeze();
+             Assert.assertEquals(0, tree.size());
+             Assert.assertEquals(size, frozen.size());
+
+             for (int i = -1; i <= 10 * size + 1; i++) {
+                 AVLNode found = frozen.search(new Int(i));
+                 Assert.assertEquals(expected.contains(i), found != null);
+                 Integer ceiling = expected.ceiling(i);
+                 AVLNode frozenCeiling = frozen.ceiling(new Int(i));
+                 Assert.assertEquals(ceiling, (frozenCeiling == null) ? null : frozenCeiling.getValue());
+             }
+             assertContent(expected, frozen.thaw());
+         }
+     }
+     
+     @Test(expected = IllegalStateException.class)
+     public void testThawTwice() {
+         FrozenAVLTree frozen = treeOf(new TreeSet<>(Arrays.asList(1, 2, 3))).freeze();
+         frozen.thaw();
+         frozen.thaw();
+     }
+     
+     @Test
+     public void testSpliterator() {
+         for (int i = 0; i < 100000; i++) {
+             this.avlTree.insert(new Int(i));
+         }
+         Spliterator<AVLNode> spliterator = this.avlTree.spliterator();
+         Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED | Spliterator.SIZED | Spliterator.DISTINCT));
+         Assert.assertEquals(100000, spliterator.getExactSizeIfKnown());
+         Spliterator<AVLNode> prefix = spliterator.trySplit();
+         Assert.assertEquals(100000, prefix.estimateSize() + spliterator.estimateSize());
+         Assert.assertTrue(Math.abs(prefix.estimateSize() - spliterator.estimateSize()) < 50000);
+         final int[] expected = {0};
+         prefix.forEachRemaining(node -> Assert.assertEquals(expected[0]++, node.getValue()));
+         Assert.assertEquals(spliterator.estimateSize(), 100000 - expected[0]);
+
+         Assert.assertEquals(this.avlTree.stream().map(node -> node.getValue()).collect(Collectors.toList()),
+                 this.avlTree.parallelStream().map(node -> node.getValue()).collect(Collectors.toList()));
+         Assert.assertEquals(99999L * 100000 / 2, this.avlTree.parallelStream().mapToLong(node -> node.getValue()).sum());
+         Assert.assertEquals(50000, this.avlTree.parallelStream().filter(node -> node.getValue() % 2 == 0).count());
+     }
+
+     @Test
+     public void testParallelForEachReduce() {
+         for (int i = 0; i < 100000; i++) {
+             this.avlTree.insert(new Int(i));
+         }
+         LongAdder sum = new LongAdder();
+         this.avlTree.parallelForEach(node -> sum.add(node.getValue()));
+         Assert.assertEquals(99999L * 100000 / 2, sum.sum());
+
+         //polynomial hash is not commutative, equal results prove the order of combining
+         long[] hash = this.avlTree.parallelReduce(new long[] {0, 1}, node -> new long[] {node.getValue(), 31},
+                 (left, right) -> new long[] {left[0] * right[1] + right[0], left[1] * right[1]});
+         long expected = 0;
+         for (int i = 0; i < 100000; i++) {
+             expected = expected * 31 + i;
+         }
+         Assert.assertEquals(expected, hash[0]);
+         Assert.assertEquals(Integer.valueOf(0), new AVLTree().parallelReduce(0, node -> 1, Integer::sum));
+     }
+
+     /**
+      * Method that checks the tree is balanced and contains exactly the expected values
+      * @param expected - expected values
+      * @param tree - checked tree
+      */
+     static void assertContent(TreeSet<Integer> expected, AVLTree tree) {
+         assertBalanced(tree.getRoot(), null);
+         Assert.assertEquals(expected.size(), tree.size());
+         Iterator<AVLNode> iterator = tree.iterator();
+         for (Integer value : expected) {
+             Assert.assertEquals(value.intValue(), iterator.next().getValue());
+         }
+     }
+     
+     private static TreeSet<Integer> randomSet(Random random, int size, int bound) {
+         TreeSet<Integer> set = new TreeSet<>();
+         while (set.size() < size) {
+             set.add(random.nextInt(bound));
+         }
+         return set;
+     }
+     
+     private static AVLTree treeOf(TreeSet<Integer> values) {
+         List<Int> nodes = new ArrayList<>();
+         for (Integer value : values) {
+             nodes.add(new Int(value));
+         }
+         AVLTree tree = new AVLTree();
+         tree.buildFromSorted(nodes);
+         return tree;
+     }
+     
+     /**
+      * Method that checks the iterator returns exactly the given arithmetic sequence
+      * @param iterator - checked iterator
+      * @param from - first value
+      * @param to - last value, inclusive
+      * @param step - difference between two values
+      */
+     static void assertValues(Iterator<AVLNode> iterator, int from, int to, int step) {
+         for (int expected = from; step > 0 ? expected <= to : expected >= to; expected += step) {
+             Assert.assertTrue(iterator.hasNext());
+             Assert.assertEquals(expected, iterator.next().getValue());
+         }
+         Assert.assertFalse(iterator.hasNext());
+     }
+     
+     /**
+      * Method that checks parent references, heights and balance factor of every node in subtree
+      * @param node - root of the checked subtree
+      * @param parent - expected parent of the subtree root
+      */
+     static void assertBalanced(AVLNode node, AVLNode parent) {
+         if (node == null) {
+             return;
+         }
+         Assert.assertSame(parent, node.getParent());
+         Assert.assertEquals(node.getLeft() == null ? 0 : node.getLeft().nodeHeight() + 1, node.getLeftHeight());
+         Assert.assertEquals(node.getRight() == null ? 0 : node.getRight().nodeHeight() + 1, node.getRightHeight());
+         Assert.assertTrue(Math.abs(node.nodeBalanceFactor()) <= 1);
+         Assert.assertEquals(1 + (node.getLeft() == null ? 0 : node.getLeft().getSubtreeSize())
+                 + (node.getRight() == null ? 0 : node.getRight().getSubtreeSize()), node.getSubtreeSize());
+         assertBalanced(node.getLeft(), node);
+         assertBalanced(node.getRight(), node);
+     }
+     
+     /**
+      * Method that checks the tree contains exactly values from the interval
+      * @param tree - checked tree
+      * @param from - first value, inclusive
+      * @param to - last value, exclusive
+      */
+     static void assertInorder(AVLTree tree, int from, int to) {
+         LinkedList inorder = tree.inorder(tree.getRoot());
+         Assert.assertEquals(to - from, inorder.size());
+         int expected = from;
+         for (Object node : inorder) {
+             Assert.assertEquals(expected++, ((AVLNode) node).getValue());
+         }
+     }
 }
@@ -0,0 +1,82 @@
+package org.zorvan.avl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestByteArrayAVLTree {
+
+     @Test
+     public void testCompare() {
+         Assert.assertTrue(ByteArrayAVLTree.compare(new byte[] {1}, new byte[] {1, 0}) < 0);
+         Assert.assertTrue(ByteArrayAVLTree.compare(new byte[] {(byte) 0x80}, new byte[] {0x7f}) > 0);
+         Assert.assertEquals(0, ByteArrayAVLTree.compare(new byte[] {1, 2}, new byte[] {1, 2}));
+         //unsigned order of UTF-8 is the code point order
+         String[] strings = {"a", "ab", "b", "\u00e9", "\uffff", "\ud83d\ude00"};
+         for (int i = 1; i < strings.length; i++) {
+             Assert.assertTrue(ByteArrayAVLTree.compare(strings[i - 1].getBytes(StandardCharsets.UTF_8),
+                     strings[i].getBytes(StandardCharsets.UTF_8)) < 0);
+         }
+     }
+
+     @Test
+     public void testPlainAgainstTreeSet() {
+         this.checkAgainstTreeSet(new ByteArrayAVLTree(false));
+     }
+
+     @Test
+     public void testCompressedAgainstTreeSet() {
+         ByteArrayAVLTree tree = this.checkAgainstTreeSet(new ByteArrayAVLTree(true));
+         Assert.assertTrue(tree.isCompressed());
+
+         //shared prefixes are stored once per path
+         ByteArrayAVLTree plain = new ByteArrayAVLTree(false);
+         for (byte[] key : tree.inorder()) {
+             plain.insert(key);
+         }
+         Assert.assertTrue(tree.getStoredKeyBytes() * 2 < plain.getStoredKeyBytes());
+     }
+
+     private ByteArrayAVLTree checkAgainstTreeSet(ByteArrayAVLTree tree) {
+         TreeSet<String> expected = new TreeSet<>(new Comparator<String>() {
+             @Override
+             public int compare(String o1, String o2) {
+                 return ByteArrayAVLTree.compare(o1.getBytes(StandardCharsets.UTF_8), o2.getBytes(StandardCharsets.UTF_8));
+             }
+         });
+         Random random = new Random(41);
+         String[] hosts = {"https://example.com/", "https://example.org/", "https://example.com/a/", "http://\u00e9x.net/"};
+         for (int i = 0; i < 20000; i++) {
+             String key = hosts[random.nextInt(hosts.length)] + "item/" + random.nextInt(3000);
+             if (random.nextInt(4) == 0) {
+                 Assert.assertEquals(expected.remove(key), tree.delete(key));
+             } else {
+                 Assert.assertEquals(expected.add(key), tree.insert(key));
+             }
+         }
+         Assert.assertEquals(expected.size(), tree.getNumberOfNodes());
+         //AVL height bound
+         Assert.assertTrue(tree.getHeight() <= 1.45 * Math.log(expected.size() + 2) / Math.log(2));
+
+         byte[][] keys = tree.inorder();
+         Iterator<String> iterator = expected.iterator();
+         for (byte[] key : keys) {
+             Assert.assertEquals(iterator.next(), new String(key, StandardCharsets.UTF_8));
+         }
+         for (int i = 0; i < 3000; i++) {
+             String key = hosts[i % hosts.length] + "item/" + i;
+             Assert.assertEquals(expected.contains(key), tree.search(key));
+         }
+         Assert.assertFalse(tree.search(""));
+         Assert.assertFalse(tree.search("https://example.com/item/1/"));
+         return tree;
+     }
+}
@@ -0,0 +1,103 @@
+package org.zorvan.avl;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestCompactAVLTree {
+
+     @Test
+     public void testInsertSearchDelete() {
+         CompactAVLTree tree = new CompactAVLTree();
+         for (int i = 0; i < 1000; i++) {
+             Assert.assertTrue(tree.insert(new CompactInt(i)));
+         }
+         Assert.assertFalse(tree.insert(new CompactInt(500)));
+         Assert.assertEquals(1000, tree.size());
+         Assert.assertEquals(10, tree.getHeight());
+         Assert.assertEquals(10, assertBalanced(tree.getRoot()));
+
+         Assert.assertEquals(500, tree.search(new CompactInt(500)).getValue());
+         Assert.assertTrue(tree.delete(new CompactInt(500)));
+         Assert.assertFalse(tree.delete(new CompactInt(500)));
+         Assert.assertNull(tree.search(new CompactInt(500)));
+         Assert.assertEquals(999, tree.size());
+     }
+
+     @Test
+     public void testRandomAgainstTreeSet() {
+         CompactAVLTree tree = new CompactAVLTree();
+         TreeSet<Integer> expected = new TreeSet<>();
+         Random random = new Random(31);
+
+         for (int i = 0; i < 50000; i++) {
+             int value = random.nextInt(2000);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(value), tree.delete(new CompactInt(value)));
+             } else {
+                 Assert.assertEquals(expected.add(value), tree.insert(new CompactInt(value)));
+             }
+             if (i % 1000 == 0) {
+                 Assert.assertEquals(tree.getHeight(), assertBalanced(tree.getRoot()));
+             }
+         }
+         Assert.assertEquals(expected.size(), tree.size());
+         Assert.assertEquals(tree.getHeight(), assertBalanced(tree.getRoot()));
+
+         Iterator<Integer> values = expected.iterator();
+         for (CompactAVLNode node : tree) {
+             Assert.assertEquals(values.next().intValue(), node.getValue());
+         }
+         Assert.assertFalse(values.hasNext());
+     }
+
+     /**
+      * Method that checks balance factors and order of the subtree
+      * @return int height of the subtree
+      */
+     private static int assertBalanced(CompactAVLNode node) {
+         if (node == null) {
+             return 0;
+         }
+         int leftHeight = assertBalanced(node.getLeft());
+         int rightHeight = assertBalanced(node.getRight());
+         Assert.assertEquals(rightHeight - leftHeight, node.getBalance());
+         Assert.assertTrue(Math.abs(rightHeight - leftHeight) <= 1);
+         if (node.getLeft() != null) {
+             Assert.assertTrue(node.getLeft().getValue() < node.getValue());
+         }
+         if (node.getRight() != null) {
+             Assert.assertTrue(node.getRight().getValue() > node.getValue());
+         }
+         return Math.max(leftHeight, rightHeight) + 1;
+     }
+
+    private static class CompactInt extends CompactAVLNode<CompactInt> {
+        private final int value;
+
+        CompactInt(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(CompactInt i) {
+            return (this.value < i.value) ? -1 : ((this.value == i.value) ? 0 : 1);
+        }
+
+        @Override
+        public int getValue() {
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return "" + this.value;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.zorvan.avl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestConcurrentAVLTree {
+    private static final int THREADS = 8;
+    private static final int KEYS = 4096;
+    private static final int OPERATIONS = 200000;
+
+    private ConcurrentAVLTree<Integer, Integer> tree;
+
+     @Before
+     public void setUp() {
+         this.tree = new ConcurrentAVLTree<>();
+     }
+
+     @Test
+     public void testSingleThread() {
+         for (int i = 0; i < 100; i++) {
+             Assert.assertTrue(this.tree.insert(i, -i));
+         }
+         Assert.assertFalse(this.tree.insert(50, 0));
+         Assert.assertEquals(Integer.valueOf(-50), this.tree.search(50));
+         Assert.assertEquals(Integer.valueOf(-50), this.tree.put(50, 50));
+         Assert.assertEquals(Integer.valueOf(50), this.tree.search(50));
+         Assert.assertTrue(this.tree.delete(50));
+         Assert.assertFalse(this.tree.delete(50));
+         Assert.assertNull(this.tree.search(50));
+         Assert.assertEquals(99, this.tree.size());
+         assertInvariants(this.tree);
+     }
+
+     @Test
+     public void testIsEmpty() {
+         Assert.assertTrue(this.tree.isEmpty());
+         for (int i = 0; i < 100; i++) {
+             this.tree.insert(i, i);
+         }
+         //deleting inner nodes with two sons leaves routing nodes without values
+         for (int i = 1; i < 100; i++) {
+             Assert.assertTrue(this.tree.delete(i * 37 % 100));
+             Assert.assertFalse(this.tree.isEmpty());
+         }
+         Assert.assertTrue(this.tree.delete(0));
+         Assert.assertTrue(this.tree.isEmpty());
+     }
+
+     @Test
+     public void testNullValueRejected() {
+         Assert.assertTrue(this.tree.insert(1, 1));
+         try {
+             this.tree.insert(1, null);
+             Assert.fail();
+         } catch (NullPointerException e) {
+             //existing key keeps its value
+         }
+         try {
+             this.tree.insert(2, null);
+             Assert.fail();
+         } catch (NullPointerException e) {
+             //missing key is not inserted
+         }
+         try {
+             this.tree.put(1, null);
+             Assert.fail();
+         } catch (NullPointerException e) {
+             //existing key keeps its value
+         }
+         try {
+             this.tree.put(2, null);
+             Assert.fail();
+         } catch (NullPointerException e) {
+             //missing key is not inserted
+         }
+         Assert.assertEquals(Integer.valueOf(1), this.tree.search(1));
+         Assert.assertNull(this.tree.search(2));
+         Assert.assertEquals(1, this.tree.size());
+     }
+
+     /**
+      * Every writer thread owns keys with the same remainder, so results of its own
+      * operations must match its sequential model, while readers search concurrently.
+      */
+     @Test
+     public void testConcurrentStress() throws InterruptedException {
+         final CountDownLatch start = new CountDownLatch(1);
+         final AtomicReference<Throwable> failure = new AtomicReference<>();
+         final List<TreeSet<Integer>> models = new ArrayList<>();
+         List<Thread> threads = new ArrayList<>();
+
+         for (int t = 0; t < THREADS; t++) {
+             final int owner = t;
+             final TreeSet<Integer> model = new TreeSet<>();
+             models.add(model);
+             threads.add(new Thread(new Runnable() {
+                 @Override
+                 public void run() {
+                     Random random = new Random(owner);
+                     try {
+                         start.await();
+                         for (int i = 0; i < OPERATIONS; i++) {
+                             int key = random.nextInt(KEYS / THREADS) * THREADS + owner;
+                             int operation = random.nextInt(4);
+                             if (operation == 0) {
+                                 Assert.assertEquals(model.remove(key), tree.delete(key));
+                             } else if (operation == 1) {
+                                 Assert.assertEquals(model.add(key), tree.insert(key, key));
+                             } else {
+                                 Integer value = tree.search(key);
+                                 Assert.assertEquals(model.contains(key), value != null);
+                                 //keys of other threads can be in any state, but value must match the key
+                                 int otherKey = random.nextInt(KEYS);
+                                 Integer other = tree.search(otherKey);
+                                 Assert.assertTrue(other == null || other.intValue() == otherKey);
+                             }
+                         }
+                     } catch (Throwable e) {
+                         failure.compareAndSet(null, e);
+                     }
+                 }
+             }));
+         }
+
+         for (Thread thread : threads) {
+             thread.start();
+         }
+         start.countDown();
+         for (Thread thread : threads) {
+             thread.join();
+         }
+
+         if (failure.get() != null) {
+             throw new AssertionError(failure.get());
+         }
+         int expectedSize = 0;
+         for (TreeSet<Integer> model : models) {
+             expectedSize += model.size();
+             for (Integer key : model) {
+                 Assert.assertEquals(key, this.tree.search(key));
+             }
+         }
+         Assert.assertEquals(expectedSize, this.tree.size());
+         assertInvariants(this.tree);
+     }
+
+     /**
+      * Method that checks order of keys, parent references, heights and balance of the quiescent tree
+      * @param tree - checked tree
+      */
+     static void assertInvariants(ConcurrentAVLTree<Integer, ?> tree) {
+         ConcurrentAVLTree.Node<Integer, ?> holder = tree.getRootHolder();
+         Assert.assertNull(holder.left);
+         assertSubtree(holder.right, holder, Integer.MIN_VALUE, Integer.MAX_VALUE);
+     }
+
+     private static int assertSubtree(ConcurrentAVLTree.Node<Integer, ?> node, ConcurrentAVLTree.Node<Integer, ?> parent,
+             long low, long high) {
+         if (node == null) {
+             return 0;
+         }
+         Assert.assertSame(parent, node.parent);
+         Assert.assertTrue(node.key >= low && node.key <= high);
+         //routing node is kept only while it has two sons
+         Assert.assertTrue(node.value != null || (node.left != null && node.right != null));
+         int leftHeight = assertSubtree(node.left, node, low, node.key - 1L);
+         int rightHeight = assertSubtree(node.right, node, node.key + 1L, high);
+         Assert.assertEquals(1 + Math.max(leftHeight, rightHeight), node.height);
+         Assert.assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+         return node.height;
+     }
+}
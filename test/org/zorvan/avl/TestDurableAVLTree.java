@@ -0,0 +1,166 @@
+package org.zorvan.avl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestDurableAVLTree {
+    private static final AVLNodeCodec<Int> CODEC = new AVLNodeCodec<Int>() {
+        @Override
+        public void write(Int node, DataOutput out) throws IOException {
+            out.writeInt(node.getValue());
+        }
+
+        @Override
+        public Int read(DataInput in) throws IOException {
+            return new Int(in.readInt());
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+     @Test
+     public void testRecovery() throws IOException {
+         Path directory = this.folder.getRoot().toPath();
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             for (int i = 0; i < 1000; i++) {
+                 Assert.assertTrue(tree.insert(new Int(i)));
+             }
+             Assert.assertFalse(tree.insert(new Int(10)));
+             for (int i = 0; i < 1000; i += 2) {
+                 Assert.assertTrue(tree.delete(new Int(i)));
+             }
+             Assert.assertFalse(tree.delete(new Int(0)));
+         }
+
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.OS)) {
+             Assert.assertEquals(500, tree.size());
+             TestAvlTree.assertValues(tree.getTree().iterator(), 1, 999, 2);
+             TestAvlTree.assertBalanced(tree.getTree().getRoot(), null);
+         }
+     }
+
+     @Test
+     public void testCheckpoint() throws IOException {
+         Path directory = this.folder.getRoot().toPath();
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.INTERVAL)) {
+             for (int i = 0; i < 100; i++) {
+                 tree.insert(new Int(i));
+             }
+             tree.checkpoint();
+             Assert.assertEquals(0, directory.resolve(DurableAVLTree.LOG_FILE).toFile().length());
+             tree.delete(new Int(0));
+             tree.insert(new Int(100));
+         }
+
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.INTERVAL)) {
+             Assert.assertEquals(100, tree.size());
+             TestAvlTree.assertValues(tree.getTree().iterator(), 1, 100, 1);
+         }
+     }
+
+     @Test
+     public void testFailure() throws IOException {
+         Path directory = this.folder.getRoot().toPath();
+         DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION);
+         tree.insert(new Int(1));
+         //closed log can not be written
+         tree.close();
+         try {
+             tree.insert(new Int(2));
+             Assert.fail();
+         } catch (IOException e) {
+             //expected
+         }
+         try {
+             tree.checkpoint();
+             Assert.fail();
+         } catch (IOException e) {
+             Assert.assertTrue(e.getMessage().contains("failed"));
+         }
+         Assert.assertFalse(directory.resolve(DurableAVLTree.CHECKPOINT_FILE).toFile().exists());
+
+         try (DurableAVLTree<Int> reopened = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             Assert.assertEquals(1, reopened.size());
+             Assert.assertTrue(reopened.insert(new Int(2)));
+         }
+     }
+
+     @Test
+     public void testTornTail() throws IOException {
+         Path directory = this.folder.getRoot().toPath();
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             for (int i = 0; i < 10; i++) {
+                 tree.insert(new Int(i));
+             }
+         }
+         //record is 13 bytes, crash in the middle of the last append leaves part of it
+         try (RandomAccessFile file = new RandomAccessFile(directory.resolve(DurableAVLTree.LOG_FILE).toFile(), "rw")) {
+             file.setLength(file.length() - 3);
+         }
+
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             Assert.assertEquals(9, tree.size());
+             Assert.assertNull(tree.search(new Int(9)));
+             Assert.assertEquals(9 * 13, directory.resolve(DurableAVLTree.LOG_FILE).toFile().length());
+             tree.insert(new Int(9));
+         }
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             TestAvlTree.assertValues(tree.getTree().iterator(), 0, 9, 1);
+         }
+     }
+
+     @Test
+     public void testGroupCommit() throws Exception {
+         Path directory = this.folder.getRoot().toPath();
+         final int threads = 4;
+         final int perThread = 250;
+         ExecutorService executor = Executors.newFixedThreadPool(threads);
+         try (final DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.EVERY_OPERATION)) {
+             List<Future<Void>> futures = new ArrayList<>();
+             for (int t = 0; t < threads; t++) {
+                 final int first = t * perThread;
+                 futures.add(executor.submit(new Callable<Void>() {
+                     @Override
+                     public Void call() throws IOException {
+                         for (int i = first; i < first + perThread; i++) {
+                             Assert.assertTrue(tree.insert(new Int(i)));
+                         }
+                         return null;
+                     }
+                 }));
+             }
+             for (Future<Void> future : futures) {
+                 future.get();
+             }
+         } finally {
+             executor.shutdown();
+         }
+
+         try (DurableAVLTree<Int> tree = open(directory, WriteAheadLog.SyncPolicy.OS)) {
+             Assert.assertEquals(threads * perThread, tree.size());
+             TestAvlTree.assertValues(tree.getTree().iterator(), 0, threads * perThread - 1, 1);
+         }
+     }
+
+     private static DurableAVLTree<Int> open(Path directory, WriteAheadLog.SyncPolicy policy) throws IOException {
+         return new DurableAVLTree<>(directory, CODEC, policy, 10);
+     }
+}
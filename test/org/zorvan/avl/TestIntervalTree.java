@@ -0,0 +1,98 @@
+package org.zorvan.avl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestIntervalTree {
+
+     @Test
+     public void testStab() {
+         IntervalTree tree = new IntervalTree();
+         tree.insert(new IntervalNode(10, 20));
+         tree.insert(new IntervalNode(15, 25));
+         tree.insert(new IntervalNode(30, 40));
+         tree.insert(new IntervalNode(0, 5));
+         Assert.assertFalse(tree.insert(new IntervalNode(10, 20)));
+
+         Assert.assertEquals("[[10, 20], [15, 25]]", toList(tree.stab(20)).toString());
+         Assert.assertEquals("[[15, 25]]", toList(tree.stab(21)).toString());
+         Assert.assertEquals("[]", toList(tree.stab(26)).toString());
+         Assert.assertEquals("[[15, 25], [30, 40]]", toList(tree.overlapping(21, 30)).toString());
+         Assert.assertEquals(40, ((IntervalNode) tree.getRoot()).getMaxHigh());
+     }
+
+     @Test
+     public void testRandomAgainstScan() {
+         IntervalTree tree = new IntervalTree();
+         List<IntervalNode> expected = new ArrayList<>();
+         Random random = new Random(3);
+
+         for (int i = 0; i < 5000; i++) {
+             long low = random.nextInt(10000);
+             IntervalNode node = new IntervalNode(low, low + random.nextInt(random.nextBoolean() ? 50 : 2000));
+             if (random.nextInt(3) == 0 && !expected.isEmpty()) {
+                 IntervalNode deleted = expected.remove(random.nextInt(expected.size()));
+                 Assert.assertTrue(tree.delete(deleted));
+             } else if (tree.insert(node)) {
+                 expected.add(node);
+             }
+             if (i % 500 == 0) {
+                 assertMaxHigh((IntervalNode) tree.getRoot());
+             }
+         }
+         assertMaxHigh((IntervalNode) tree.getRoot());
+         TestAvlTree.assertBalanced(tree.getRoot(), null);
+
+         for (int i = 0; i < 300; i++) {
+             long low = random.nextInt(12000) - 1000;
+             long high = low + ((i % 2 == 0) ? 0 : random.nextInt(300));
+             int count = 0;
+             IntervalNode previous = null;
+             Iterator<IntervalNode> iterator = tree.overlapping(low, high);
+             while (iterator.hasNext()) {
+                 IntervalNode node = iterator.next();
+                 Assert.assertTrue(node.overlaps(low, high));
+                 Assert.assertTrue(previous == null || previous.compareTo(node) < 0);
+                 previous = node;
+                 count++;
+             }
+             int expectedCount = 0;
+             for (IntervalNode node : expected) {
+                 if (node.overlaps(low, high)) {
+                     expectedCount++;
+                 }
+             }
+             Assert.assertEquals(expectedCount, count);
+         }
+     }
+
+     private static List<IntervalNode> toList(Iterator<IntervalNode> iterator) {
+         List<IntervalNode> list = new ArrayList<>();
+         while (iterator.hasNext()) {
+             list.add(iterator.next());
+         }
+         return list;
+     }
+
+     /**
+      * Method that checks maximum high endpoints of the subtree
+      * @return long maximum high endpoint of the subtree
+      */
+     private static long assertMaxHigh(IntervalNode node) {
+         if (node == null) {
+             return Long.MIN_VALUE;
+         }
+         long max = Math.max(node.getHigh(), Math.max(assertMaxHigh((IntervalNode) node.getLeft()),
+                 assertMaxHigh((IntervalNode) node.getRight())));
+         Assert.assertEquals(max, node.getMaxHigh());
+         return max;
+     }
+}
@@ -0,0 +1,94 @@
+package org.zorvan.avl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestMappedAVLTree {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+     @Test
+     public void testInsertSearchDelete() throws IOException {
+         try (MappedAVLTree tree = new MappedAVLTree(this.folder.newFile().toPath())) {
+             for (int i = 0; i < 100; i++) {
+                 Assert.assertTrue(tree.insert(i, -i));
+             }
+             Assert.assertFalse(tree.insert(50, 0));
+             Assert.assertEquals(-50, tree.get(50, 1));
+             Assert.assertTrue(tree.delete(50));
+             Assert.assertFalse(tree.delete(50));
+             Assert.assertFalse(tree.search(50));
+             Assert.assertEquals(1, tree.get(50, 1));
+             Assert.assertEquals(99, tree.getNumberOfNodes());
+             Assert.assertTrue(tree.getHeight() <= 8);
+         }
+     }
+
+     @Test
+     public void testReopen() throws IOException {
+         File file = this.folder.newFile();
+         TreeMap<Long, Long> expected = new TreeMap<>();
+         Random random = new Random(13);
+
+         //enough nodes for the mapping to grow several times
+         try (MappedAVLTree tree = new MappedAVLTree(file.toPath())) {
+             for (int i = 0; i < 200000; i++) {
+                 long key = random.nextInt(150000) * 31L - 1000000L;
+                 if (random.nextInt(4) == 0) {
+                     Assert.assertEquals(expected.remove(key) != null, tree.delete(key));
+                 } else {
+                     Assert.assertEquals(!expected.containsKey(key), tree.insert(key, i));
+                     if (!expected.containsKey(key)) {
+                         expected.put(key, (long) i);
+                     }
+                 }
+             }
+         }
+
+         try (MappedAVLTree tree = new MappedAVLTree(file.toPath())) {
+             Assert.assertEquals(expected.size(), tree.getNumberOfNodes());
+             long[] inorder = tree.inorder();
+             int i = 0;
+             for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                 Assert.assertEquals(entry.getKey().longValue(), inorder[i++]);
+                 Assert.assertEquals(entry.getValue().longValue(), tree.get(entry.getKey(), -1));
+             }
+             assert tree.getHeight() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2));
+             //released records are reused after reopening
+             long fileSize = file.length();
+             tree.clear();
+             for (long key = 0; key < 1000; key++) {
+                 tree.insert(key, key);
+             }
+             Assert.assertEquals(fileSize, file.length());
+         }
+     }
+
+     @Test
+     public void testNotTreeFile() throws IOException {
+         File file = this.folder.newFile();
+         try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+             raf.writeLong(42);
+         }
+         try {
+             new MappedAVLTree(file.toPath()).close();
+             Assert.fail();
+         } catch (IOException e) {
+             //file which is not a tree is left as it was
+             Assert.assertEquals(8, file.length());
+         }
+     }
+}
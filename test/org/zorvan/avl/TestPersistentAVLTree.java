@@ -0,0 +1,96 @@
+package org.zorvan.avl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestPersistentAVLTree {
+    private PersistentAVLTree<Integer, String> tree;
+
+     @Before
+     public void setUp() {
+         this.tree = new PersistentAVLTree<>();
+     }
+
+     @Test
+     public void testInsertSearchDelete() {
+         for (int i = 0; i < 100; i++) {
+             Assert.assertTrue(this.tree.insert(i, "" + i));
+         }
+         Assert.assertFalse(this.tree.insert(50, "x"));
+         Assert.assertEquals("50", this.tree.search(50));
+         Assert.assertEquals("50", this.tree.put(50, "x"));
+         Assert.assertEquals("x", this.tree.search(50));
+         Assert.assertTrue(this.tree.delete(50));
+         Assert.assertFalse(this.tree.delete(50));
+         Assert.assertNull(this.tree.search(50));
+         Assert.assertEquals(99, this.tree.size());
+         Assert.assertTrue(this.tree.getHeight() <= 8);
+     }
+
+     @Test
+     public void testSnapshotIsolation() {
+         for (int i = 0; i < 100; i++) {
+             this.tree.insert(i, "" + i);
+         }
+
+         PersistentAVLTree<Integer, String> snapshot = this.tree.snapshot();
+         Iterator<Map.Entry<Integer, String>> iterator = this.tree.iterator();
+         for (int i = 0; i < 100; i += 2) {
+             this.tree.delete(i);
+         }
+         this.tree.insert(1000, "1000");
+
+         Assert.assertTrue(snapshot.isReadOnly());
+         Assert.assertEquals(100, snapshot.size());
+         Assert.assertEquals("0", snapshot.search(0));
+         Assert.assertNull(snapshot.search(1000));
+         Assert.assertEquals(51, this.tree.size());
+         //iterator sees the version of the tree it was created for
+         int expected = 0;
+         while (iterator.hasNext()) {
+             Assert.assertEquals(Integer.valueOf(expected++), iterator.next().getKey());
+         }
+         Assert.assertEquals(100, expected);
+     }
+
+     @Test(expected = UnsupportedOperationException.class)
+     public void testSnapshotIsReadOnly() {
+         this.tree.snapshot().insert(1, "1");
+     }
+
+     @Test
+     public void testRandomAgainstTreeMap() {
+         TreeMap<Integer, String> expected = new TreeMap<>();
+         Random random = new Random(11);
+
+         for (int i = 0; i < 20000; i++) {
+             int key = random.nextInt(1000);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(key) != null, this.tree.delete(key));
+             } else {
+                 Assert.assertEquals(expected.put(key, "" + i), this.tree.put(key, "" + i));
+             }
+         }
+
+         Assert.assertEquals(expected.size(), this.tree.size());
+         Iterator<Map.Entry<Integer, String>> iterator = this.tree.iterator();
+         for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+             Map.Entry<Integer, String> actual = iterator.next();
+             //entries follow the Map.Entry contract
+             Assert.assertEquals(entry, actual);
+             Assert.assertEquals(actual, entry);
+             Assert.assertEquals(entry.hashCode(), actual.hashCode());
+         }
+         Assert.assertFalse(iterator.hasNext());
+         assert this.tree.getHeight() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2));
+     }
+}
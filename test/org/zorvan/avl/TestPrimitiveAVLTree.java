@@ -0,0 +1,106 @@
+package org.zorvan.avl;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestPrimitiveAVLTree {
+
+     @Test
+     public void testIntInsertSearchDelete() {
+         IntAVLTree tree = new IntAVLTree(4);
+
+         for (int i = 0; i < 100; i++) {
+             Assert.assertTrue(tree.insert(i));
+         }
+         Assert.assertFalse(tree.insert(50));
+         Assert.assertEquals(100, tree.getNumberOfNodes());
+         Assert.assertTrue(tree.search(99));
+         Assert.assertFalse(tree.search(100));
+
+         Assert.assertTrue(tree.delete(50));
+         Assert.assertFalse(tree.delete(50));
+         Assert.assertFalse(tree.search(50));
+         Assert.assertEquals(99, tree.getNumberOfNodes());
+         Assert.assertTrue(tree.getHeight() <= 8);
+     }
+
+     @Test
+     public void testIntRandomAgainstTreeSet() {
+         IntAVLTree tree = new IntAVLTree();
+         TreeSet<Integer> expected = new TreeSet<>();
+         Random random = new Random(42);
+
+         for (int i = 0; i < 20000; i++) {
+             int key = random.nextInt(2000);
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(key), tree.delete(key));
+             } else {
+                 Assert.assertEquals(expected.add(key), tree.insert(key));
+             }
+         }
+
+         int[] inorder = tree.inorder();
+         Assert.assertEquals(expected.size(), inorder.length);
+         int i = 0;
+         for (Integer key : expected) {
+             Assert.assertEquals(key.intValue(), inorder[i++]);
+         }
+         assert tree.getHeight() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2));
+     }
+
+     @Test
+     public void testIntFreeze() {
+         IntAVLTree tree = new IntAVLTree();
+         for (int i = 0; i < 1000; i++) {
+             tree.insert(3 * i);
+         }
+         FrozenIntAVLTree frozen = tree.freeze();
+         Assert.assertEquals(1000, frozen.getNumberOfNodes());
+         for (int key = -1; key < 3001; key++) {
+             Assert.assertEquals(key % 3 == 0 && key >= 0 && key < 3000, frozen.search(key));
+         }
+         Assert.assertArrayEquals(tree.inorder(), frozen.inorder());
+         Assert.assertArrayEquals(tree.inorder(), frozen.thaw().inorder());
+         Assert.assertFalse(new IntAVLTree().freeze().search(0));
+
+         //thawed tree is perfectly balanced and stays mutable
+         IntAVLTree thawed = frozen.thaw();
+         Assert.assertEquals(10, thawed.getHeight());
+         Assert.assertTrue(thawed.insert(1));
+         Assert.assertTrue(thawed.delete(0));
+         Assert.assertFalse(thawed.search(0));
+         Assert.assertTrue(thawed.search(2997));
+         Assert.assertEquals(1000, thawed.getNumberOfNodes());
+         Assert.assertEquals(0, new IntAVLTree().freeze().thaw().getNumberOfNodes());
+     }
+
+     @Test
+     public void testLongRandomAgainstTreeSet() {
+         LongAVLTree tree = new LongAVLTree();
+         TreeSet<Long> expected = new TreeSet<>();
+         Random random = new Random(7);
+
+         for (int i = 0; i < 20000; i++) {
+             long key = (random.nextInt(2000) * 1000000007L) ^ Long.MIN_VALUE;
+             if (random.nextInt(3) == 0) {
+                 Assert.assertEquals(expected.remove(key), tree.delete(key));
+             } else {
+                 Assert.assertEquals(expected.add(key), tree.insert(key));
+             }
+         }
+
+         long[] inorder = tree.inorder();
+         Assert.assertEquals(expected.size(), inorder.length);
+         int i = 0;
+         for (Long key : expected) {
+             Assert.assertEquals(key.longValue(), inorder[i++]);
+         }
+         assert tree.getHeight() <= 1.45 * (Math.log(expected.size() + 2) / Math.log(2));
+     }
+}
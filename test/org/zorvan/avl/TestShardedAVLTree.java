@@ -0,0 +1,124 @@
+package org.zorvan.avl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestShardedAVLTree {
+
+     @Test
+     public void testRouting() {
+         ShardedAVLTree tree = new ShardedAVLTree(new AVLNode[] {new Int(100), new Int(200)});
+         for (int i = 0; i < 300; i += 2) {
+             Assert.assertTrue(tree.insert(new Int(i)));
+         }
+         Assert.assertFalse(tree.insert(new Int(100)));
+         Assert.assertArrayEquals(new int[] {50, 50, 50}, tree.getShardSizes());
+         Assert.assertNotNull(tree.search(new Int(200)));
+         Assert.assertNull(tree.search(new Int(201)));
+         Assert.assertTrue(tree.delete(new Int(298)));
+         Assert.assertFalse(tree.delete(new Int(298)));
+         Assert.assertEquals(149, tree.size());
+
+         TestAvlTree.assertValues(tree.iterator(), 0, 296, 2);
+     }
+
+     @Test(expected = IllegalArgumentException.class)
+     public void testUnorderedBounds() {
+         new ShardedAVLTree(new AVLNode[] {new Int(2), new Int(1)});
+     }
+
+     @Test
+     public void testRebalanceSkewed() {
+         ShardedAVLTree tree = new ShardedAVLTree(new AVLNode[] {new Int(1000000), new Int(2000000), new Int(3000000)});
+         TreeSet<Integer> expected = new TreeSet<>();
+         Random random = new Random(19);
+         //all keys fall into the first shard
+         for (int i = 0; i < 20000; i++) {
+             int value = random.nextInt(100000);
+             Assert.assertEquals(expected.add(value), tree.insert(new Int(value)));
+         }
+         for (int i = 0; i < 10; i++) {
+             tree.rebalance();
+         }
+         int[] sizes = tree.getShardSizes();
+         for (int size : sizes) {
+             Assert.assertTrue(size > 0);
+         }
+         Assert.assertEquals(expected.size(), tree.size());
+         Assert.assertTrue(tree.getBounds()[0].getValue() < 100000);
+
+         Iterator<AVLNode> iterator = tree.iterator();
+         for (Integer value : expected) {
+             Assert.assertEquals(value.intValue(), iterator.next().getValue());
+         }
+         Assert.assertFalse(iterator.hasNext());
+         for (Integer value : expected) {
+             Assert.assertNotNull(tree.search(new Int(value)));
+         }
+     }
+
+     @Test
+     public void testConcurrentWrites() throws Exception {
+         final ShardedAVLTree tree = new ShardedAVLTree(new AVLNode[] {new Int(10000), new Int(20000), new Int(30000)});
+         final int threads = 4;
+         ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+         try {
+             List<Future<Integer>> futures = new ArrayList<>();
+             for (int t = 0; t < threads; t++) {
+                 final int thread = t;
+                 futures.add(executor.submit(new Callable<Integer>() {
+                     @Override
+                     public Integer call() {
+                         //threads 1 to 3 write above the last bound, so the last shard gets skewed and rebalanced
+                         for (int i = thread; i < 40000; i += threads) {
+                             Assert.assertTrue(tree.insert(new Int(i / 4 + (i % 4) * 1000000)));
+                         }
+                         return 0;
+                     }
+                 }));
+             }
+             futures.add(executor.submit(new Callable<Integer>() {
+                 @Override
+                 public Integer call() {
+                     int scans = 0;
+                     for (int i = 0; i < 20; i++) {
+                         int previous = Integer.MIN_VALUE;
+                         for (AVLNode node : tree) {
+                             Assert.assertTrue(previous < node.getValue());
+                             previous = node.getValue();
+                         }
+                         scans++;
+                     }
+                     return scans;
+                 }
+             }));
+             for (Future<Integer> future : futures) {
+                 future.get();
+             }
+         } finally {
+             executor.shutdown();
+         }
+         Assert.assertEquals(40000, tree.size());
+         int count = 0;
+         int previous = Integer.MIN_VALUE;
+         for (AVLNode node : tree) {
+             Assert.assertTrue(previous < node.getValue());
+             previous = node.getValue();
+             count++;
+         }
+         Assert.assertEquals(40000, count);
+     }
+}
@@ -0,0 +1,109 @@
+package org.zorvan.avl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestWorkloadTrace {
+    private static final AVLNodeCodec<Int> CODEC = new AVLNodeCodec<Int>() {
+        @Override
+        public void write(Int node, DataOutput out) throws IOException {
+            out.writeInt(node.getValue());
+        }
+
+        @Override
+        public Int read(DataInput in) throws IOException {
+            return new Int(in.readInt());
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+     @Test
+     public void testRecordAndReplay() throws IOException {
+         Path trace = this.folder.getRoot().toPath().resolve("trace.bin");
+         Random random = new Random(37);
+         int searches = 0;
+         TracingAVLTree<Int> tracing = new TracingAVLTree<>(trace, CODEC);
+         try {
+             for (int i = 0; i < 5000; i++) {
+                 int value = random.nextInt(2000);
+                 if (i % 3 == 2) {
+                     tracing.delete(new Int(value));
+                 } else if (i % 5 == 1) {
+                     tracing.search(new Int(value));
+                     searches++;
+                 } else {
+                     tracing.insert(new Int(value));
+                 }
+             }
+             tracing.inorder(tracing.getRoot());
+         } finally {
+             tracing.close();
+         }
+
+         List<WorkloadTrace.Record<Int>> records = WorkloadTrace.read(trace, CODEC);
+         Assert.assertEquals(5001, records.size());
+         long previous = 0;
+         for (WorkloadTrace.Record<Int> record : records) {
+             Assert.assertTrue(record.getNanos() >= previous);
+             previous = record.getNanos();
+         }
+         WorkloadTrace.Record<Int> last = records.get(records.size() - 1);
+         Assert.assertEquals(WorkloadTrace.Operation.INORDER, last.getOperation());
+         Assert.assertNull(last.getNode());
+
+         AVLTree replayed = new AVLTree();
+         TraceReplay.Result result = TraceReplay.replay(records, TraceReplay.<Int>of(replayed));
+         Assert.assertEquals(searches, result.getHistogram(WorkloadTrace.Operation.SEARCH).getTotalCount());
+         Assert.assertEquals(5001, result.getTotal().getTotalCount());
+         Assert.assertTrue(result.getThroughput() > 0);
+         Assert.assertNotNull(result.toString());
+
+         //replay reproduces the traced tree
+         Assert.assertEquals(tracing.size(), replayed.size());
+         TestAvlTree.assertBalanced(replayed.getRoot(), null);
+         Iterator<AVLNode> expected = tracing.iterator();
+         for (AVLNode node : replayed) {
+             Assert.assertEquals(expected.next().getValue(), node.getValue());
+         }
+     }
+
+     @Test
+     public void testHistogram() {
+         LatencyHistogram histogram = new LatencyHistogram();
+         for (int i = 1; i <= 100000; i++) {
+             histogram.record(i);
+         }
+         Assert.assertEquals(100000, histogram.getTotalCount());
+         Assert.assertEquals(1, histogram.getMin());
+         Assert.assertEquals(100000, histogram.getMax());
+         Assert.assertEquals(100000, histogram.getValueAtPercentile(100));
+         Assert.assertEquals(50000.5, histogram.getMean(), 1e-9);
+         long median = histogram.getValueAtPercentile(50);
+         Assert.assertTrue(median >= 50000 && median <= 50000 + 50000 / 64);
+         long p99 = histogram.getValueAtPercentile(99);
+         Assert.assertTrue(p99 >= 99000 && p99 <= 99000 + 99000 / 64);
+
+         LatencyHistogram small = new LatencyHistogram();
+         small.record(5);
+         small.record(100);
+         Assert.assertEquals(5, small.getValueAtPercentile(50));
+         small.add(histogram);
+         Assert.assertEquals(100002, small.getTotalCount());
+         Assert.assertEquals(100000, small.getMax());
+     }
+}
@@ -0,0 +1,183 @@
+package org.zorvan.avl.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.zorvan.avl.AVLTreeMap;
+
+/**
+ *
+ * @author Tomas ZORVAN <tomas.zorvan at gmail.com>
+ */
+public class TestKeyValueServer {
+    private AVLTreeMap<Long, byte[]> map;
+    private KeyValueServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        this.map = new AVLTreeMap<>();
+        this.server = new KeyValueServer(this.map, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.server.close();
+    }
+
+     @Test
+     public void testCommands() throws IOException {
+         try (KeyValueClient client = new KeyValueClient(this.server.getAddress())) {
+             Assert.assertArrayEquals(new boolean[] {true, true, true},
+                     client.put(new long[] {5, 1, 3}, new byte[][] {{5}, {1}, {3, 3}}));
+             Assert.assertArrayEquals(new boolean[] {false}, client.put(new long[] {5}, new byte[][] {{5, 5}}));
+             byte[][] values = client.get(1, 2, 3, 5);
+             Assert.assertArrayEquals(new byte[] {1}, values[0]);
+             Assert.assertNull(values[1]);
+             Assert.assertArrayEquals(new byte[] {3, 3}, values[2]);
+             Assert.assertArrayEquals(new byte[] {5, 5}, values[3]);
+
+             List<Map.Entry<Long, byte[]>> range = client.range(2, 6, 10);
+             Assert.assertEquals(2, range.size());
+             Assert.assertEquals(3L, range.get(0).getKey().longValue());
+             Assert.assertEquals(5L, range.get(1).getKey().longValue());
+             Assert.assertEquals(1, client.range(0, 6, 1).size());
+             Assert.assertTrue(client.range(6, 0, 10).isEmpty());
+
+             Assert.assertArrayEquals(new boolean[] {true, false}, client.delete(3, 4));
+             Assert.assertEquals(2, this.map.size());
+         }
+     }
+
+     @Test
+     public void testPipelining() throws IOException {
+         try (KeyValueClient client = new KeyValueClient(this.server.getAddress())) {
+             List<KeyValueClient.Reply<boolean[]>> puts = new ArrayList<>();
+             for (int i = 0; i < 2000; i++) {
+                 puts.add(client.sendPut(new long[] {i, i + 100000}, new byte[][] {new byte[i % 100], {1}}));
+             }
+             KeyValueClient.Reply<byte[][]> get = client.sendGet(1999, 100000, -1);
+             KeyValueClient.Reply<List<Map.Entry<Long, byte[]>>> range = client.sendRange(0, 100, 1000);
+             Assert.assertEquals(2002, client.getPendingCount());
+
+             //the last reply reads all earlier responses
+             Assert.assertEquals(100, range.get().size());
+             Assert.assertTrue(puts.get(0).isDone());
+             Assert.assertEquals(0, client.getPendingCount());
+             for (KeyValueClient.Reply<boolean[]> put : puts) {
+                 Assert.assertArrayEquals(new boolean[] {true, true}, put.get());
+             }
+             byte[][] values = get.get();
+             Assert.assertEquals(99, values[0].length);
+             Assert.assertArrayEquals(new byte[] {1}, values[1]);
+             Assert.assertNull(values[2]);
+             Assert.assertEquals(4000, this.map.size());
+         }
+     }
+
+     @Test
+     public void testLargeValues() throws IOException {
+         try (KeyValueClient client = new KeyValueClient(this.server.getAddress())) {
+             client.put(new long[] {1, 2}, new byte[][] {new byte[9 << 20], new byte[10]});
+             client.put(new long[] {3}, new byte[][] {new byte[10 << 20]});
+             //entry which does not fit is left for the next page, but the first entry always fits
+             List<Map.Entry<Long, byte[]>> range = client.range(0, 10, 100);
+             Assert.assertEquals(2, range.size());
+             Assert.assertEquals(9 << 20, range.get(0).getValue().length);
+             Assert.assertEquals(1, client.range(3, 10, 100).size());
+
+             //pipelined response of large GET does not shrink the range
+             KeyValueClient.Reply<byte[][]> get = client.sendGet(3);
+             KeyValueClient.Reply<List<Map.Entry<Long, byte[]>>> small = client.sendRange(2, 3, 10);
+             Assert.assertEquals(10 << 20, get.get()[0].length);
+             Assert.assertEquals(1, small.get().size());
+
+             byte[] largest = new byte[Protocol.MAX_VALUE];
+             client.put(new long[] {4}, new byte[][] {largest});
+             Assert.assertEquals(Protocol.MAX_VALUE, client.range(4, 5, 1).get(0).getValue().length);
+             try {
+                 client.sendPut(new long[] {5}, new byte[][] {new byte[Protocol.MAX_VALUE + 1]});
+                 Assert.fail();
+             } catch (IllegalArgumentException e) {
+                 //expected
+             }
+
+             //values of GET over one frame are rejected, the connection goes on
+             try {
+                 client.get(4, 4);
+                 Assert.fail();
+             } catch (IOException e) {
+                 Assert.assertTrue(e.getMessage().contains("does not fit"));
+             }
+             try {
+                 client.get(new long[Protocol.MAX_PAYLOAD / 8]);
+                 Assert.fail();
+             } catch (IllegalArgumentException e) {
+                 Assert.assertTrue(e.getMessage().contains("does not fit"));
+             }
+             try {
+                 client.sendDelete(new long[Protocol.MAX_PAYLOAD / 8]);
+                 Assert.fail();
+             } catch (IllegalArgumentException e) {
+                 //expected
+             }
+             Assert.assertEquals(Protocol.MAX_VALUE, client.get(4)[0].length);
+         }
+     }
+
+     @Test
+     public void testRejectedRequest() throws IOException {
+         try (KeyValueClient client = new KeyValueClient(this.server.getAddress())) {
+             KeyValueClient.Reply<List<Map.Entry<Long, byte[]>>> rejected = client.sendRange(0, 10, -1);
+             KeyValueClient.Reply<boolean[]> put = client.sendPut(new long[] {7}, new byte[][] {{7}});
+             try {
+                 rejected.get();
+                 Assert.fail();
+             } catch (IOException e) {
+                 Assert.assertTrue(e.getMessage().contains("Negative limit"));
+             }
+             //connection goes on after the rejected request
+             Assert.assertArrayEquals(new boolean[] {true}, put.get());
+         }
+     }
+
+     @Test
+     public void testManyClients() throws Exception {
+         final int clients = 4;
+         Thread[] threads = new Thread[clients];
+         final IOException[] failures = new IOException[clients];
+         final int[] sizes = new int[clients];
+         for (int c = 0; c < clients; c++) {
+             final int client = c;
+             threads[c] = new Thread(new Runnable() {
+                 @Override
+                 public void run() {
+                     try (KeyValueClient connection = new KeyValueClient(server.getAddress())) {
+                         for (int i = 0; i < 500; i++) {
+                             connection.sendPut(new long[] {client * 1000 + i}, new byte[][] {{(byte) client}});
+                         }
+                         connection.flush();
+                         sizes[client] = connection.range(client * 1000, client * 1000 + 1000, 1000).size();
+                     } catch (IOException e) {
+                         failures[client] = e;
+                     }
+                 }
+             });
+             threads[c].start();
+         }
+         for (Thread thread : threads) {
+             thread.join();
+         }
+         for (int c = 0; c < clients; c++) {
+             Assert.assertNull(failures[c]);
+             Assert.assertEquals(500, sizes[c]);
+         }
+         Assert.assertEquals(clients * 500, this.map.size());
+     }
+}